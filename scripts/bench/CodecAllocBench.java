@@ -0,0 +1,91 @@
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.undercover.network.protocol.ProtocolCodec;
+import com.undercover.network.protocol.ProtocolMessage;
+import com.undercover.network.protocol.ProtocolMessage.PlayerInfo;
+import com.undercover.network.protocol.ProtocolMessage.PlayerList;
+import com.undercover.network.protocol.ProtocolMessage.TimerSync;
+import com.undercover.network.protocol.ProtocolMessage.Vote;
+import com.undercover.network.protocol.ProtocolMessage.WordSpoken;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CodecAllocBench - Octets alloues par message decode : arbre contre flux
+ *
+ * 1) arbre : JsonParser construit un JsonObject pour toute la ligne (ancien
+ *    MessageCodec.decode). Mesure sans meme construire le message type : le
+ *    cout reel de ce chemin est donc plus eleve.
+ * 2) flux : ProtocolCodec.decode lit la ligne avec un JsonReader et construit
+ *    directement le record (MessageCodec.readObject).
+ *
+ * Les octets sont lus avec com.sun.management.ThreadMXBean (thread courant).
+ * Lance par bench_codec_alloc.sh (apres ./compile.sh).
+ */
+public class CodecAllocBench {
+
+    private static final int WARMUP = 20_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Evite que le JIT supprime le decodage
+    private static int sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            System.err.println("Mesure des allocations par thread non supportee par cette JVM");
+            System.exit(1);
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        List<PlayerInfo> players = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            players.add(new PlayerInfo("id-" + i, "Joueur" + i, "192.168.1." + (10 + i), 5000 + i, 6000 + i, i == 0, true));
+        }
+        ProtocolMessage[] messages = {
+            new TimerSync(27),
+            new Vote("id-3", "id-5"),
+            new WordSpoken("id-2", "Joueur2", "pomme", 1_700_000_000_123L),
+            new PlayerList(players, 42)
+        };
+
+        System.out.printf("=== Bench allocations decodage JSON (%d decodages par message) ===%n", iterations);
+        for (ProtocolMessage message : messages) {
+            String line = ProtocolCodec.encode(message);
+            if (!message.equals(ProtocolCodec.decode(line))) {
+                System.err.println("Aller-retour incorrect pour " + message.type());
+                System.exit(1);
+            }
+            double tree = bytesPerDecode(line, iterations, true);
+            double stream = bytesPerDecode(line, iterations, false);
+            System.out.printf("%-12s %4d car. | arbre %7.0f o/msg | flux %7.0f o/msg | %4.1fx moins%n",
+                message.type(), line.length(), tree, stream, tree / Math.max(1, stream));
+        }
+    }
+
+    private static double bytesPerDecode(String line, int iterations, boolean tree) {
+        for (int i = 0; i < WARMUP; i++) {
+            decode(line, tree);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = THREADS.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            decode(line, tree);
+        }
+        long after = THREADS.getThreadAllocatedBytes(threadId);
+        return (double) (after - before) / iterations;
+    }
+
+    private static void decode(String line, boolean tree) {
+        if (tree) {
+            JsonObject obj = JsonParser.parseString(line).getAsJsonObject();
+            sink += obj.size();
+        } else {
+            sink += ProtocolCodec.decode(line).type().ordinal();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+import com.undercover.network.protocol.BinaryCodec;
+import com.undercover.network.protocol.MessageType;
+import com.undercover.network.protocol.ProtocolCodec;
+import com.undercover.network.protocol.ProtocolMessage;
+import com.undercover.network.protocol.ProtocolMessage.*;
+import com.undercover.network.protocol.WireFormat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * CodecRoundTripCheck - Aller-retour de chaque ProtocolMessage en binaire et en JSON
+ *
+ * Pour chaque message d'exemple : encodage par BinaryCodec et par
+ * ProtocolCodec, decodage des deux (directement et via WireFormat.decodeLine),
+ * puis comparaison avec le message d'origine et entre eux. Verifie aussi :
+ *   - que chaque MessageType a au moins un exemple
+ *   - les entiers extremes (>= 2^30, negatifs, MIN/MAX) et leur taille (5
+ *     octets au plus par int)
+ *   - les champs optionnels de fin de trame (readOptionalInt) : une trame d'un
+ *     pair plus ancien, sans ces champs, se decode avec la valeur 0
+ *
+ * Code de sortie non nul au premier ecart. Lance par check_codec_roundtrip.sh.
+ */
+public class CodecRoundTripCheck {
+
+    private static int checks;
+    private static int failures;
+
+    public static void main(String[] args) {
+        List<ProtocolMessage> samples = samples();
+
+        Set<MessageType> covered = EnumSet.noneOf(MessageType.class);
+        for (ProtocolMessage message : samples) {
+            covered.add(message.type());
+            roundTrip(message);
+        }
+        Set<MessageType> missing = EnumSet.complementOf(EnumSet.copyOf(covered));
+        check(missing.isEmpty(), "types sans exemple: " + missing);
+
+        checkIntSizes();
+        checkLegacyFrames();
+
+        System.out.printf("=== Aller-retour codecs : %d message(s), %d verification(s), %d echec(s) ===%n",
+            samples.size(), checks, failures);
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static void roundTrip(ProtocolMessage message) {
+        String json = ProtocolCodec.encode(message);
+        String binary = BinaryCodec.encode(message);
+        ProtocolMessage fromJson = ProtocolCodec.decode(json);
+        ProtocolMessage fromBinary = BinaryCodec.decode(binary);
+        String label = message.type() + " " + message;
+        check(message.equals(fromJson), "JSON " + label + " -> " + fromJson);
+        check(message.equals(fromBinary), "binaire " + label + " -> " + fromBinary);
+        check(fromJson != null && fromJson.equals(fromBinary), "JSON != binaire pour " + label);
+        check(message.equals(WireFormat.decodeLine(json)), "decodeLine JSON " + label);
+        check(message.equals(WireFormat.decodeLine(binary)), "decodeLine binaire " + label);
+    }
+
+    /**
+     * Un int occupe au plus 5 octets de varint, quel que soit son signe
+     */
+    private static void checkIntSizes() {
+        int[] values = {0, 1, -1, 63, -64, 1 << 30, (1 << 30) + 1, -(1 << 30) - 1, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int value : values) {
+            int frameSize = BinaryCodec.encodeFrame(new TimerSync(value)).length;
+            // version + tag + varint
+            check(frameSize - 2 <= 5, "TIMER_SYNC " + value + " : " + (frameSize - 2) + " octets de varint");
+        }
+    }
+
+    /**
+     * Trames sans les champs ajoutes en fin (protocolVersion, capabilities,
+     * version) : un message encode avec ces champs a 0 se termine par un octet
+     * 0 par champ, qu'on retire pour simuler l'ancien format
+     */
+    private static void checkLegacyFrames() {
+        legacy(new JoinRequest("Alice", "192.168.1.20", 5001, 6001, "id-a", 0, 0), 2);
+        legacy(new JoinAccepted("s-1", "Partie", "192.168.1.10", 6000, "id-a", 0, 0), 2);
+        legacy(new PlayerList(players(3), 0), 1);
+        legacy(new TurnStart("id-1", 40, 1, List.of("id-0", "id-1", "id-2"), 0), 1);
+    }
+
+    private static void legacy(ProtocolMessage message, int optionalFields) {
+        byte[] frame = BinaryCodec.encodeFrame(message);
+        for (int i = 1; i <= optionalFields; i++) {
+            check(frame[frame.length - i] == 0, message.type() + " : champ optionnel non nul en fin de trame");
+        }
+        byte[] old = Arrays.copyOf(frame, frame.length - optionalFields);
+        ProtocolMessage decoded = BinaryCodec.decodeFrame(old);
+        check(message.equals(decoded), "trame ancienne " + message.type() + " -> " + decoded);
+        String line = BinaryCodec.LINE_PREFIX + Base64.getEncoder().withoutPadding().encodeToString(old);
+        check(message.equals(WireFormat.decodeLine(line)), "ligne ancienne " + message.type());
+    }
+
+    private static List<ProtocolMessage> samples() {
+        int big = 1 << 30;
+        List<ProtocolMessage> samples = new ArrayList<>();
+        samples.add(new JoinRequest("Alice", "192.168.1.20", 5001, 6001, "id-a", 3, 0b1111));
+        samples.add(new JoinRequest("Bob", null, 0, 0, null, 0, 0));
+        samples.add(new JoinRequest("Eve", "10.0.0.1", Integer.MAX_VALUE, big, "id-e", big + 7, Integer.MIN_VALUE));
+        samples.add(new JoinAccepted("s-1", "Partie du soir", "192.168.1.10", 6000, "id-a", 3, 0b0101));
+        samples.add(new JoinAccepted("s-2", null, null, -1, null, Integer.MAX_VALUE, -big));
+        samples.add(new JoinRejected("Ce pseudo est deja utilise"));
+        samples.add(new JoinRejected(null));
+        samples.add(new PlayerLeave("id-b"));
+        samples.add(new PlayerList(players(8), 42));
+        samples.add(new PlayerList(List.of(), 0));
+        samples.add(new PlayerList(players(2), Integer.MAX_VALUE));
+        samples.add(new PlayerDelta(7, players(2), List.of("id-9", "id-0")));
+        samples.add(new PlayerDelta(big, List.of(), List.of()));
+        samples.add(new StateSnapshot(12, players(4), List.of("id-2", "id-0", "id-3", "id-1"), 2));
+        samples.add(new StateSnapshot(big + 1, List.of(), List.of(), -1));
+        samples.add(new SnapshotRequest("id-3", 11));
+        samples.add(new SnapshotRequest(null, Integer.MAX_VALUE));
+        samples.add(new GameStart("UNDERCOVER", "pomme"));
+        samples.add(new GameStart("MR_WHITE", null));
+        samples.add(new PhaseChange("VOTING"));
+        samples.add(new GameEnd("Les civils gagnent ! éè✓"));
+        samples.add(new GameNotice("id-0", "Hote", "Joueur elimine", "ELIMINATION"));
+        samples.add(new GameNotice(null, null, null, null));
+        samples.add(new WordSpoken("id-2", "Joueur2", "poire", 1_700_000_000_123L));
+        samples.add(new WordSpoken("id-2", "Joueur2", "日本", Long.MAX_VALUE));
+        samples.add(new Chat("id-1", "Joueur1", "salut", 1_700_000_000_456L));
+        samples.add(new Chat("id-1", "Joueur1", "", Long.MIN_VALUE));
+        samples.add(new Vote("id-3", "id-5"));
+        samples.add(new Vote("id-3", "id-3"));
+        samples.add(new Guess("id-4", "banane"));
+        samples.add(new TurnStart("id-1", 40, 1, List.of("id-0", "id-1", "id-2"), 5));
+        samples.add(new TurnStart("id-1", big, Integer.MAX_VALUE, List.of(), big));
+        samples.add(new TimerSync(27));
+        samples.add(new TimerSync(big));
+        samples.add(new TimerSync(Integer.MIN_VALUE));
+        samples.add(new TurnTimeout("id-2", "Joueur2"));
+        samples.add(new RoundEnd());
+        samples.add(new Ping(1_700_000_000_789L, "192.168.1.30", 6003));
+        samples.add(new Ping(0, null, 0));
+        samples.add(new Ping(-1, "10.0.0.2", Integer.MAX_VALUE));
+        samples.add(new Pong(1_700_000_000_789L));
+        return samples;
+    }
+
+    /**
+     * Joueurs avec des id et IP repetes (table de chaines du format binaire)
+     */
+    private static List<PlayerInfo> players(int count) {
+        List<PlayerInfo> players = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            players.add(new PlayerInfo("id-" + i, "Joueur" + i, i % 2 == 0 ? "192.168.1.10" : "192.168.1.11",
+                5000 + i, i == count - 1 ? (1 << 30) + i : 6000 + i, i == 0, i % 3 != 2));
+        }
+        return players;
+    }
+
+    private static void check(boolean ok, String description) {
+        checks++;
+        if (!ok) {
+            failures++;
+            System.err.println("ECHEC: " + description);
+        }
+    }
+}
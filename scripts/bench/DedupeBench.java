@@ -0,0 +1,167 @@
+import com.undercover.network.SequenceWindow;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DedupeBench - Compare les deux filtres de doublons des messages de jeu
+ *
+ * 1) ancien filtre de GameController : cle "type_playerId_timestamp" dans un
+ *    ensemble concurrent, 500 cles arbitraires retirees au-dela de 1000
+ * 2) SequenceWindow par emetteur (ReliableUdp) : plus grand seq + masque
+ *
+ * Le flux simule plusieurs pairs a haut debit (plusieurs messages par
+ * milliseconde), avec une part de datagrammes dupliques et legerement
+ * retardes. Lance par bench_dedupe.sh (apres ./compile.sh).
+ */
+public class DedupeBench {
+
+    private static final String[] TYPES = {"TIMER_SYNC", "WORD_SPOKEN", "VOTE", "PLAYER_LIST"};
+    private static final int RUNS = 5;
+
+    // Flux pre-genere : le temps de generation n'est pas mesure
+    private static int[] sender;
+    private static int[] seq;
+    private static int[] type;
+    private static long[] timestamp;
+    private static boolean[] duplicate;
+    private static String[] senderKeys;
+    private static String[] playerIds;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int peers = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        double dupRate = args.length > 2 ? Double.parseDouble(args[2]) : 0.05;
+        generate(count, peers, dupRate);
+
+        System.out.printf("=== Bench doublons (%d messages, %d pairs, %.0f%% dupliques) ===%n",
+            sender.length, peers, dupRate * 100);
+        long best = Long.MAX_VALUE;
+        int[] result = null;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            result = runLegacy();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        report("ensemble de cles (ancien)", best, result);
+
+        best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            result = runWindow(peers);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        report("SequenceWindow par pair", best, result);
+    }
+
+    /**
+     * Retourne {doublons ecartes, doublons manques, messages valides ecartes}
+     */
+    private static int[] runLegacy() {
+        Set<String> processed = ConcurrentHashMap.newKeySet();
+        int[] result = new int[3];
+        for (int i = 0; i < sender.length; i++) {
+            // TIMER_SYNC n'a pas de timestamp : l'ancien code utilisait l'heure courante
+            long ts = type[i] == 0 ? System.currentTimeMillis() : timestamp[i];
+            String msgId = TYPES[type[i]] + "_" + playerIds[sender[i]] + "_" + ts;
+            boolean fresh = processed.add(msgId);
+            if (processed.size() > 1000) {
+                Iterator<String> it = processed.iterator();
+                for (int j = 0; j < 500 && it.hasNext(); j++) {
+                    it.next();
+                    it.remove();
+                }
+            }
+            tally(result, fresh, i);
+        }
+        return result;
+    }
+
+    private static int[] runWindow(int peers) {
+        Map<String, SequenceWindow> windows = new HashMap<>();
+        for (int p = 0; p < peers; p++) {
+            windows.put(senderKeys[p], new SequenceWindow());
+        }
+        int[] result = new int[3];
+        for (int i = 0; i < sender.length; i++) {
+            boolean fresh = windows.get(senderKeys[sender[i]]).record(seq[i]);
+            tally(result, fresh, i);
+        }
+        return result;
+    }
+
+    private static void tally(int[] result, boolean fresh, int i) {
+        if (duplicate[i]) {
+            result[fresh ? 1 : 0]++;
+        } else if (!fresh) {
+            result[2]++;
+        }
+    }
+
+    private static void report(String label, long nanos, int[] result) {
+        long rate = sender.length * 1_000_000_000L / Math.max(1, nanos);
+        System.out.printf("%-28s %8d us => %10d msg/s | doublons ecartes=%d manques=%d | valides ecartes=%d%n",
+            label, nanos / 1000, rate, result[0], result[1], result[2]);
+    }
+
+    /**
+     * Tourniquet sur les pairs, 20 messages par milliseconde et par pair ;
+     * un doublon reapparait 1 a 8 messages plus tard
+     */
+    private static void generate(int count, int peers, double dupRate) {
+        Random random = new Random(42);
+        int capacity = count + count / 2 + 16;
+        sender = new int[capacity];
+        seq = new int[capacity];
+        type = new int[capacity];
+        timestamp = new long[capacity];
+        duplicate = new boolean[capacity];
+        senderKeys = new String[peers];
+        playerIds = new String[peers];
+        for (int p = 0; p < peers; p++) {
+            senderKeys[p] = "192.168.1." + (10 + p) + ":6000";
+            playerIds[p] = "player-" + p;
+        }
+
+        int[] nextSeq = new int[peers];
+        int[][] delayed = new int[16][];
+        int n = 0;
+        long base = 1_700_000_000_000L;
+        for (int i = 0; i < count; i++) {
+            int p = i % peers;
+            int s = ++nextSeq[p];
+            n = emit(n, p, s, random.nextInt(TYPES.length), base + s / 20, false);
+            if (random.nextDouble() < dupRate) {
+                int slot = (i + 1 + random.nextInt(8)) % delayed.length;
+                if (delayed[slot] == null) {
+                    delayed[slot] = new int[] {n - 1};
+                }
+            }
+            int slot = i % delayed.length;
+            if (delayed[slot] != null) {
+                int orig = delayed[slot][0];
+                n = emit(n, sender[orig], seq[orig], type[orig], timestamp[orig], true);
+                delayed[slot] = null;
+            }
+        }
+        sender = Arrays.copyOf(sender, n);
+        seq = Arrays.copyOf(seq, n);
+        type = Arrays.copyOf(type, n);
+        timestamp = Arrays.copyOf(timestamp, n);
+        duplicate = Arrays.copyOf(duplicate, n);
+    }
+
+    private static int emit(int n, int p, int s, int t, long ts, boolean dup) {
+        sender[n] = p;
+        seq[n] = s;
+        type[n] = t;
+        timestamp[n] = ts;
+        duplicate[n] = dup;
+        return n + 1;
+    }
+}
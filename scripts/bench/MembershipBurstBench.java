@@ -0,0 +1,118 @@
+import com.undercover.controller.GameController;
+import com.undercover.model.GameMessage;
+import com.undercover.model.GameSession;
+import com.undercover.model.Player;
+import com.undercover.model.Role;
+import com.undercover.network.protocol.ProtocolCodec;
+import com.undercover.network.protocol.ProtocolMessage.JoinRequest;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MembershipBurstBench - Rafale de JOIN_REQUEST sur un hote, avec et sans regroupement
+ *
+ * Un GameController hote (mode localhost, reception TCP en POLL) recoit N
+ * JOIN_REQUEST deposes d'un coup dans son inbox. Le scenario est joue deux
+ * fois : sans regroupement (setMembershipDebounceEnabled(false) : une
+ * annonce et une liste par arrivee, comme avant) puis avec la fenetre
+ * donnee. Pour chacun sont affiches les PLAYER_LIST envoyes (un datagramme
+ * par joueur) et les mises a jour de l'annonce serveur (compteurs de
+ * GameController.getMembershipStats).
+ *
+ * Les scripts de transport (canaux UDP, serveurs, annonce) sont remplaces
+ * par des bouchons par bench_membership_burst.sh : seul le traitement des
+ * JOIN par le controleur est mesure, pas le lancement de socat. Lance par
+ * bench_membership_burst.sh (apres ./compile.sh).
+ */
+public class MembershipBurstBench {
+
+    private static final String TCP_INBOX_ROOT = "/tmp/undercover_tcp_inbox";
+
+    public static void main(String[] args) throws Exception {
+        int joins = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        long debounceMs = args.length > 1 ? Long.parseLong(args[1]) : 50;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 47000;
+
+        // L'inbox TCP est un fichier : les JOIN_REQUEST y sont ecrits directement
+        System.setProperty("undercover.tcp.delivery", "poll");
+
+        PrintStream out = System.out;
+        out.printf("=== Bench rafale de JOIN_REQUEST (%d arrivees d un coup) ===%n", joins);
+        String without = run(out, joins, false, debounceMs, port);
+        String with = run(out, joins, true, debounceMs, port + 2);
+        out.println("sans regroupement : " + without);
+        out.println("avec regroupement : " + with);
+        System.exit(0);
+    }
+
+    private static String run(PrintStream out, int joins, boolean debounce, long debounceMs, int port) throws Exception {
+        PrintStream err = System.err;
+        // Les traces du controleur et des scripts masqueraient le resultat
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        GameController host = new GameController();
+        try {
+            host.setMembershipDebounceEnabled(debounce);
+            host.setMembershipDebounceMs(debounceMs);
+            CountDownLatch started = new CountDownLatch(1);
+            host.addListener(new HostStarted(started));
+            host.createServer("Hote", "Bench", port, joins + 1, true);
+            if (!started.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Le serveur n'a pas demarre sur le port " + port);
+            }
+
+            StringBuilder lines = new StringBuilder();
+            for (int i = 0; i < joins; i++) {
+                JoinRequest join = new JoinRequest("Joueur" + i, "127.0.0.1", port + 100 + i, 0, "bench-" + i, 0, 0);
+                lines.append(ProtocolCodec.encode(join)).append('\n');
+            }
+            Path inbox = Paths.get(TCP_INBOX_ROOT, String.valueOf(port));
+            Files.createDirectories(inbox);
+            long start = System.nanoTime();
+            Files.writeString(inbox.resolve("segment-0.jsonl"), lines.toString(), StandardCharsets.UTF_8);
+
+            // Tous les joueurs ajoutes, puis la fin de la derniere fenetre
+            GameSession session = host.getSession();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (session.getPlayers().size() < joins + 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            long burstMs = (System.nanoTime() - start) / 1_000_000;
+            Thread.sleep(debounceMs + 500);
+            return String.format("%s (rafale traitee en %d ms)", host.getMembershipStats(), burstMs);
+        } finally {
+            host.shutdown();
+            System.setOut(out);
+            System.setErr(err);
+        }
+    }
+
+    private static final class HostStarted implements GameController.GameEventListener {
+        private final CountDownLatch started;
+
+        HostStarted(CountDownLatch started) {
+            this.started = started;
+        }
+
+        @Override
+        public void onConnectionStatusChanged(boolean connected, String message) {
+            if (connected) {
+                started.countDown();
+            }
+        }
+
+        @Override public void onPlayersUpdated(List<Player> players) {}
+        @Override public void onGameStarted(Role role, String word) {}
+        @Override public void onPhaseChanged(GameSession.State state) {}
+        @Override public void onMessageReceived(GameMessage message) {}
+        @Override public void onGameEnded(String message) {}
+    }
+}
@@ -0,0 +1,23 @@
+#!/bin/bash
+# =============================================================================
+# BENCH CODEC ALLOC - Octets alloues par message JSON decode
+# =============================================================================
+# 1) arbre : JsonParser -> JsonObject (ancien decodage)
+# 2) flux : JsonReader -> record ProtocolMessage (ProtocolCodec.decode)
+# Messages mesures : TIMER_SYNC, VOTE, WORD_SPOKEN, PLAYER_LIST (8 joueurs).
+# =============================================================================
+# Usage : bench_codec_alloc.sh [nb_decodages]
+# Prerequis : ./compile.sh (les classes sont lues dans target/classes)
+# =============================================================================
+
+ROOT_DIR="$(cd "$(dirname "$0")/../.." && pwd)"
+BENCH_DIR="$ROOT_DIR/scripts/bench"
+GSON_JAR="$ROOT_DIR/lib/gson/gson-2.10.1.jar"
+
+if [ ! -f "$ROOT_DIR/target/classes/com/undercover/network/protocol/ProtocolCodec.class" ]; then
+    echo "Classes introuvables : lancer ./compile.sh d abord" >&2
+    exit 1
+fi
+
+# Lanceur "fichier source" de Java 11+ : pas de compilation separee du bench
+java -cp "$ROOT_DIR/target/classes:$GSON_JAR" "$BENCH_DIR/CodecAllocBench.java" "${1:-200000}"
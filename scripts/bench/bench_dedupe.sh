@@ -0,0 +1,24 @@
+#!/bin/bash
+# =============================================================================
+# BENCH DEDUPE - Compare les deux filtres de doublons des messages de jeu
+# =============================================================================
+# 1) ancien filtre : une chaine "type_playerId_timestamp" par message,
+#    gardee dans un ensemble de 1000 cles
+# 2) SequenceWindow : plus grand seq + masque de 64 bits par pair
+# Affiche le debit (messages/s), les doublons ecartes ou manques, et les
+# messages valides ecartes a tort (meme type, joueur et milliseconde).
+# =============================================================================
+# Usage : bench_dedupe.sh [nb_messages] [nb_pairs] [taux_doublons]
+# Prerequis : ./compile.sh (les classes sont lues dans target/classes)
+# =============================================================================
+
+ROOT_DIR="$(cd "$(dirname "$0")/../.." && pwd)"
+BENCH_DIR="$ROOT_DIR/scripts/bench"
+
+if [ ! -f "$ROOT_DIR/target/classes/com/undercover/network/SequenceWindow.class" ]; then
+    echo "Classes introuvables : lancer ./compile.sh d abord" >&2
+    exit 1
+fi
+
+# Lanceur "fichier source" de Java 11+ : pas de compilation separee du bench
+java -cp "$ROOT_DIR/target/classes" "$BENCH_DIR/DedupeBench.java" "${1:-1000000}" "${2:-8}" "${3:-0.05}"
@@ -0,0 +1,42 @@
+#!/bin/bash
+# =============================================================================
+# BENCH MEMBERSHIP BURST - Rafale de JOIN_REQUEST sur un hote
+# =============================================================================
+# Depose N JOIN_REQUEST d un coup dans l inbox TCP d un hote (mode localhost,
+# reception POLL), une fois sans regroupement (un envoi par JOIN, comme
+# avant) puis avec la fenetre donnee. Affiche les PLAYER_LIST envoyes et les mises a jour de
+# l annonce serveur dans les deux cas.
+# Les scripts de transport sont remplaces par des bouchons (copie de
+# scripts/network dans un dossier temporaire) : la mesure ne depend ni de
+# socat ni du reseau.
+# =============================================================================
+# Usage : bench_membership_burst.sh [nb_joueurs] [fenetre_ms] [port_tcp]
+# Prerequis : ./compile.sh (les classes sont lues dans target/classes)
+# =============================================================================
+
+ROOT_DIR="$(cd "$(dirname "$0")/../.." && pwd)"
+BENCH_DIR="$ROOT_DIR/scripts/bench"
+GSON_JAR="$ROOT_DIR/lib/gson/gson-2.10.1.jar"
+
+if [ ! -f "$ROOT_DIR/target/classes/com/undercover/controller/GameController.class" ]; then
+    echo "Classes introuvables : lancer ./compile.sh d abord" >&2
+    exit 1
+fi
+
+# -----------------------------------------------------------------------------
+# TRANSPORT SIMULE
+# -----------------------------------------------------------------------------
+# Le controleur cherche scripts/network dans le dossier courant. Les scripts
+# qui tiennent un canal ouvert lisent leur stdin sans rien envoyer.
+# -----------------------------------------------------------------------------
+SIM_DIR="$(mktemp -d)"
+trap 'rm -rf "$SIM_DIR"' EXIT
+mkdir -p "$SIM_DIR/scripts"
+cp -r "$ROOT_DIR/scripts/network" "$SIM_DIR/scripts/"
+for script in udp_channel.sh udp_server.sh tcp_server.sh broadcast_server.sh broadcast_localhost.sh; do
+    printf '#!/bin/bash\nexec cat > /dev/null\n' > "$SIM_DIR/scripts/network/$script"
+done
+cd "$SIM_DIR" || exit 1
+
+# Lanceur "fichier source" de Java 11+ : pas de compilation separee du bench
+java -cp "$ROOT_DIR/target/classes:$GSON_JAR" "$BENCH_DIR/MembershipBurstBench.java" "${1:-30}" "${2:-50}" "${3:-47000}"
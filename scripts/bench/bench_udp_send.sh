@@ -0,0 +1,78 @@
+#!/bin/bash
+# =============================================================================
+# BENCH UDP SEND - Compare les deux chemins d envoi UDP
+# =============================================================================
+# 1) send_udp.sh : un processus bash + socat/nc par message (ancien chemin)
+# 2) udp_channel.sh : un seul processus, les messages passent par un pipe
+# Affiche le nombre de messages par seconde pour chaque chemin.
+# =============================================================================
+# Usage : bench_udp_send.sh [nb_messages] [port_cible]
+# =============================================================================
+
+COUNT="${1:-200}"
+TARGET_PORT="${2:-6999}"
+TARGET_IP="127.0.0.1"
+NETWORK_DIR="$(cd "$(dirname "$0")/../network" && pwd)"
+MESSAGE='{"type":"TIMER_SYNC","remainingSeconds":30}'
+
+# -----------------------------------------------------------------------------
+# now_us : temps courant en microsecondes
+# -----------------------------------------------------------------------------
+# $EPOCHREALTIME (bash 5) ne lance aucun processus, contrairement a date
+# On retire le separateur decimal (point ou virgule selon la locale)
+# -----------------------------------------------------------------------------
+now_us() {
+    local t="${EPOCHREALTIME/[.,]/}"
+    echo "$t"
+}
+
+# -----------------------------------------------------------------------------
+# RECEPTEUR : compte les messages recus (optionnel, pour verifier la perte)
+# -----------------------------------------------------------------------------
+RECV_FILE="$(mktemp)"
+bash "$NETWORK_DIR/udp_server.sh" "$TARGET_PORT" > "$RECV_FILE" &
+RECV_PID=$!
+sleep 0.5
+
+cleanup() {
+    kill "$RECV_PID" 2>/dev/null
+    rm -f "$RECV_FILE"
+}
+trap cleanup EXIT
+
+report() {
+    local label="$1" start="$2" end="$3"
+    local elapsed=$((end - start))
+    [ "$elapsed" -le 0 ] && elapsed=1
+    local rate=$((COUNT * 1000000 / elapsed))
+    printf '%-28s %6d msgs en %8d us  => %7d msg/s\n' "$label" "$COUNT" "$elapsed" "$rate"
+}
+
+echo "=== Bench envoi UDP ($COUNT messages vers $TARGET_IP:$TARGET_PORT) ==="
+
+# -----------------------------------------------------------------------------
+# 1) UN PROCESSUS PAR MESSAGE
+# -----------------------------------------------------------------------------
+start=$(now_us)
+for ((i = 0; i < COUNT; i++)); do
+    bash "$NETWORK_DIR/send_udp.sh" "$TARGET_IP" "$TARGET_PORT" "$MESSAGE" > /dev/null
+done
+end=$(now_us)
+report "send_udp.sh (fork/msg)" "$start" "$end"
+sleep 0.5
+forked_received=$(wc -l < "$RECV_FILE")
+: > "$RECV_FILE"
+
+# -----------------------------------------------------------------------------
+# 2) CANAL PERSISTANT
+# -----------------------------------------------------------------------------
+start=$(now_us)
+for ((i = 0; i < COUNT; i++)); do
+    echo "$MESSAGE"
+done | bash "$NETWORK_DIR/udp_channel.sh" "$TARGET_IP" "$TARGET_PORT"
+end=$(now_us)
+report "udp_channel.sh (pipe)" "$start" "$end"
+sleep 0.5
+channel_received=$(wc -l < "$RECV_FILE")
+
+echo "Messages recus : fork/msg=$forked_received  pipe=$channel_received"
@@ -0,0 +1,111 @@
+#!/bin/bash
+# =============================================================================
+# CHECK BROADCAST KEEPALIVE - Les annonceurs survivent a un hote inactif
+# =============================================================================
+# Lance broadcast_localhost.sh et broadcast_server.sh avec un stdin ouvert
+# mais muet (comme Java entre deux changements) pendant plus de MAX_INTERVAL
+# secondes, puis verifie :
+#   - que les deux scripts tournent encore
+#   - que broadcast_localhost.sh a reecrit son annonce (rappel periodique)
+#   - qu une mise a jour "<joueurs><TAB><version>" est prise en compte
+#   - que la fermeture de stdin arrete les scripts et retire l annonce locale
+# broadcast_server.sh n a pas besoin de socat ici : un envoi rate n arrete
+# pas la boucle. Code de sortie non nul si une verification echoue.
+# =============================================================================
+# Usage : check_broadcast_keepalive.sh [duree_inactive_secondes]
+# =============================================================================
+
+ROOT_DIR="$(cd "$(dirname "$0")/../.." && pwd)"
+NETWORK_DIR="$ROOT_DIR/scripts/network"
+IDLE_SECONDS="${1:-8}"              # > MAX_INTERVAL (5 s) des deux scripts
+PORT="$((59000 + $$ % 500))"        # Port fictif : seul le nom du fichier compte
+SERVER_FILE="/tmp/undercover_servers.d/$PORT.json"
+
+WORK_DIR="$(mktemp -d)"
+LOCAL_PID=""
+LAN_PID=""
+FAILURES=0
+
+cleanup() {
+    exec 3>&- 4>&- 2>/dev/null
+    [ -n "$LOCAL_PID" ] && kill "$LOCAL_PID" 2>/dev/null
+    [ -n "$LAN_PID" ] && kill "$LAN_PID" 2>/dev/null
+    rm -rf "$WORK_DIR"
+}
+trap cleanup EXIT
+
+check() {
+    local description="$1"
+    shift
+    if "$@"; then
+        echo "OK    : $description"
+    else
+        echo "ECHEC : $description" >&2
+        FAILURES=$((FAILURES + 1))
+    fi
+}
+
+# Champ numerique "nom" de l annonce locale (vide si absente)
+announce_field() {
+    local line=""
+    [ -f "$SERVER_FILE" ] && IFS= read -r line < "$SERVER_FILE"
+    [[ "$line" =~ \"$1\":([0-9]+) ]] && echo "${BASH_REMATCH[1]}"
+}
+
+is_alive() {
+    kill -0 "$1" 2>/dev/null
+}
+
+is_stopped() {
+    ! kill -0 "$1" 2>/dev/null
+}
+
+# -----------------------------------------------------------------------------
+# LANCEMENT : stdin = pipe nomme garde ouvert par ce script (fd 3 et 4)
+# -----------------------------------------------------------------------------
+mkfifo "$WORK_DIR/local.in" "$WORK_DIR/lan.in"
+
+bash "$NETWORK_DIR/broadcast_localhost.sh" "$PORT" KeepaliveCheck 8 1 1 \
+    < "$WORK_DIR/local.in" > /dev/null 2>&1 &
+LOCAL_PID=$!
+exec 3> "$WORK_DIR/local.in"
+
+bash "$NETWORK_DIR/broadcast_server.sh" 127.0.0.1 "$PORT" KeepaliveCheck 8 1 1 127.255.255.255 127.0.0.1 \
+    < "$WORK_DIR/lan.in" > /dev/null 2>&1 &
+LAN_PID=$!
+exec 4> "$WORK_DIR/lan.in"
+
+sleep 1
+FIRST_TIMESTAMP="$(announce_field timestamp)"
+check "annonce locale ecrite au demarrage" [ -n "$FIRST_TIMESTAMP" ]
+
+# -----------------------------------------------------------------------------
+# HOTE INACTIF : aucune ligne sur stdin pendant IDLE_SECONDS
+# -----------------------------------------------------------------------------
+sleep "$IDLE_SECONDS"
+check "broadcast_localhost.sh toujours actif apres ${IDLE_SECONDS}s sans changement" is_alive "$LOCAL_PID"
+check "broadcast_server.sh toujours actif apres ${IDLE_SECONDS}s sans changement" is_alive "$LAN_PID"
+LAST_TIMESTAMP="$(announce_field timestamp)"
+check "annonce locale reecrite pendant l inactivite" [ "${LAST_TIMESTAMP:-0}" -gt "${FIRST_TIMESTAMP:-0}" ]
+
+# -----------------------------------------------------------------------------
+# MISE A JOUR : prise en compte tout de suite
+# -----------------------------------------------------------------------------
+printf '3\t7\n' >&3
+printf '3\t7\n' >&4
+sleep 0.5
+check "mise a jour appliquee (version 7)" [ "$(announce_field version)" = "7" ]
+check "mise a jour appliquee (3 joueurs)" [ "$(announce_field currentPlayers)" = "3" ]
+check "broadcast_server.sh toujours actif apres une mise a jour" is_alive "$LAN_PID"
+
+# -----------------------------------------------------------------------------
+# ARRET : fermer stdin arrete les scripts
+# -----------------------------------------------------------------------------
+exec 3>&- 4>&-
+sleep 1
+check "broadcast_localhost.sh arrete a la fermeture de stdin" is_stopped "$LOCAL_PID"
+check "broadcast_server.sh arrete a la fermeture de stdin" is_stopped "$LAN_PID"
+check "annonce locale retiree a l arret" [ ! -f "$SERVER_FILE" ]
+
+echo "=== Annonceurs : $FAILURES echec(s) ==="
+[ "$FAILURES" -eq 0 ]
@@ -0,0 +1,24 @@
+#!/bin/bash
+# =============================================================================
+# CHECK CODEC ROUNDTRIP - Aller-retour binaire / JSON de chaque ProtocolMessage
+# =============================================================================
+# Encode chaque message d'exemple avec BinaryCodec et ProtocolCodec, decode
+# les deux et verifie qu'ils redonnent le message d'origine. Couvre aussi les
+# entiers >= 2^30 et les trames d'anciens pairs sans champs de fin.
+# Code de sortie non nul si une verification echoue.
+# =============================================================================
+# Usage : check_codec_roundtrip.sh
+# Prerequis : ./compile.sh (les classes sont lues dans target/classes)
+# =============================================================================
+
+ROOT_DIR="$(cd "$(dirname "$0")/../.." && pwd)"
+BENCH_DIR="$ROOT_DIR/scripts/bench"
+GSON_JAR="$ROOT_DIR/lib/gson/gson-2.10.1.jar"
+
+if [ ! -f "$ROOT_DIR/target/classes/com/undercover/network/protocol/BinaryCodec.class" ]; then
+    echo "Classes introuvables : lancer ./compile.sh d abord" >&2
+    exit 1
+fi
+
+# Lanceur "fichier source" de Java 11+ : pas de compilation separee
+java -cp "$ROOT_DIR/target/classes:$GSON_JAR" "$BENCH_DIR/CodecRoundTripCheck.java"
@@ -0,0 +1,80 @@
+#!/bin/bash
+# =============================================================================
+# CHECK MULTICAST LOOPBACK - Decouverte multicast sur un seul PC
+# =============================================================================
+# Lance discovery_listener.sh puis broadcast_server.sh en mode multicast sur
+# l interface loopback (UNDERCOVER_DISCOVERY_MODE=multicast,
+# UNDERCOVER_MCAST_IFACES=127.0.0.1) et verifie qu une ligne SERVER_ANNOUNCE
+# de cette partie arrive avant le delai.
+# Code de sortie : 0 si l annonce arrive (ou si socat est absent : test
+# ignore), 1 sinon.
+# =============================================================================
+# Usage : check_multicast_loopback.sh [delai_secondes]
+# Prerequis : socat, et le multicast active sur lo :
+#   sudo ip link set lo multicast on
+#   sudo ip route add 239.0.0.0/8 dev lo
+# =============================================================================
+
+ROOT_DIR="$(cd "$(dirname "$0")/../.." && pwd)"
+NETWORK_DIR="$ROOT_DIR/scripts/network"
+TIMEOUT="${1:-8}"
+DISCOVERY_PORT="5555"               # Port fixe de broadcast_server.sh
+SESSION_NAME="MulticastCheck$$"     # Nom unique : ignore les autres parties du LAN
+
+if ! command -v socat &>/dev/null; then
+    echo "socat introuvable : test multicast ignore"
+    exit 0
+fi
+
+export UNDERCOVER_DISCOVERY_MODE=multicast
+export UNDERCOVER_MCAST_IFACES=127.0.0.1
+
+OUTPUT_FILE="$(mktemp)"
+LISTENER_PID=""
+SERVER_PID=""
+
+# -----------------------------------------------------------------------------
+# NETTOYAGE
+# -----------------------------------------------------------------------------
+# bash ne traite SIGTERM qu a la fin de la commande en cours : on tue d abord
+# le socat du listener (son pipeline se termine), puis le listener lui-meme
+# -----------------------------------------------------------------------------
+cleanup() {
+    [ -n "$SERVER_PID" ] && kill "$SERVER_PID" 2>/dev/null
+    if [ -n "$LISTENER_PID" ]; then
+        pkill -P "$LISTENER_PID" 2>/dev/null
+        kill "$LISTENER_PID" 2>/dev/null
+    fi
+    pkill -P $$ 2>/dev/null
+    rm -f "$OUTPUT_FILE"
+}
+trap cleanup EXIT
+
+bash "$NETWORK_DIR/discovery_listener.sh" "$DISCOVERY_PORT" > "$OUTPUT_FILE" 2>/dev/null &
+LISTENER_PID=$!
+
+# Laisser le listener s abonner au groupe avant la premiere annonce
+sleep 0.5
+
+# stdin garde ouvert par sleep : broadcast_server.sh s arrete quand il se ferme
+sleep "$((TIMEOUT + 1))" | bash "$NETWORK_DIR/broadcast_server.sh" \
+    127.0.0.1 5000 "$SESSION_NAME" 8 1 1 "" 127.0.0.1 2>/dev/null &
+SERVER_PID=$!
+
+# -----------------------------------------------------------------------------
+# ATTENTE DE L ANNONCE
+# -----------------------------------------------------------------------------
+deadline=$((SECONDS + TIMEOUT))
+while [ "$SECONDS" -lt "$deadline" ]; do
+    if grep -q "\"name\":\"$SESSION_NAME\"" "$OUTPUT_FILE" 2>/dev/null; then
+        echo "OK : SERVER_ANNOUNCE recu en multicast sur loopback"
+        grep -m 1 "\"name\":\"$SESSION_NAME\"" "$OUTPUT_FILE"
+        exit 0
+    fi
+    sleep 0.2
+done
+
+echo "ECHEC : aucun SERVER_ANNOUNCE de $SESSION_NAME en ${TIMEOUT}s" >&2
+echo "Verifier que lo accepte le multicast (sudo ip link set lo multicast on ;" >&2
+echo "sudo ip route add 239.0.0.0/8 dev lo)" >&2
+exit 1
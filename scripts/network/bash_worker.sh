@@ -0,0 +1,60 @@
+#!/bin/bash
+# =============================================================================
+# BASH WORKER - Interpreteur bash "chaud" reutilise par Java
+# =============================================================================
+# Au lieu de lancer un nouveau bash pour chaque script ponctuel
+# (send_tcp.sh, listen_localhost.sh, get_local_ip.sh...), Java garde
+# quelques workers ouverts et leur envoie des commandes sur stdin.
+# =============================================================================
+# Usage : bash_worker.sh <marqueur_de_fin>
+#
+# Protocole (stdin) : champs separes par un octet NUL (\0)
+#   <nom_script>\0<nb_args>\0<arg1>\0<arg2>\0...
+# Reponse (stdout) : la sortie du script, puis une ligne
+#   <marqueur_de_fin> <code_retour>
+# =============================================================================
+
+END_MARKER="${1:-__UNDERCOVER_END__}"
+
+# Les scripts sont cherches dans le dossier de ce worker
+cd "$(dirname "$0")" || exit 1
+
+# -----------------------------------------------------------------------------
+# BOUCLE PRINCIPALE
+# -----------------------------------------------------------------------------
+# read -d '' : lit jusqu au prochain octet NUL (et non jusqu au newline),
+#   les arguments peuvent donc contenir des espaces, guillemets, etc.
+# Si stdin est ferme (Java arrete le worker), read echoue et on sort.
+# -----------------------------------------------------------------------------
+while IFS= read -r -d '' script; do
+    IFS= read -r -d '' argc || exit 0
+
+    args=()
+    for ((i = 0; i < argc; i++)); do
+        IFS= read -r -d '' arg || exit 0
+        args+=("$arg")
+    done
+
+    # -------------------------------------------------------------------------
+    # EXECUTION DANS UN SOUS-SHELL
+    # -------------------------------------------------------------------------
+    # ( ... ) : sous-shell, les "exit" et variables du script n affectent pas
+    #   le worker. C est un fork, mais sans exec d un nouveau bash.
+    # set -- : remplace $1 $2 ... par les arguments recus
+    # source : execute le script dans ce sous-shell
+    # < /dev/null : le script ne doit pas lire nos commandes sur stdin
+    # -------------------------------------------------------------------------
+    case "$script" in
+        ""|*/*)
+            echo '{"error":"Invalid script name","success":false}'
+            code=127
+            ;;
+        *)
+            ( set -- "${args[@]}"; source "./$script" ) < /dev/null 2>&1
+            code=$?
+            ;;
+    esac
+
+    # Marqueur de fin sur sa propre ligne (la sortie peut ne pas finir par \n)
+    printf '\n%s %d\n' "$END_MARKER" "$code"
+done
@@ -3,10 +3,13 @@
 # BROADCAST LOCALHOST - Annonce du serveur pour le mode local
 # =============================================================================
 # Ce script permet de jouer avec plusieurs instances sur le meme PC.
-# Au lieu d envoyer en UDP sur le reseau, on ecrit dans un fichier partage.
-# Chaque instance peut lire ce fichier pour voir les parties disponibles.
+# Au lieu d envoyer en UDP sur le reseau, chaque serveur ecrit son annonce
+# dans SON fichier : /tmp/undercover_servers.d/<port>.json.
+# Les autres instances listent ce dossier pour voir les parties disponibles.
 # =============================================================================
-# Usage : broadcast_localhost.sh <port> <nom_session> <max_joueurs> <joueurs_actuels> [noms_joueurs]
+# Usage : broadcast_localhost.sh <port> <nom_session> <max_joueurs> <joueurs_actuels> [version]
+# Entree : mises a jour "<joueurs_actuels><TAB><version>" sur stdin
+#          (fermer stdin arrete le script)
 # =============================================================================
 
 # -----------------------------------------------------------------------------
@@ -18,19 +21,26 @@ SERVER_PORT="${1:-5000}"        # Port TCP du serveur de jeu
 SESSION_NAME="${2:-Game}"       # Nom de la partie (affiche dans la liste)
 MAX_PLAYERS="${3:-8}"           # Nombre max de joueurs
 CURRENT_PLAYERS="${4:-0}"       # Nombre actuel de joueurs
-PLAYER_NAMES="${5:-}"           # Liste des pseudos (separes par des virgules)
+ANNOUNCE_VERSION="${5:-1}"      # Version de l etat annonce (incrementee par Java)
 
-INTERVAL="2"                     # Intervalle entre chaque annonce (secondes)
+# Intervalle entre deux annonces : MIN_INTERVAL juste apres un changement,
+# puis double a chaque annonce sans changement jusqu a MAX_INTERVAL
+MIN_INTERVAL="1"
+MAX_INTERVAL="5"
+INTERVAL="$MIN_INTERVAL"
 
 # -----------------------------------------------------------------------------
-# FICHIERS PARTAGES
+# REGISTRE : UN FICHIER PAR SERVEUR
 # -----------------------------------------------------------------------------
-# /tmp est un repertoire temporaire accessible par tous les utilisateurs.
-# On y stocke la liste des serveurs decouverts.
-# Le fichier .lock sert a eviter les ecritures simultanees (voir flock).
+# Chaque serveur n ecrit que son propre fichier : pas de verrou, pas de
+# relecture des autres entrees, le cout d une annonce ne depend pas du nombre
+# d instances locales.
+# La date de modification du fichier (mtime) sert de battement de coeur :
+# un fichier non reecrit depuis 15 secondes est un serveur mort.
 # -----------------------------------------------------------------------------
-REGISTRY_FILE="/tmp/undercover_servers.json"
-LOCK_FILE="/tmp/undercover_servers.lock"
+REGISTRY_DIR="/tmp/undercover_servers.d"
+SERVER_FILE="$REGISTRY_DIR/$SERVER_PORT.json"
+mkdir -p "$REGISTRY_DIR" 2>/dev/null
 
 # -----------------------------------------------------------------------------
 # FONCTION : create_announcement
@@ -40,117 +50,67 @@ LOCK_FILE="/tmp/undercover_servers.lock"
 # %d = entier, %s = chaine
 # -----------------------------------------------------------------------------
 create_announcement() {
-    local timestamp=$(date +%s)   # Timestamp Unix (secondes depuis 1970)
-    printf '{"type":"SERVER_ANNOUNCE","ip":"127.0.0.1","port":%d,"name":"%s","maxPlayers":%d,"currentPlayers":%d,"playerNames":"%s","timestamp":%d}' \
-        "$SERVER_PORT" "$SESSION_NAME" "$MAX_PLAYERS" "$CURRENT_PLAYERS" "$PLAYER_NAMES" "$timestamp"
+    local timestamp
+    printf -v timestamp '%(%s)T' -1   # Timestamp Unix, sans lancer "date"
+    printf '{"type":"SERVER_ANNOUNCE","ip":"127.0.0.1","port":%d,"name":"%s","maxPlayers":%d,"currentPlayers":%d,"version":%d,"timestamp":%d}' \
+        "$SERVER_PORT" "$SESSION_NAME" "$MAX_PLAYERS" "$CURRENT_PLAYERS" "$ANNOUNCE_VERSION" "$timestamp"
+}
+
+# -----------------------------------------------------------------------------
+# FONCTION : wait_for_update
+# -----------------------------------------------------------------------------
+# Remplace le "sleep" entre deux annonces : Java garde l entree standard
+# ouverte et y ecrit une ligne "<joueurs_actuels><TAB><version>" quand
+# l etat de la partie change. Le script n est donc plus relance a chaque JOIN.
+#
+# read -t INTERVAL : attend une ligne au plus INTERVAL secondes
+#   code 0     : changement recu, l annonce suivante part tout de suite et
+#                l intervalle revient a MIN_INTERVAL
+#   code > 128 : delai ecoule sans changement, l intervalle double
+#   autre      : stdin ferme (Java arrete l annonce), on retourne 1
+# -----------------------------------------------------------------------------
+wait_for_update() {
+    local update count version rc
+    # Code de retour garde tout de suite : apres un if sans else dont la
+    # condition a echoue, $? vaut 0
+    IFS= read -r -t "$INTERVAL" update
+    rc=$?
+    if [ "$rc" -eq 0 ]; then
+        IFS=$'\t' read -r count version <<< "$update"
+        if [[ "$count" =~ ^[0-9]+$ ]]; then
+            CURRENT_PLAYERS="$count"
+        fi
+        if [[ "$version" =~ ^[0-9]+$ ]]; then
+            ANNOUNCE_VERSION="$version"
+        fi
+        INTERVAL="$MIN_INTERVAL"
+        return 0
+    fi
+    [ "$rc" -gt 128 ] || return 1
+    INTERVAL=$((INTERVAL * 2))
+    [ "$INTERVAL" -gt "$MAX_INTERVAL" ] && INTERVAL="$MAX_INTERVAL"
+    return 0
 }
 
 # -----------------------------------------------------------------------------
 # FONCTION : register_server
 # -----------------------------------------------------------------------------
-# Enregistre le serveur dans le fichier JSON partage.
-# Gere aussi le nettoyage des anciennes entrees (> 10 secondes).
+# Reecrit notre fichier (ce qui met aussi a jour son mtime).
+# Fonction + redirection (sans $(...)) : aucun processus lance.
+# Un lecteur qui tombe sur le fichier en cours d ecriture l ignore pour
+# cette passe ; l annonce precedente reste valable jusqu a son expiration.
 # -----------------------------------------------------------------------------
 register_server() {
-    local announcement=$(create_announcement)
-    
-    # -------------------------------------------------------------------------
-    # SECTION CRITIQUE avec flock
-    # -------------------------------------------------------------------------
-    # ( ... ) 200>"$LOCK_FILE" : ouvre le fichier de lock sur le descripteur 200
-    # flock -x 200 : prend un verrou exclusif sur ce descripteur
-    #   -x = exclusive (un seul processus a la fois)
-    # Si un autre processus a deja le verrou, on attend qu il le libere.
-    # Cela evite les corruptions si 2 scripts ecrivent en meme temps.
-    # -------------------------------------------------------------------------
-    (
-        flock -x 200 2>/dev/null || true   # On ignore si flock echoue
-        
-        local current_time=$(date +%s)
-        local new_content="["
-        local first=true
-        
-        # ---------------------------------------------------------------------
-        # LECTURE ET FILTRAGE DES ANCIENNES ENTREES
-        # ---------------------------------------------------------------------
-        # grep -oP '\{[^{}]*\}' : extrait chaque objet JSON du fichier
-        #   -o : affiche seulement ce qui matche
-        #   -P : regex Perl
-        #   \{[^{}]*\} : un { suivi de caracteres non-accolade, puis }
-        # ---------------------------------------------------------------------
-        if [ -f "$REGISTRY_FILE" ]; then
-            while IFS= read -r entry; do
-                if [ -n "$entry" ]; then
-                    # Extraire le port et le timestamp de l entree
-                    local entry_port=$(echo "$entry" | grep -oP '"port"\s*:\s*\K\d+' 2>/dev/null)
-                    local entry_ts=$(echo "$entry" | grep -oP '"timestamp"\s*:\s*\K\d+' 2>/dev/null)
-                    
-                    if [ -n "$entry_port" ] && [ -n "$entry_ts" ]; then
-                        local age=$((current_time - entry_ts))
-                        # ---------------------------------------------------------
-                        # On garde l entree si :
-                        #   - Ce n est pas notre propre port (on va la remplacer)
-                        #   - Elle a moins de 10 secondes (sinon c est un serveur mort)
-                        # ---------------------------------------------------------
-                        if [ "$entry_port" != "$SERVER_PORT" ] && [ $age -lt 10 ]; then
-                            if [ "$first" = true ]; then
-                                first=false
-                            else
-                                new_content+=","
-                            fi
-                            new_content+="$entry"
-                        fi
-                    fi
-                fi
-            done < <(grep -oP '\{[^{}]*\}' "$REGISTRY_FILE" 2>/dev/null)
-        fi
-        
-        # ---------------------------------------------------------------------
-        # AJOUTER NOTRE ANNONCE
-        # ---------------------------------------------------------------------
-        if [ "$first" = true ]; then
-            new_content+="$announcement"
-        else
-            new_content+=",$announcement"
-        fi
-        new_content+="]"
-        
-        # Ecrire le nouveau contenu dans le fichier
-        echo "$new_content" > "$REGISTRY_FILE"
-        
-    ) 200>"$LOCK_FILE" 2>/dev/null
+    { create_announcement; echo; } > "$SERVER_FILE" 2>/dev/null
 }
 
 # -----------------------------------------------------------------------------
 # FONCTION : cleanup
 # -----------------------------------------------------------------------------
-# Appelee quand le script se termine.
-# Retire notre serveur du fichier (les autres restent).
+# Appelee quand le script se termine : on retire notre fichier.
 # -----------------------------------------------------------------------------
 cleanup() {
-    (
-        flock -x 200 2>/dev/null || true
-        if [ -f "$REGISTRY_FILE" ]; then
-            local new_content="["
-            local first=true
-            while IFS= read -r entry; do
-                if [ -n "$entry" ]; then
-                    local entry_port=$(echo "$entry" | grep -oP '"port"\s*:\s*\K\d+' 2>/dev/null)
-                    # On garde toutes les entrees SAUF la notre
-                    if [ -n "$entry_port" ] && [ "$entry_port" != "$SERVER_PORT" ]; then
-                        if [ "$first" = true ]; then
-                            first=false
-                        else
-                            new_content+=","
-                        fi
-                        new_content+="$entry"
-                    fi
-                fi
-            done < <(grep -oP '\{[^{}]*\}' "$REGISTRY_FILE" 2>/dev/null)
-            new_content+="]"
-            echo "$new_content" > "$REGISTRY_FILE"
-        fi
-    ) 200>"$LOCK_FILE" 2>/dev/null
+    rm -f "$SERVER_FILE" 2>/dev/null
     exit 0
 }
 
@@ -162,10 +122,11 @@ trap cleanup SIGTERM SIGINT EXIT
 # -----------------------------------------------------------------------------
 # BOUCLE PRINCIPALE
 # -----------------------------------------------------------------------------
-# Enregistre le serveur toutes les INTERVAL secondes.
+# Enregistre le serveur a chaque changement, puis toutes les INTERVAL secondes.
 # Le script tourne indefiniment jusqu a etre tue.
 # -----------------------------------------------------------------------------
 while true; do
     register_server
-    sleep "$INTERVAL"
+    # Attendre avant la prochaine annonce (ou une mise a jour de Java)
+    wait_for_update || exit 0
 done
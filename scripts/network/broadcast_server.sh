@@ -6,7 +6,18 @@
 # Tous les autres PC du reseau local peuvent recevoir ces paquets.
 # Cela permet aux joueurs de decouvrir les parties disponibles.
 # =============================================================================
-# Usage : broadcast_server.sh <ip> <port> <nom_session> <max_joueurs> <joueurs_actuels> [noms_joueurs]
+# Usage : broadcast_server.sh <ip> <port> <nom_session> <max_joueurs> <joueurs_actuels> [version]
+#                            [broadcast_ip] [interfaces_multicast]
+#   broadcast_ip / interfaces_multicast : releves par Java (NetworkEnvironment),
+#   le script ne sonde le reseau lui-meme que s ils sont absents
+# Entree : mises a jour "<joueurs_actuels><TAB><version>" sur stdin
+#          (fermer stdin arrete le script)
+# Environnement (exporte par Java, voir NetworkBridge.DiscoveryMode) :
+#   UNDERCOVER_DISCOVERY_MODE : broadcast (defaut) | multicast | both
+#   UNDERCOVER_MCAST_GROUP    : groupe multicast (defaut 239.255.42.99)
+#   UNDERCOVER_MCAST_TTL      : nombre de routeurs traverses (defaut 1 = LAN)
+#   UNDERCOVER_MCAST_IFACES   : adresses IPv4 des interfaces d envoi,
+#                               separees par des virgules (defaut : toutes)
 # =============================================================================
 
 # -----------------------------------------------------------------------------
@@ -17,27 +28,77 @@ SERVER_PORT="${2:-5000}"         # Port TCP du serveur de jeu
 SESSION_NAME="${3:-Game}"        # Nom de la partie
 MAX_PLAYERS="${4:-8}"            # Nombre max de joueurs
 CURRENT_PLAYERS="${5:-0}"        # Nombre actuel de joueurs
-PLAYER_NAMES="${6:-}"            # Liste des pseudos (virgules)
+ANNOUNCE_VERSION="${6:-1}"       # Version de l etat annonce (incrementee par Java)
+BROADCAST_ARG="${7:-}"           # Adresse de broadcast (vide = calculee ici)
+MCAST_IFACES_ARG="${8:-}"        # IP des interfaces, separees par des virgules
 
 # -----------------------------------------------------------------------------
 # CONFIGURATION DU BROADCAST
 # -----------------------------------------------------------------------------
 # BROADCAST_PORT : port UDP sur lequel on envoie les annonces
 #                  tous les clients ecoutent sur ce port
-# INTERVAL : frequence d envoi des annonces (toutes les 5 secondes)
+# MIN_INTERVAL / MAX_INTERVAL : apres un changement, l annonce part tout de
+#   suite, puis l intervalle double (1, 2, 4, 5, 5... secondes) tant que rien
+#   ne change. Les clients gardent un serveur 15 secondes sans annonce.
 # -----------------------------------------------------------------------------
 BROADCAST_PORT="5555"
-INTERVAL="1"
+DISCOVERY_MODE="${UNDERCOVER_DISCOVERY_MODE:-broadcast}"
+MCAST_GROUP="${UNDERCOVER_MCAST_GROUP:-239.255.42.99}"
+MCAST_TTL="${UNDERCOVER_MCAST_TTL:-1}"
+MIN_INTERVAL="1"
+MAX_INTERVAL="5"
+INTERVAL="$MIN_INTERVAL"
 
 # -----------------------------------------------------------------------------
 # FONCTION : create_announcement
 # -----------------------------------------------------------------------------
-# Cree le message JSON d annonce.
+# Cree le message JSON d annonce dans MESSAGE (printf -v : ni sous-shell
+# ni "date" lance a chaque annonce).
 # Contient toutes les infos necessaires pour qu un client puisse se connecter.
+# Les pseudos n y sont plus : le client les demande a l hote (STATUS_QUERY)
+# quand il en a besoin, "version" lui indique si sa copie est a jour.
 # -----------------------------------------------------------------------------
 create_announcement() {
-    local timestamp=$(date +%s)   # Timestamp pour detecter les serveurs "morts"
-    echo "{\"type\":\"SERVER_ANNOUNCE\",\"ip\":\"$SERVER_IP\",\"port\":$SERVER_PORT,\"name\":\"$SESSION_NAME\",\"maxPlayers\":$MAX_PLAYERS,\"currentPlayers\":$CURRENT_PLAYERS,\"playerNames\":\"$PLAYER_NAMES\",\"timestamp\":$timestamp}"
+    local timestamp
+    printf -v timestamp '%(%s)T' -1   # Timestamp Unix, sans lancer "date"
+    printf -v MESSAGE '{"type":"SERVER_ANNOUNCE","ip":"%s","port":%d,"name":"%s","maxPlayers":%d,"currentPlayers":%d,"version":%d,"timestamp":%d}' \
+        "$SERVER_IP" "$SERVER_PORT" "$SESSION_NAME" "$MAX_PLAYERS" "$CURRENT_PLAYERS" "$ANNOUNCE_VERSION" "$timestamp"
+}
+
+# -----------------------------------------------------------------------------
+# FONCTION : wait_for_update
+# -----------------------------------------------------------------------------
+# Remplace le "sleep" entre deux annonces : Java garde l entree standard
+# ouverte et y ecrit une ligne "<joueurs_actuels><TAB><version>" quand
+# l etat de la partie change. Le script n est donc plus relance a chaque JOIN.
+#
+# read -t INTERVAL : attend une ligne au plus INTERVAL secondes
+#   code 0     : changement recu, l annonce suivante part tout de suite et
+#                l intervalle revient a MIN_INTERVAL
+#   code > 128 : delai ecoule sans changement, l intervalle double
+#   autre      : stdin ferme (Java arrete l annonce), on retourne 1
+# -----------------------------------------------------------------------------
+wait_for_update() {
+    local update count version rc
+    # Code de retour garde tout de suite : apres un if sans else dont la
+    # condition a echoue, $? vaut 0
+    IFS= read -r -t "$INTERVAL" update
+    rc=$?
+    if [ "$rc" -eq 0 ]; then
+        IFS=$'\t' read -r count version <<< "$update"
+        if [[ "$count" =~ ^[0-9]+$ ]]; then
+            CURRENT_PLAYERS="$count"
+        fi
+        if [[ "$version" =~ ^[0-9]+$ ]]; then
+            ANNOUNCE_VERSION="$version"
+        fi
+        INTERVAL="$MIN_INTERVAL"
+        return 0
+    fi
+    [ "$rc" -gt 128 ] || return 1
+    INTERVAL=$((INTERVAL * 2))
+    [ "$INTERVAL" -gt "$MAX_INTERVAL" ] && INTERVAL="$MAX_INTERVAL"
+    return 0
 }
 
 # -----------------------------------------------------------------------------
@@ -65,31 +126,107 @@ get_broadcast_ip() {
     echo "$brd"
 }
 
+# -----------------------------------------------------------------------------
+# FONCTION : get_multicast_ifaces
+# -----------------------------------------------------------------------------
+# Adresses IPv4 des interfaces actives (hors loopback) : une annonce
+# multicast part sur chacune, les joueurs de tous les reseaux locaux la
+# recoivent (un broadcast ne sort que sur une seule interface).
+# Ordre : UNDERCOVER_MCAST_IFACES (choix de l utilisateur), puis la liste
+# passee par Java, puis "ip addr" en dernier recours.
+#   ip -4 -o addr show up : une ligne par adresse IPv4
+#   awk '{print $4}'      : "192.168.1.10/24"
+#   ${addr%/*}            : retire le masque
+# -----------------------------------------------------------------------------
+get_multicast_ifaces() {
+    if [ -n "$UNDERCOVER_MCAST_IFACES" ]; then
+        echo "${UNDERCOVER_MCAST_IFACES//,/ }"
+        return
+    fi
+    if [ -n "$MCAST_IFACES_ARG" ]; then
+        echo "${MCAST_IFACES_ARG//,/ }"
+        return
+    fi
+    local addr list=""
+    for addr in $(ip -4 -o addr show up 2>/dev/null | awk '{print $4}'); do
+        addr="${addr%/*}"
+        [[ "$addr" == 127.* ]] && continue
+        list+="$addr "
+    done
+    echo "$list"
+}
+
+# -----------------------------------------------------------------------------
+# FONCTION : send_multicast
+# -----------------------------------------------------------------------------
+# Envoie l annonce au groupe multicast, une fois par interface.
+#   ip-multicast-ttl  : 1 = ne pas depasser le premier routeur
+#   ip-multicast-if   : interface de sortie
+#   ip-multicast-loop : les instances de ce PC recoivent aussi l annonce
+# Sans interface connue (PC hors reseau), le noyau choisit la sortie :
+# avec UNDERCOVER_MCAST_IFACES=127.0.0.1 on teste tout en local.
+# -----------------------------------------------------------------------------
+send_multicast() {
+    local message="$1" iface
+    if [ -z "$MCAST_IFACES" ]; then
+        echo "$message" | socat - UDP4-DATAGRAM:$MCAST_GROUP:$BROADCAST_PORT,ip-multicast-ttl=$MCAST_TTL,ip-multicast-loop=1 2>/dev/null
+        return
+    fi
+    for iface in $MCAST_IFACES; do
+        echo "$message" | socat - UDP4-DATAGRAM:$MCAST_GROUP:$BROADCAST_PORT,ip-multicast-ttl=$MCAST_TTL,ip-multicast-if=$iface,ip-multicast-loop=1 2>/dev/null
+    done
+}
+
 # -----------------------------------------------------------------------------
 # CALCUL DE L ADRESSE BROADCAST
 # -----------------------------------------------------------------------------
-BROADCAST_IP=$(get_broadcast_ip)
+# Adresse fournie par Java : pas de "ip addr | grep ..." a chaque lancement
+BROADCAST_IP="$BROADCAST_ARG"
+[ -z "$BROADCAST_IP" ] && BROADCAST_IP=$(get_broadcast_ip)
 
 # Si on n a pas trouve d adresse, on utilise le broadcast global
 # 255.255.255.255 = broadcast sur tous les reseaux (peut etre bloque par routeurs)
 [ -z "$BROADCAST_IP" ] && BROADCAST_IP="255.255.255.255"
 
+# Interfaces multicast calculees une seule fois (pas de "ip addr" par annonce)
+MCAST_IFACES=""
+if [ "$DISCOVERY_MODE" != "broadcast" ]; then
+    MCAST_IFACES=$(get_multicast_ifaces)
+fi
+
 # Debug : afficher les parametres
 echo "=== Broadcast Server ===" >&2
 echo "IP Serveur: $SERVER_IP" >&2
 echo "Port: $SERVER_PORT" >&2
 echo "Broadcast IP: $BROADCAST_IP" >&2
 echo "Broadcast Port: $BROADCAST_PORT" >&2
+echo "Mode: $DISCOVERY_MODE" >&2
+[ "$DISCOVERY_MODE" != "broadcast" ] && echo "Multicast: $MCAST_GROUP (ttl $MCAST_TTL) via ${MCAST_IFACES:-defaut}" >&2
 echo "========================" >&2
 
 # -----------------------------------------------------------------------------
 # BOUCLE D ANNONCE
 # -----------------------------------------------------------------------------
-# On envoie le message toutes les INTERVAL secondes, indefiniment.
+# On envoie le message a chaque changement, puis toutes les INTERVAL secondes.
 # Le script tourne jusqu a etre tue (quand le serveur ferme).
 # -----------------------------------------------------------------------------
 while true; do
-    MESSAGE=$(create_announcement)
+    create_announcement
+    
+    # -------------------------------------------------------------------------
+    # ENVOI MULTICAST (modes multicast et both)
+    # -------------------------------------------------------------------------
+    # Seules les machines abonnees au groupe recoivent le paquet.
+    # Le multicast demande socat (netcat ne sait pas choisir l interface/TTL).
+    # -------------------------------------------------------------------------
+    if [ "$DISCOVERY_MODE" != "broadcast" ] && command -v socat &>/dev/null; then
+        send_multicast "$MESSAGE"
+        if [ "$DISCOVERY_MODE" = "multicast" ]; then
+            wait_for_update || exit 0
+            continue
+        fi
+    fi
+    
     SENT=false
     
     # -------------------------------------------------------------------------
@@ -114,6 +251,6 @@ while true; do
         echo "$MESSAGE" | nc -u -w 1 "$BROADCAST_IP" "$BROADCAST_PORT" 2>/dev/null
     fi
     
-    # Attendre avant la prochaine annonce
-    sleep "$INTERVAL"
+    # Attendre avant la prochaine annonce (ou une mise a jour de Java)
+    wait_for_update || exit 0
 done
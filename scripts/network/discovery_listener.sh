@@ -0,0 +1,117 @@
+#!/bin/bash
+# =============================================================================
+# DISCOVERY LISTENER - Ecoute continue des annonces de serveurs (LAN)
+# =============================================================================
+# Remplace les scans ponctuels de listen_servers.sh pour l ecran "Rejoindre" :
+# un seul processus reste ouvert tant que la decouverte est active, et chaque
+# SERVER_ANNOUNCE recu est recopie sur stdout (une ligne = une annonce).
+# Java tient le registre des serveurs (DiscoveryRegistry) et retire ceux qui
+# n annoncent plus rien.
+#
+# Avantage : plus de socat relance toutes les secondes, donc plus d annonces
+# perdues entre deux relances, et l annonce arrive a Java des sa reception.
+# =============================================================================
+# Usage : discovery_listener.sh [port] [interfaces_multicast]
+#   interfaces_multicast : IP separees par des virgules, relevees par Java
+# Sortie : une ligne JSON SERVER_ANNOUNCE par annonce recue
+# Environnement : UNDERCOVER_DISCOVERY_MODE (broadcast | multicast | both),
+#   UNDERCOVER_MCAST_GROUP, UNDERCOVER_MCAST_IFACES (voir broadcast_server.sh)
+#
+# Test multicast sur un seul PC (loopback) :
+#   sudo ip link set lo multicast on
+#   sudo ip route add 239.0.0.0/8 dev lo
+#   puis UNDERCOVER_DISCOVERY_MODE=multicast UNDERCOVER_MCAST_IFACES=127.0.0.1
+#   pour l hote et pour les joueurs
+# =============================================================================
+
+LISTEN_PORT="${1:-5555}"        # Port UDP des annonces (meme que broadcast_server.sh)
+MCAST_IFACES_ARG="${2:-}"       # Interfaces multicast (vide = calculees ici)
+DISCOVERY_MODE="${UNDERCOVER_DISCOVERY_MODE:-broadcast}"
+MCAST_GROUP="${UNDERCOVER_MCAST_GROUP:-239.255.42.99}"
+
+# -----------------------------------------------------------------------------
+# NETTOYAGE
+# -----------------------------------------------------------------------------
+# pkill -P $$ : tue socat/nc lances par ce script quand Java l arrete
+# -----------------------------------------------------------------------------
+cleanup() {
+    pkill -P $$ 2>/dev/null
+    exit 0
+}
+trap cleanup SIGTERM SIGINT EXIT
+
+# -----------------------------------------------------------------------------
+# FILTRE : ne transmettre que les annonces
+# -----------------------------------------------------------------------------
+# [[ == *motif* ]] est interne a bash : aucun grep lance par annonce
+# -----------------------------------------------------------------------------
+forward_announces() {
+    local line
+    while IFS= read -r line; do
+        [[ "$line" == *SERVER_ANNOUNCE* ]] && echo "$line"
+    done
+}
+
+# -----------------------------------------------------------------------------
+# FONCTION : get_multicast_ifaces
+# -----------------------------------------------------------------------------
+# Adresses IPv4 des interfaces actives (hors loopback), ou la liste donnee
+# par UNDERCOVER_MCAST_IFACES, sinon celle passee par Java. On s abonne au
+# groupe sur chacune : les annonces de tous les reseaux locaux arrivent.
+# -----------------------------------------------------------------------------
+get_multicast_ifaces() {
+    if [ -n "$UNDERCOVER_MCAST_IFACES" ]; then
+        echo "${UNDERCOVER_MCAST_IFACES//,/ }"
+        return
+    fi
+    if [ -n "$MCAST_IFACES_ARG" ]; then
+        echo "${MCAST_IFACES_ARG//,/ }"
+        return
+    fi
+    local addr list=""
+    for addr in $(ip -4 -o addr show up 2>/dev/null | awk '{print $4}'); do
+        addr="${addr%/*}"
+        [[ "$addr" == 127.* ]] && continue
+        list+="$addr "
+    done
+    echo "$list"
+}
+
+# -----------------------------------------------------------------------------
+# OPTIONS DE RECEPTION
+# -----------------------------------------------------------------------------
+# reuseaddr : plusieurs instances sur le meme PC recoivent les annonces
+# ip-add-membership=<groupe>:<interface> : abonnement au groupe multicast
+#   (0.0.0.0 = interface choisie par le noyau).
+# La socket reste liee a 0.0.0.0:port : en mode multicast elle recoit aussi
+# les broadcasts des hotes restes en mode broadcast.
+# -----------------------------------------------------------------------------
+RECV_OPTS="reuseaddr"
+if [ "$DISCOVERY_MODE" != "broadcast" ]; then
+    MCAST_IFACES=$(get_multicast_ifaces)
+    for iface in ${MCAST_IFACES:-0.0.0.0}; do
+        RECV_OPTS+=",ip-add-membership=$MCAST_GROUP:$iface"
+    done
+fi
+
+# -----------------------------------------------------------------------------
+# SOCAT (prefere)
+# -----------------------------------------------------------------------------
+# UDP-RECV:port : recoit tous les datagrammes sur le port, sans jamais se
+#   fermer (contrairement a "timeout 1 socat" dans listen_servers.sh)
+# RECV_OPTS : voir ci-dessus (reuseaddr, abonnements multicast)
+# -----------------------------------------------------------------------------
+if command -v socat &> /dev/null; then
+    socat -u UDP4-RECV:$LISTEN_PORT,$RECV_OPTS - 2>/dev/null | forward_announces
+    exit 0
+fi
+
+# -----------------------------------------------------------------------------
+# NETCAT (nc) - fallback
+# -----------------------------------------------------------------------------
+# nc -u -l se ferme apres le premier emetteur : on le relance en boucle
+# (pas d abonnement multicast possible : broadcast uniquement)
+# -----------------------------------------------------------------------------
+while true; do
+    nc -u -l -p "$LISTEN_PORT" 2>/dev/null | forward_announces
+done
@@ -13,12 +13,13 @@
 # =============================================================================
 
 # -----------------------------------------------------------------------------
-# FICHIER FIFO (pipe nomme) pour transmettre les messages a Java
+# DOSSIER D INBOX de l instance qui ecoute
 # -----------------------------------------------------------------------------
-# /tmp/undercover_tcp_inbox_PORT est lu en continu par BashExecutor
-# Chaque message recu est ecrit ici, et Java le lit.
+# UNDERCOVER_TCP_INBOX est exporte par tcp_server.sh :
+# /tmp/undercover_tcp_inbox/<port> (un dossier par instance locale)
+# Il contient le pipe nomme (mode push) ou le fichier d inbox (mode poll).
 # -----------------------------------------------------------------------------
-INBOX_DIR="/tmp/undercover_tcp_inbox"
+INBOX_DIR="${UNDERCOVER_TCP_INBOX:-/tmp/undercover_tcp_inbox}"
 mkdir -p "$INBOX_DIR"
 
 # Lire le message du client (une ligne JSON)
@@ -34,19 +35,83 @@ if [ -z "$message" ]; then
 fi
 
 # -----------------------------------------------------------------------------
-# ECRIRE LE MESSAGE DANS LE FICHIER D INBOX
+# STATUS_QUERY : DETAILS DE LA PARTIE A LA DEMANDE
 # -----------------------------------------------------------------------------
-# On ajoute un timestamp unique pour eviter les collisions
-# Le fichier est un fichier texte simple, chaque ligne = un message JSON
-# Java lit ce fichier periodiquement
+# Les annonces SERVER_ANNOUNCE ne contiennent plus les pseudos. Un client qui
+# veut les details envoie {"type":"STATUS_QUERY"} : on repond directement
+# avec status.json (ecrit par Java a chaque changement), sans passer par Java.
+# [[ == *motif* ]] et read < fichier sont internes a bash : aucun fork.
 # -----------------------------------------------------------------------------
-INBOX_FILE="$INBOX_DIR/messages.jsonl"
+if [[ "$message" == *'"type":"STATUS_QUERY"'* ]]; then
+    status=""
+    [ -f "$INBOX_DIR/status.json" ] && IFS= read -r status < "$INBOX_DIR/status.json"
+    if [ -n "$status" ]; then
+        echo "$status"
+    else
+        echo '{"success":false,"error":"No status"}'
+    fi
+    exit 0
+fi
+
+# -----------------------------------------------------------------------------
+# HORODATAGE DE RECEPTION
+# -----------------------------------------------------------------------------
+# $EPOCHREALTIME (bash 5) : temps en secondes avec microsecondes, sans fork.
+# On le place devant le message (separe par une tabulation) pour que Java
+# mesure le delai entre la reception ici et le traitement cote Java.
+# -----------------------------------------------------------------------------
+RECEIVED_AT="$EPOCHREALTIME"
 
-# flock pour eviter les ecritures concurrentes
-(
-    flock -x 200 2>/dev/null || true
-    echo "$message" >> "$INBOX_FILE"
-) 200>"$INBOX_DIR/.lock" 2>/dev/null
+# -----------------------------------------------------------------------------
+# MODE PUSH : ECRIRE DANS LE PIPE NOMME DE tcp_server.sh
+# -----------------------------------------------------------------------------
+# -p "$FIFO" : vrai si le fichier existe et est un pipe nomme
+# Le verrou evite que deux clients melangent leurs lignes dans le pipe
+# (un write n est atomique que jusqu a 4096 octets).
+# -----------------------------------------------------------------------------
+if [ -n "$UNDERCOVER_TCP_FIFO" ] && [ -p "$UNDERCOVER_TCP_FIFO" ]; then
+    (
+        flock -x 200 2>/dev/null || true
+        printf '%s\t%s\n' "$RECEIVED_AT" "$message" > "$UNDERCOVER_TCP_FIFO"
+    ) 200>"$INBOX_DIR/.lock" 2>/dev/null
+else
+    # -------------------------------------------------------------------------
+    # MODE POLL : JOURNAL SEGMENTE
+    # -------------------------------------------------------------------------
+    # Les messages sont ajoutes a segment-<n>.jsonl (une ligne = un message).
+    # Quand le segment courant depasse SEGMENT_MAX_BYTES, on passe au
+    # suivant. Java supprime chaque segment une fois lu en entier : le disque
+    # utilise reste borne quelle que soit la duree de la partie.
+    #
+    # segment.state contient "<numero_segment> <taille_en_octets>".
+    # read et ${#var} sont des commandes internes de bash : aucun fork
+    # (pas de stat, wc...) pour savoir quand changer de segment.
+    # -------------------------------------------------------------------------
+    SEGMENT_MAX_BYTES="${UNDERCOVER_INBOX_SEGMENT_BYTES:-65536}"
+    STATE_FILE="$INBOX_DIR/segment.state"
+
+    # flock pour eviter les ecritures concurrentes
+    (
+        flock -x 200 2>/dev/null || true
+
+        segment=0
+        size=0
+        [ -f "$STATE_FILE" ] && read -r segment size < "$STATE_FILE"
+
+        line="$RECEIVED_AT"$'\t'"$message"
+        # LC_ALL=C : ${#line} compte les octets et non les caracteres UTF-8
+        LC_ALL=C
+        line_bytes=$(( ${#line} + 1 ))
+
+        if [ "$size" -gt 0 ] && [ $((size + line_bytes)) -gt "$SEGMENT_MAX_BYTES" ]; then
+            segment=$((segment + 1))
+            size=0
+        fi
+
+        printf '%s\n' "$line" >> "$INBOX_DIR/segment-$segment.jsonl"
+        echo "$segment $((size + line_bytes))" > "$STATE_FILE"
+    ) 200>"$INBOX_DIR/.lock" 2>/dev/null
+fi
 
 # -----------------------------------------------------------------------------
 # ENVOYER LA CONFIRMATION AU CLIENT
@@ -6,8 +6,10 @@
 # Quand un serveur annonce sa presence, on l ajoute a la liste des serveurs.
 # A la fin du timeout, on retourne la liste complete en JSON.
 # =============================================================================
-# Usage : listen_servers.sh [timeout_seconds]
+# Usage : listen_servers.sh [timeout_seconds] [interfaces_multicast]
 # Output : JSON des serveurs decouverts
+# Environnement : UNDERCOVER_DISCOVERY_MODE, UNDERCOVER_MCAST_GROUP,
+#   UNDERCOVER_MCAST_IFACES (voir broadcast_server.sh)
 # =============================================================================
 
 # -----------------------------------------------------------------------------
@@ -15,7 +17,35 @@
 # -----------------------------------------------------------------------------
 LISTEN_PORT="5555"               # Port UDP sur lequel ecouter (meme que broadcast)
 TIMEOUT="${1:-3}"                # Duree d ecoute en secondes (defaut: 3)
+MCAST_IFACES_ARG="${2:-}"        # IP des interfaces (relevees par Java), separees par des virgules
 OUTPUT_FILE="/tmp/discovered_lan_servers.json"   # Fichier temporaire
+DISCOVERY_MODE="${UNDERCOVER_DISCOVERY_MODE:-broadcast}"
+MCAST_GROUP="${UNDERCOVER_MCAST_GROUP:-239.255.42.99}"
+
+# -----------------------------------------------------------------------------
+# ABONNEMENT MULTICAST (modes multicast et both)
+# -----------------------------------------------------------------------------
+# ip-add-membership=<groupe>:<interface> pour chaque interface active
+# (hors loopback), ou celles de UNDERCOVER_MCAST_IFACES, ou celles passees par
+# Java ; 0.0.0.0 si aucune
+# -----------------------------------------------------------------------------
+RECV_OPTS="reuseaddr"
+if [ "$DISCOVERY_MODE" != "broadcast" ]; then
+    if [ -n "$UNDERCOVER_MCAST_IFACES" ]; then
+        MCAST_IFACES="${UNDERCOVER_MCAST_IFACES//,/ }"
+    elif [ -n "$MCAST_IFACES_ARG" ]; then
+        MCAST_IFACES="${MCAST_IFACES_ARG//,/ }"
+    else
+        MCAST_IFACES=""
+        for addr in $(ip -4 -o addr show up 2>/dev/null | awk '{print $4}'); do
+            addr="${addr%/*}"
+            [[ "$addr" == 127.* ]] || MCAST_IFACES+="$addr "
+        done
+    fi
+    for iface in ${MCAST_IFACES:-0.0.0.0}; do
+        RECV_OPTS+=",ip-add-membership=$MCAST_GROUP:$iface"
+    done
+fi
 
 # -----------------------------------------------------------------------------
 # INITIALISATION
@@ -109,11 +139,12 @@ while [ $(date +%s) -lt $timeout_end ]; do
     # SOCAT (prefere)
     # -------------------------------------------------------------------------
     # socat -u : mode unidirectionnel (recevoir seulement)
-    # UDP-RECV:port,reuseaddr : ecouter sur ce port, reutiliser l adresse si occupee
+    # UDP4-RECV:port,reuseaddr : ecouter sur ce port, reutiliser l adresse si occupee
+    #   (+ abonnements multicast de RECV_OPTS)
     # - : ecrire sur stdout
     # -------------------------------------------------------------------------
     if command -v socat &>/dev/null; then
-        message=$(timeout 1 socat -u UDP-RECV:$LISTEN_PORT,reuseaddr - 2>/dev/null)
+        message=$(timeout 1 socat -u UDP4-RECV:$LISTEN_PORT,$RECV_OPTS - 2>/dev/null)
     fi
     
     # -------------------------------------------------------------------------
@@ -0,0 +1,70 @@
+#!/bin/bash
+# =============================================================================
+# PROBE NETWORK - Releve unique de l environnement reseau
+# =============================================================================
+# Remplace get_local_ip.sh pour Java : un seul passage recupere l IP locale,
+# les interfaces IPv4 actives avec leur adresse de broadcast, et les outils
+# disponibles (socat, nc). Java (NetworkEnvironment) garde le resultat en
+# cache et le passe en arguments aux scripts, qui n ont plus a refaire
+# "ip addr" / "ip route" a chaque creation ou connexion.
+# =============================================================================
+# Usage : probe_network.sh
+# Sortie : une ligne JSON
+#   {"localIp":"192.168.1.50",
+#    "interfaces":[{"name":"eth0","ip":"192.168.1.50","broadcast":"192.168.1.255"}],
+#    "socat":true,"nc":false}
+# =============================================================================
+
+LOCAL_IP=""
+INTERFACES=""
+
+# -----------------------------------------------------------------------------
+# IP LOCALE : route vers Internet
+# -----------------------------------------------------------------------------
+# "ip route get 8.8.8.8" : "8.8.8.8 via 192.168.1.1 dev eth0 src 192.168.1.50"
+# [[ =~ ]] et BASH_REMATCH : extraction interne a bash (pas de grep)
+# -----------------------------------------------------------------------------
+route=$(ip route get 8.8.8.8 2>/dev/null)
+if [[ "$route" =~ src\ ([0-9.]+) ]]; then
+    LOCAL_IP="${BASH_REMATCH[1]}"
+fi
+
+# -----------------------------------------------------------------------------
+# INTERFACES IPv4 ACTIVES
+# -----------------------------------------------------------------------------
+# ip -4 -o addr show up : une ligne par adresse
+#   "2: eth0    inet 192.168.1.50/24 brd 192.168.1.255 scope global eth0 ..."
+# On ignore le loopback. Les interfaces docker restent dans la liste mais
+# sont marquees : Java ne les choisit pas pour le broadcast.
+# -----------------------------------------------------------------------------
+while read -r _ name _ cidr rest; do
+    addr="${cidr%/*}"
+    [[ "$addr" == 127.* ]] && continue
+    brd=""
+    if [[ "$rest" =~ brd\ ([0-9.]+) ]]; then
+        brd="${BASH_REMATCH[1]}"
+    fi
+    [ -n "$INTERFACES" ] && INTERFACES+=","
+    INTERFACES+="{\"name\":\"${name%:}\",\"ip\":\"$addr\",\"broadcast\":\"$brd\"}"
+    [ -z "$LOCAL_IP" ] && LOCAL_IP="$addr"
+done < <(ip -4 -o addr show up 2>/dev/null)
+
+# -----------------------------------------------------------------------------
+# FALLBACK : hostname -I (systemes sans "ip"), puis localhost
+# -----------------------------------------------------------------------------
+if [ -z "$LOCAL_IP" ]; then
+    read -r LOCAL_IP _ < <(hostname -I 2>/dev/null)
+fi
+[ -z "$LOCAL_IP" ] && LOCAL_IP="127.0.0.1"
+
+# -----------------------------------------------------------------------------
+# OUTILS DISPONIBLES
+# -----------------------------------------------------------------------------
+# command -v est interne a bash : aucun processus lance
+# -----------------------------------------------------------------------------
+HAS_SOCAT=false
+HAS_NC=false
+command -v socat &>/dev/null && HAS_SOCAT=true
+command -v nc &>/dev/null && HAS_NC=true
+
+echo "{\"localIp\":\"$LOCAL_IP\",\"interfaces\":[$INTERFACES],\"socat\":$HAS_SOCAT,\"nc\":$HAS_NC}"
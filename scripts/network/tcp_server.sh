@@ -7,19 +7,41 @@
 # Le protocole utilise est : longueur (4 octets big-endian) + message JSON.
 # Utilise pour les connexions initiales (JOIN) et les messages critiques.
 # =============================================================================
-# Usage : tcp_server.sh <port>
+# Usage : tcp_server.sh <port> [push|poll]
+#   push (defaut) : chaque message recu est ecrit sur stdout, lu par Java
+#   poll          : les messages sont ajoutes au fichier d inbox (ancien mode)
 # =============================================================================
 
 # -----------------------------------------------------------------------------
-# ARGUMENT
+# ARGUMENTS
 # -----------------------------------------------------------------------------
 LISTEN_PORT="$1"
+DELIVERY_MODE="${2:-push}"
 
 if [ -z "$LISTEN_PORT" ]; then
-    echo "Usage: tcp_server.sh <port>"
+    echo "Usage: tcp_server.sh <port> [push|poll]"
     exit 1
 fi
 
+# -----------------------------------------------------------------------------
+# INBOX PROPRE A CETTE INSTANCE
+# -----------------------------------------------------------------------------
+# Plusieurs instances peuvent tourner sur le meme PC (mode localhost) :
+# chacune a son dossier, identifie par son port d ecoute.
+# export : la variable est heritee par socat puis par handle_tcp_client.sh
+# -----------------------------------------------------------------------------
+export UNDERCOVER_TCP_INBOX="/tmp/undercover_tcp_inbox/$LISTEN_PORT"
+mkdir -p "$UNDERCOVER_TCP_INBOX"
+
+# -----------------------------------------------------------------------------
+# MODE PUSH : PIPE NOMME (FIFO)
+# -----------------------------------------------------------------------------
+# Chaque connexion est geree par un handle_tcp_client.sh different (fork
+# de socat). Pour que tous remontent leurs messages jusqu a Java, ils
+# ecrivent dans un pipe nomme que ce script relit et recopie sur stdout.
+# -----------------------------------------------------------------------------
+FIFO_PATH="$UNDERCOVER_TCP_INBOX/push.fifo"
+
 # -----------------------------------------------------------------------------
 # FONCTION DE NETTOYAGE
 # -----------------------------------------------------------------------------
@@ -28,11 +50,21 @@ fi
 # -----------------------------------------------------------------------------
 cleanup() {
     pkill -P $$ 2>/dev/null
+    [ "$DELIVERY_MODE" = "push" ] && rm -f "$FIFO_PATH"
     exit 0
 }
 
 trap cleanup SIGTERM SIGINT EXIT
 
+if [ "$DELIVERY_MODE" = "push" ]; then
+    rm -f "$FIFO_PATH"
+    mkfifo "$FIFO_PATH" || exit 1
+    # <> : ouverture en lecture ET ecriture, le pipe ne voit donc jamais
+    # de fin de fichier quand un handle_tcp_client.sh se termine
+    exec 3<>"$FIFO_PATH"
+    export UNDERCOVER_TCP_FIFO="$FIFO_PATH"
+fi
+
 # -----------------------------------------------------------------------------
 # BOUCLE D ECOUTE TCP
 # -----------------------------------------------------------------------------
@@ -68,8 +100,15 @@ if command -v socat &>/dev/null; then
     socat TCP-LISTEN:$LISTEN_PORT,reuseaddr,fork EXEC:"/bin/bash $(dirname "$0")/handle_tcp_client.sh" 2>/dev/null &
     SOCAT_PID=$!
 
-    # Attendre que socat se termine
-    wait $SOCAT_PID
+    if [ "$DELIVERY_MODE" = "push" ]; then
+        # Recopier chaque message du pipe sur stdout (lu par Java sans polling)
+        while IFS= read -r line <&3; do
+            [ -n "$line" ] && echo "$line"
+        done
+    else
+        # Attendre que socat se termine
+        wait $SOCAT_PID
+    fi
 else
     # -----------------------------------------------------------------
     # NETCAT (fallback) - Mode serveur TCP basique
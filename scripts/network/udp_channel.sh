@@ -0,0 +1,52 @@
+#!/bin/bash
+# =============================================================================
+# UDP CHANNEL - Canal UDP persistant vers un pair (un processus par joueur)
+# =============================================================================
+# Contrairement a send_udp.sh (un processus bash + socat par message),
+# ce script reste ouvert pendant toute la partie.
+# Java ecrit chaque message JSON sur stdin (une ligne = un message),
+# et socat l envoie en datagramme UDP vers le pair.
+# =============================================================================
+# Usage : udp_channel.sh <ip_cible> <port_cible>
+# Entree : messages JSON sur stdin, un par ligne
+# =============================================================================
+
+# -----------------------------------------------------------------------------
+# ARGUMENTS
+# -----------------------------------------------------------------------------
+# $1 = IP de la machine destinataire (ex: 192.168.1.10)
+# $2 = port UDP sur lequel le destinataire ecoute (ex: 5556)
+# -----------------------------------------------------------------------------
+TARGET_IP="$1"
+TARGET_PORT="$2"
+
+if [ -z "$TARGET_IP" ] || [ -z "$TARGET_PORT" ]; then
+    echo "Usage: udp_channel.sh <ip> <port>" >&2
+    exit 1
+fi
+
+# -----------------------------------------------------------------------------
+# OUVERTURE DU CANAL
+# -----------------------------------------------------------------------------
+# exec : remplace le processus bash par socat (pas de bash inutile en memoire)
+#
+# socat -u : mode unidirectionnel (stdin -> UDP)
+# -b 65507 : taille max d un datagramme UDP, un message = un read = un paquet
+# - : lire depuis stdin (le pipe ouvert par Java)
+# UDP-DATAGRAM:IP:PORT : socket non connectee, les erreurs ICMP
+#   (port ferme chez le pair) ne coupent donc pas le canal
+#
+# Si plusieurs lignes arrivent dans le meme read, elles partent dans le meme
+# datagramme : udp_server.sh relit le flux ligne par ligne, donc c est sans
+# consequence.
+# -----------------------------------------------------------------------------
+if command -v socat &> /dev/null; then
+    exec socat -u -b 65507 - UDP-DATAGRAM:$TARGET_IP:$TARGET_PORT 2>/dev/null
+fi
+
+# -----------------------------------------------------------------------------
+# NETCAT (nc) - fallback
+# -----------------------------------------------------------------------------
+# nc -u sans -w : reste ouvert tant que stdin n est pas ferme
+# -----------------------------------------------------------------------------
+exec nc -u "$TARGET_IP" "$TARGET_PORT" 2>/dev/null
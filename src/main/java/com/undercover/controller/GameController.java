@@ -1,13 +1,16 @@
 package com.undercover.controller;
 
-import com.google.gson.*;
 import com.undercover.model.*;
 import com.undercover.network.*;
+import com.undercover.network.protocol.*;
+import com.undercover.network.protocol.ProtocolMessage.*;
 
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
@@ -23,7 +26,8 @@ import java.util.function.Consumer;
 public class GameController {
     
     private final NetworkBridge networkBridge;
-    private final Gson gson;
+    // Joueurs distants auxquels l'hote diffuse les messages de jeu
+    private final BroadcastGroup broadcastGroup;
     private final ExecutorService executor;
     private final ScheduledExecutorService scheduler;
     
@@ -32,6 +36,9 @@ public class GameController {
     private boolean isHost;
     private String myWord;
     
+    // Format d'envoi le plus compact autorise (le format effectif est negocie au JOIN)
+    private volatile WireFormat allowedWireFormat = WireFormat.fromSystemProperty();
+    
     // Port UDP pour les messages de jeu (separe du port TCP)
     private int gameUdpPort;
     private static final int UDP_PORT_OFFSET = 1000; // UDP = TCP + 1000
@@ -42,8 +49,20 @@ public class GameController {
     // Mots secrets
     private List<String[]> wordPairs;
     
-    // IDs des messages deja traites (pour eviter les doublons)
-    private final Set<String> processedMessageIds = ConcurrentHashMap.newKeySet();
+    // Regroupement des changements de membres (-Dundercover.membership.debounce.ms) ;
+    // -Dundercover.membership.debounce=false : un envoi par changement (ancien comportement)
+    private volatile boolean membershipDebounceEnabled =
+        !"false".equalsIgnoreCase(System.getProperty("undercover.membership.debounce"));
+    private volatile long membershipDebounceMs = Long.getLong("undercover.membership.debounce.ms", 50);
+    private final AtomicBoolean membershipUpdatePending = new AtomicBoolean();
+    private final AtomicLong membershipChanges = new AtomicLong();
+    private final AtomicLong membershipFlushes = new AtomicLong();
+    // Envois effectifs : listes de joueurs (un datagramme par joueur) et mises a jour de l'annonce
+    private final AtomicLong rosterDatagrams = new AtomicLong();
+    private final AtomicLong announcementUpdates = new AtomicLong();
+    
+    // Versions de l'etat partage (listes de joueurs, tours)
+    private volatile SessionStateSync stateSync = new SessionStateSync();
     
     // Timer de synchronisation (host uniquement)
     private ScheduledFuture<?> currentTimer;
@@ -56,7 +75,8 @@ public class GameController {
         void onPhaseChanged(GameSession.State state);
         void onMessageReceived(GameMessage message);
         void onGameEnded(String message);
-        void onServerDiscovered(List<NetworkBridge.ServerInfo> servers);
+        // Decouverte des serveurs : un evenement par serveur ajoute, modifie ou expire
+        default void onDiscoveryEvent(DiscoveryEvent event) {}
         void onConnectionStatusChanged(boolean connected, String message);
         // Nouveaux evenements pour la synchronisation des tours
         default void onTurnChanged(String currentPlayerId, int remainingSeconds, List<String> turnOrder) {}
@@ -65,10 +85,11 @@ public class GameController {
     
     public GameController() {
         this.networkBridge = new NetworkBridge();
-        this.gson = new GsonBuilder().create();
+        this.broadcastGroup = new BroadcastGroup(networkBridge);
         this.executor = Executors.newCachedThreadPool();
         this.scheduler = Executors.newScheduledThreadPool(2);
         this.listeners = new CopyOnWriteArrayList<>();
+        registerMessageHandlers();
         loadWordPairs();
     }
     
@@ -114,6 +135,8 @@ public class GameController {
     }
     
     public void createServer(String playerName, String sessionName, int port, int maxPlayers, boolean localhostMode) {
+        // L'hote ne cherche plus de parties
+        networkBridge.stopServerDiscovery();
         executor.submit(() -> {
             try {
                 String localIp;
@@ -129,30 +152,36 @@ public class GameController {
                 
                 // Creer la session
                 session = new GameSession(sessionName, localIp, port, maxPlayers);
+                stateSync = new SessionStateSync();
                 
                 // Creer le joueur local (hote)
                 localPlayer = new Player(playerName, localIp, port);
                 localPlayer.setHost(true);
                 localPlayer.setReady(true);
+                localPlayer.setProtocolVersion(Capabilities.PROTOCOL_VERSION);
+                localPlayer.setCapabilities(Capabilities.local(allowedWireFormat));
                 session.addPlayer(localPlayer);
                 
                 isHost = true;
+                updateSessionWireFormat();
                 
                 // Port UDP pour les messages de jeu (TCP port + offset)
                 gameUdpPort = port + UDP_PORT_OFFSET;
                 localPlayer.setUdpPort(gameUdpPort);
                 
-        // Demarrer le broadcast via Bash (UDP ou localhost selon le mode)
-                List<String> playerNames = new java.util.ArrayList<>();
-                playerNames.add(localPlayer.getName());
-                networkBridge.startServerBroadcast(localIp, port, sessionName, maxPlayers, 1, playerNames);
-                
                 // Demarrer l'ecoute TCP pour les connexions clients (JOIN uniquement)
                 networkBridge.startTcpServer(port, this::handleIncomingTcpMessage);
                 
                 // Demarrer l'ecoute UDP pour les messages de jeu (rapide, sans latence)
+                networkBridge.setLocalIp(localIp);
                 networkBridge.startUdpServer(gameUdpPort, this::handleIncomingGameMessage);
                 
+                // Demarrer le broadcast via Bash (UDP ou localhost selon le mode),
+                // apres le serveur TCP qui sert les details (STATUS_QUERY)
+                List<String> playerNames = new java.util.ArrayList<>();
+                playerNames.add(localPlayer.getName());
+                networkBridge.startServerBroadcast(localIp, port, sessionName, maxPlayers, 1, playerNames);
+                
                 String modeInfo = localhostMode ? " (Mode Local)" : "";
                 notifyConnectionStatus(true, "Serveur cree sur " + localIp + ":" + port + " (UDP:" + gameUdpPort + ")" + modeInfo);
                 notifyPlayersUpdated();
@@ -170,16 +199,48 @@ public class GameController {
     }
     
     public void startServerDiscovery(boolean includeLocalhost) {
-        networkBridge.startServerDiscovery(servers -> {
+        networkBridge.startServerDiscovery(event -> {
             for (GameEventListener listener : listeners) {
-                listener.onServerDiscovered(servers);
+                listener.onDiscoveryEvent(event);
             }
         }, includeLocalhost);
     }
     
+    /**
+     * Suspend la decouverte (aucun scan pendant une tentative de connexion ou une partie)
+     */
+    public void pauseServerDiscovery() {
+        networkBridge.pauseServerDiscovery();
+    }
+    
+    /**
+     * Reprend la decouverte suspendue (retour a l'ecran "Rejoindre")
+     */
+    public void resumeServerDiscovery() {
+        networkBridge.resumeServerDiscovery();
+    }
+    
+    /**
+     * Arrete la decouverte (sortie de l'ecran "Rejoindre")
+     */
+    public void stopServerDiscovery() {
+        networkBridge.stopServerDiscovery();
+    }
+    
+    /**
+     * Details d'une partie annoncee (noms des joueurs), demandes a son hote.
+     * Le resultat est null si l'hote ne repond pas.
+     */
+    public CompletableFuture<NetworkBridge.ServerInfo> queryServerStatus(NetworkBridge.ServerInfo server) {
+        return networkBridge.queryServerStatus(server);
+    }
+    
     public void joinServer(String playerName, NetworkBridge.ServerInfo server) {
         System.out.println("=== Tentative de connexion au serveur: " + server.ip + ":" + server.port);
         
+        // Pas de scan pendant la connexion : reprise si le JOIN echoue
+        networkBridge.pauseServerDiscovery();
+        
         executor.submit(() -> {
             try {
                 // Pour localhost, utiliser 127.0.0.1
@@ -194,13 +255,21 @@ public class GameController {
                 // Creer le joueur local
                 localPlayer = new Player(playerName, localIp, localPort);
                 localPlayer.setUdpPort(gameUdpPort);
+                localPlayer.setProtocolVersion(Capabilities.PROTOCOL_VERSION);
+                localPlayer.setCapabilities(Capabilities.local(allowedWireFormat));
                 isHost = false;
                 
+                stateSync = new SessionStateSync();
+                
+                // JSON jusqu'a la reponse de l'hote (capacites inconnues)
+                networkBridge.setWireFormat(WireFormat.JSON);
+                
                 // Demarrer l'ecoute TCP pour les connexions (JOIN uniquement)
                 networkBridge.startTcpServer(localPort, this::handleIncomingTcpMessage);
                 System.out.println("Client TCP server started on port " + localPort);
                 
                 // Demarrer l'ecoute UDP pour les messages de jeu
+                networkBridge.setLocalIp(localIp);
                 networkBridge.startUdpServer(gameUdpPort, this::handleIncomingGameMessage);
                 System.out.println("Client UDP server started on port " + gameUdpPort);
                 
@@ -208,13 +277,15 @@ public class GameController {
                 Thread.sleep(100);
                 
                 // Envoyer la demande de connexion
-                JsonObject joinRequest = new JsonObject();
-                joinRequest.addProperty("type", "JOIN_REQUEST");
-                joinRequest.addProperty("playerName", playerName);
-                joinRequest.addProperty("playerIp", localIp);
-                joinRequest.addProperty("playerPort", localPort);
-                joinRequest.addProperty("playerUdpPort", gameUdpPort);  // Port UDP pour les messages de jeu
-                joinRequest.addProperty("playerId", localPlayer.getId());
+                JoinRequest joinRequest = new JoinRequest(
+                    playerName,
+                    localIp,
+                    localPort,
+                    gameUdpPort,  // Port UDP pour les messages de jeu
+                    localPlayer.getId(),
+                    Capabilities.PROTOCOL_VERSION,
+                    localPlayer.getCapabilities()
+                );
                 
                 System.out.println("Envoi de JOIN_REQUEST a " + server.ip + ":" + server.port);
                 
@@ -222,18 +293,20 @@ public class GameController {
                 networkBridge.sendMessage(server.ip, server.port, joinRequest)
                     .thenAccept(response -> {
                         System.out.println("Reponse recue: " + response);
-                        if (response.has("success") && response.get("success").getAsBoolean()) {
+                        if (response.success()) {
                             // La reponse directe du socket indique que le message a ete recu
                             // Le JOIN_ACCEPTED viendra separement via handleIncomingTcpMessage
                             System.out.println("Message envoye avec succes, attente de confirmation...");
                         } else {
-                            String error = response.has("error") ? response.get("error").getAsString() : "Connexion refusee";
+                            String error = response.error() != null ? response.error() : "Connexion refusee";
                             System.out.println("Erreur: " + error);
+                            networkBridge.resumeServerDiscovery();
                             notifyConnectionStatus(false, error);
                         }
                     })
                     .exceptionally(e -> {
                         System.err.println("Erreur d'envoi: " + e.getMessage());
+                        networkBridge.resumeServerDiscovery();
                         notifyConnectionStatus(false, "Erreur de connexion: " + e.getMessage());
                         return null;
                     });
@@ -241,6 +314,7 @@ public class GameController {
             } catch (Exception e) {
                 System.err.println("Exception: " + e.getMessage());
                 e.printStackTrace();
+                networkBridge.resumeServerDiscovery();
                 notifyConnectionStatus(false, "Erreur: " + e.getMessage());
             }
         });
@@ -248,82 +322,74 @@ public class GameController {
     
     // ===== GESTION DES MESSAGES ENTRANTS =====
     
+    // Tables de dispatch indexees par type de message
+    private final Map<MessageType, Consumer<ProtocolMessage>> tcpHandlers = new EnumMap<>(MessageType.class);
+    private final Map<MessageType, Consumer<ProtocolMessage>> gameHandlers = new EnumMap<>(MessageType.class);
+    
+    private void registerMessageHandlers() {
+        tcpHandlers.put(MessageType.JOIN_REQUEST, m -> handleJoinRequest((JoinRequest) m));
+        tcpHandlers.put(MessageType.JOIN_ACCEPTED, m -> handleJoinAccepted((JoinAccepted) m));
+        tcpHandlers.put(MessageType.JOIN_REJECTED, m -> handleJoinRejected((JoinRejected) m));
+        
+        gameHandlers.put(MessageType.PLAYER_LIST, m -> handlePlayerList((PlayerList) m));
+        gameHandlers.put(MessageType.GAME_START, m -> handleGameStart((GameStart) m));
+        gameHandlers.put(MessageType.PHASE_CHANGE, m -> handlePhaseChange((PhaseChange) m));
+        gameHandlers.put(MessageType.WORD_SPOKEN, m -> handleWordSpoken((WordSpoken) m));
+        gameHandlers.put(MessageType.CHAT, m -> handleChat((Chat) m));
+        gameHandlers.put(MessageType.VOTE, m -> handleVote((Vote) m));
+        gameHandlers.put(MessageType.GAME_END, m -> handleGameEnd((GameEnd) m));
+        gameHandlers.put(MessageType.GUESS, m -> handleGuess((Guess) m));
+        gameHandlers.put(MessageType.PING, m -> handlePing((Ping) m));
+        gameHandlers.put(MessageType.GAME_MESSAGE, m -> handleGameMessage((GameNotice) m));
+        // Synchronisation des tours
+        gameHandlers.put(MessageType.TURN_START, m -> handleTurnStart((TurnStart) m));
+        gameHandlers.put(MessageType.TIMER_SYNC, m -> handleTimerSync((TimerSync) m));
+        gameHandlers.put(MessageType.TURN_TIMEOUT, m -> handleTurnTimeout((TurnTimeout) m));
+        gameHandlers.put(MessageType.ROUND_END, m -> handleRoundEnd((RoundEnd) m));
+        gameHandlers.put(MessageType.PLAYER_LEAVE, m -> handlePlayerLeave((PlayerLeave) m));
+        // Synchronisation differentielle de l'etat
+        gameHandlers.put(MessageType.PLAYER_DELTA, m -> handlePlayerDelta((PlayerDelta) m));
+        gameHandlers.put(MessageType.STATE_SNAPSHOT, m -> handleStateSnapshot((StateSnapshot) m));
+        gameHandlers.put(MessageType.SNAPSHOT_REQUEST, m -> handleSnapshotRequest((SnapshotRequest) m));
+    }
+    
     /**
      * Handler pour les messages TCP (connexions uniquement - fiable mais lent)
      */
-    private void handleIncomingTcpMessage(JsonObject message) {
-        String type = message.has("type") ? message.get("type").getAsString() : "";
-        System.out.println("[TCP] Message recu: " + type);
-        
-        switch (type) {
-            case "JOIN_REQUEST" -> handleJoinRequest(message);
-            case "JOIN_ACCEPTED" -> handleJoinAccepted(message);
-            case "JOIN_REJECTED" -> handleJoinRejected(message);
-            default -> {
-                // Si message de jeu recu en TCP (fallback), traiter quand meme
-                handleIncomingGameMessage(message);
-            }
+    private void handleIncomingTcpMessage(ProtocolMessage message) {
+        System.out.println("[TCP] Message recu: " + message.type());
+        
+        Consumer<ProtocolMessage> handler = tcpHandlers.get(message.type());
+        if (handler != null) {
+            handler.accept(message);
+        } else {
+            // Si message de jeu recu en TCP (fallback), traiter quand meme
+            handleIncomingGameMessage(message);
         }
     }
     
     /**
      * Handler pour les messages UDP (messages de jeu - rapide, sans latence)
+     * Les doublons sont deja ecartes par NetworkBridge (fenetre de seq par
+     * emetteur, voir ReliableUdp / SequenceWindow)
      */
-    private void handleIncomingGameMessage(JsonObject message) {
-        String type = message.has("type") ? message.get("type").getAsString() : "";
-        
-        // Generer un ID unique pour eviter les doublons
-        String msgId = type + "_" + 
-            (message.has("playerId") ? message.get("playerId").getAsString() : "") + "_" +
-            (message.has("timestamp") ? message.get("timestamp").getAsString() : System.currentTimeMillis());
-        
-        // Verifier si le message a deja ete traite
-        if (processedMessageIds.contains(msgId)) {
-            return;
-        }
-        processedMessageIds.add(msgId);
-        
-        // Nettoyer les anciens IDs (garder max 1000)
-        if (processedMessageIds.size() > 1000) {
-            Iterator<String> it = processedMessageIds.iterator();
-            for (int i = 0; i < 500 && it.hasNext(); i++) {
-                it.next();
-                it.remove();
-            }
-        }
-        
-        switch (type) {
-            case "PLAYER_LIST" -> handlePlayerList(message);
-            case "GAME_START" -> handleGameStart(message);
-            case "PHASE_CHANGE" -> handlePhaseChange(message);
-            case "WORD_SPOKEN" -> handleWordSpoken(message);
-            case "CHAT" -> handleChat(message);
-            case "VOTE" -> handleVote(message);
-            case "GAME_END" -> handleGameEnd(message);
-            case "GUESS" -> handleGuess(message);
-            case "PING" -> handlePing(message);
-            case "GAME_MESSAGE" -> handleGameMessage(message);
-            // Nouveaux messages pour la synchronisation des tours
-            case "TURN_START" -> handleTurnStart(message);
-            case "TIMER_SYNC" -> handleTimerSync(message);
-            case "TURN_TIMEOUT" -> handleTurnTimeout(message);
-            case "ROUND_END" -> handleRoundEnd(message);
+    private void handleIncomingGameMessage(ProtocolMessage message) {
+        Consumer<ProtocolMessage> handler = gameHandlers.get(message.type());
+        if (handler != null) {
+            handler.accept(message);
         }
     }
     
     /**
      * Gere les pings pour verifier la connexion
      */
-    private void handlePing(JsonObject message) {
+    private void handlePing(Ping message) {
         // Repondre au ping si necessaire
-        if (message.has("_senderIp") && message.has("_senderPort")) {
-            JsonObject pong = new JsonObject();
-            pong.addProperty("type", "PONG");
-            pong.addProperty("timestamp", System.currentTimeMillis());
+        if (message.senderIp() != null && message.senderPort() > 0) {
             networkBridge.sendUdpMessage(
-                message.get("_senderIp").getAsString(),
-                message.get("_senderPort").getAsInt(),
-                pong
+                message.senderIp(),
+                message.senderPort(),
+                new Pong(System.currentTimeMillis())
             );
         }
     }
@@ -331,11 +397,11 @@ public class GameController {
     /**
      * Gere les messages de jeu generiques (eliminations, egalites, etc.)
      */
-    private void handleGameMessage(JsonObject message) {
-        String senderId = message.has("senderId") ? message.get("senderId").getAsString() : "SYSTEM";
-        String senderName = message.has("senderName") ? message.get("senderName").getAsString() : "Systeme";
-        String content = message.has("content") ? message.get("content").getAsString() : "";
-        String messageType = message.has("messageType") ? message.get("messageType").getAsString() : "SYSTEM";
+    private void handleGameMessage(GameNotice message) {
+        String senderId = message.senderId() != null ? message.senderId() : "SYSTEM";
+        String senderName = message.senderName() != null ? message.senderName() : "Systeme";
+        String content = message.content() != null ? message.content() : "";
+        String messageType = message.messageType() != null ? message.messageType() : "SYSTEM";
         
         GameMessage.Type type;
         try {
@@ -350,7 +416,7 @@ public class GameController {
         }
     }
     
-    private void handleJoinRequest(JsonObject message) {
+    private void handleJoinRequest(JoinRequest message) {
         System.out.println("=== Reception JOIN_REQUEST: " + message);
         
         if (!isHost || session == null) {
@@ -358,26 +424,27 @@ public class GameController {
             return;
         }
         
-        String playerName = message.get("playerName").getAsString();
-        String playerIp = message.get("playerIp").getAsString();
-        int playerPort = message.get("playerPort").getAsInt();
-        int playerUdpPort = message.has("playerUdpPort") ? 
-            message.get("playerUdpPort").getAsInt() : playerPort + UDP_PORT_OFFSET;
-        String playerId = message.has("playerId") ? 
-            message.get("playerId").getAsString() : null;
+        String playerName = message.playerName();
+        String playerIp = message.playerIp();
+        int playerPort = message.playerPort();
+        int playerUdpPort = message.playerUdpPort() > 0 ? 
+            message.playerUdpPort() : playerPort + UDP_PORT_OFFSET;
+        String playerId = message.playerId();
+        
+        // Capacites communes a l'hote et au client (0 pour un client ancien)
+        int capabilities = Capabilities.negotiate(localPlayer.getCapabilities(), message.capabilities());
+        int protocolVersion = Math.min(Capabilities.PROTOCOL_VERSION, message.protocolVersion());
         
         System.out.println("Nouveau joueur: " + playerName + " (" + playerIp + ":" + playerPort + ", UDP:" + playerUdpPort + ", ID:" + playerId + ")");
+        System.out.println("Protocole v" + protocolVersion + ", capacites: " + Capabilities.describe(capabilities));
         
         // Verifier si le pseudo est deja utilise
         for (Player p : session.getPlayers()) {
             if (p.getName().equalsIgnoreCase(playerName)) {
                 System.out.println("Pseudo deja utilise: " + playerName);
                 // Envoyer un refus
-                JsonObject response = new JsonObject();
-                response.addProperty("type", "JOIN_REJECTED");
-                response.addProperty("success", false);
-                response.addProperty("reason", "Ce pseudo est deja utilise dans cette partie");
-                networkBridge.sendMessage(playerIp, playerPort, response);
+                networkBridge.sendMessage(playerIp, playerPort,
+                    new JoinRejected("Ce pseudo est deja utilise dans cette partie"));
                 return;
             }
         }
@@ -389,19 +456,26 @@ public class GameController {
         } else {
             newPlayer = new Player(playerName, playerIp, playerPort, playerUdpPort);
         }
+        newPlayer.setProtocolVersion(protocolVersion);
+        newPlayer.setCapabilities(capabilities);
         
         if (session.addPlayer(newPlayer)) {
             System.out.println("Joueur ajoute avec succes");
             
+            // Membre du groupe de diffusion (canal UDP persistant, pas de processus par message)
+            broadcastGroup.add(newPlayer.getId(), playerIp, playerUdpPort, capabilities);
+            updateSessionWireFormat();
+            
             // Envoyer confirmation au nouveau joueur via TCP (fiable)
-            JsonObject response = new JsonObject();
-            response.addProperty("type", "JOIN_ACCEPTED");
-            response.addProperty("success", true);
-            response.addProperty("sessionId", session.getId());
-            response.addProperty("sessionName", session.getName());
-            response.addProperty("hostIp", session.getHostIp());
-            response.addProperty("hostUdpPort", gameUdpPort);  // Port UDP de l'hote
-            response.addProperty("playerId", newPlayer.getId());  // ID pour confirmation
+            JoinAccepted response = new JoinAccepted(
+                session.getId(),
+                session.getName(),
+                session.getHostIp(),
+                gameUdpPort,            // Port UDP de l'hote
+                newPlayer.getId(),      // ID pour confirmation
+                Capabilities.PROTOCOL_VERSION,
+                capabilities            // Capacites negociees
+            );
             
             System.out.println("Envoi JOIN_ACCEPTED a " + playerIp + ":" + playerPort);
             
@@ -412,22 +486,9 @@ public class GameController {
                     return null;
                 });
             
-            // Mettre a jour le broadcast avec le nouveau nombre de joueurs et leurs noms
-            List<String> playerNames = new java.util.ArrayList<>();
-            for (Player p : session.getPlayers()) {
-                playerNames.add(p.getName());
-            }
-            networkBridge.startServerBroadcast(
-                session.getHostIp(), 
-                session.getHostPort(), 
-                session.getName(),
-                session.getMaxPlayers(),
-                session.getPlayers().size(),
-                playerNames
-            );
-            
-            // Broadcaster la liste mise a jour
-            broadcastPlayerList();
+            // Annonce et liste des joueurs mises a jour une fois par fenetre
+            // (une rafale de JOIN ne produit qu'un seul envoi)
+            scheduleMembershipUpdate();
             notifyPlayersUpdated();
         } else {
             System.out.println("Echec de l'ajout du joueur");
@@ -439,78 +500,192 @@ public class GameController {
     // IP de l'hote (pour les clients)
     private String hostIp;
     
-    private void handleJoinAccepted(JsonObject message) {
+    private void handleJoinAccepted(JoinAccepted message) {
         System.out.println("=== JOIN_ACCEPTED recu: " + message);
-        String sessionName = message.get("sessionName").getAsString();
+        String sessionName = message.sessionName();
+        
+        // Dans le lobby : plus besoin de chercher des parties
+        networkBridge.stopServerDiscovery();
         
         // Recuperer le port UDP et l'IP de l'hote
-        if (message.has("hostUdpPort")) {
-            hostUdpPort = message.get("hostUdpPort").getAsInt();
+        if (message.hostUdpPort() > 0) {
+            hostUdpPort = message.hostUdpPort();
             System.out.println("Port UDP de l'hote: " + hostUdpPort);
         }
-        if (message.has("hostIp")) {
-            hostIp = message.get("hostIp").getAsString();
+        if (message.hostIp() != null) {
+            hostIp = message.hostIp();
             System.out.println("IP de l'hote: " + hostIp);
         }
         
+        // Format d'envoi vers l'hote selon les capacites negociees
+        localPlayer.setProtocolVersion(Math.min(Capabilities.PROTOCOL_VERSION, message.protocolVersion()));
+        localPlayer.setCapabilities(message.capabilities());
+        networkBridge.setWireFormat(Capabilities.cheapestFormat(message.capabilities()));
+        System.out.println("Capacites negociees: " + Capabilities.describe(message.capabilities()));
+        
+        // Canal UDP persistant vers l'hote (tous nos messages de jeu passent par lui)
+        if (hostIp != null && hostUdpPort > 0) {
+            networkBridge.openUdpChannel(hostIp, hostUdpPort);
+            // VOTE, GUESS... renvoyes jusqu'a l'acquittement de l'hote
+            if (Capabilities.has(message.capabilities(), Capabilities.RELIABLE)) {
+                networkBridge.enableReliableDelivery(hostIp, hostUdpPort);
+            }
+        }
+        
         // Creer une session locale pour le client
         if (session == null) {
-            String sessionId = message.has("sessionId") ? message.get("sessionId").getAsString() : "unknown";
             session = new GameSession(sessionName, hostIp != null ? hostIp : "127.0.0.1", 5000, 8);
         }
         
         notifyConnectionStatus(true, "Connecte a " + sessionName + " (UDP actif)");
+        
+        // Mode DELTA : etat complet une fois, les mises a jour suivantes sont differentielles
+        if (Capabilities.has(message.capabilities(), Capabilities.DELTA)) {
+            stateSync.requireSnapshot();
+            requestSnapshot();
+        }
     }
     
-    private void handleJoinRejected(JsonObject message) {
-        String reason = message.has("reason") ? message.get("reason").getAsString() : "Connexion refusée";
+    private void handleJoinRejected(JoinRejected message) {
+        String reason = message.reason() != null ? message.reason() : "Connexion refusée";
         System.out.println("=== JOIN_REJECTED: " + reason);
+        networkBridge.resumeServerDiscovery();
         notifyConnectionStatus(false, reason);
     }
     
-    private void handlePlayerList(JsonObject message) {
-        JsonArray playersArray = message.getAsJsonArray("players");
+    private void handlePlayerList(PlayerList message) {
+        // Liste plus ancienne que l'etat deja applique (datagramme en retard)
+        if (session == null || !stateSync.acceptFull(message.version())) {
+            return;
+        }
+        applyRoster(message.players());
+    }
+    
+    /**
+     * Remplace la liste locale des joueurs par celle recue du serveur
+     */
+    private void applyRoster(List<PlayerInfo> roster) {
         List<Player> players = new ArrayList<>();
         
-        for (JsonElement elem : playersArray) {
-            JsonObject p = elem.getAsJsonObject();
-            String playerId = p.get("id").getAsString();
-            int udpPort = p.has("udpPort") ? p.get("udpPort").getAsInt() : p.get("port").getAsInt() + UDP_PORT_OFFSET;
-            
-            // Utiliser le constructeur avec ID explicite pour conserver l'ID du serveur
-            Player player = new Player(
-                playerId,
-                p.get("name").getAsString(),
-                p.get("ip").getAsString(),
-                p.get("port").getAsInt(),
-                udpPort
-            );
-            player.setHost(p.get("isHost").getAsBoolean());
-            player.setAlive(p.get("alive").getAsBoolean());
-            players.add(player);
-            
-            // Mettre a jour l'ID du localPlayer si c'est nous
-            if (localPlayer != null && localPlayer.getName().equals(player.getName()) 
-                && localPlayer.getIpAddress().equals(player.getIpAddress())) {
-                // Remplacer le localPlayer avec le bon ID du serveur
-                localPlayer = player;
-            }
+        for (PlayerInfo p : roster) {
+            players.add(toPlayer(p));
         }
         
-        if (session != null) {
-            // Mettre a jour la session locale avec les joueurs recus
-            session.setPlayers(players);
+        // Mettre a jour la session locale avec les joueurs recus
+        session.setPlayers(players);
+        notifyPlayersUpdated();
+    }
+    
+    /**
+     * Cree un joueur a partir de sa description reseau
+     */
+    private Player toPlayer(PlayerInfo p) {
+        int udpPort = p.udpPort() > 0 ? p.udpPort() : p.port() + UDP_PORT_OFFSET;
+        
+        // Utiliser le constructeur avec ID explicite pour conserver l'ID du serveur
+        Player player = new Player(
+            p.id(),
+            p.name(),
+            p.ip(),
+            p.port(),
+            udpPort
+        );
+        player.setHost(p.isHost());
+        player.setAlive(p.alive());
+        
+        // Mettre a jour l'ID du localPlayer si c'est nous
+        if (localPlayer != null && localPlayer.getName().equals(player.getName()) 
+            && localPlayer.getIpAddress().equals(player.getIpAddress())) {
+            // Remplacer le localPlayer avec le bon ID du serveur
+            player.setProtocolVersion(localPlayer.getProtocolVersion());
+            player.setCapabilities(localPlayer.getCapabilities());
+            localPlayer = player;
+        }
+        return player;
+    }
+    
+    /**
+     * Reception d'une modification de la liste des joueurs (client, mode DELTA)
+     */
+    private void handlePlayerDelta(PlayerDelta message) {
+        // Pas encore de session (JOIN_ACCEPTED pas encore traite) : l'etat complet suivra
+        if (session == null) return;
+        SessionStateSync.Check check = stateSync.check(message.version());
+        if (check == SessionStateSync.Check.STALE) {
+            return;
         }
         
+        // Les valeurs recues sont absolues : on peut les appliquer meme apres un trou
+        Map<String, Player> players = new LinkedHashMap<>();
+        for (Player p : session.getPlayers()) {
+            players.put(p.getId(), p);
+        }
+        for (String id : message.removed()) {
+            players.remove(id);
+        }
+        for (PlayerInfo p : message.upserts()) {
+            Player existing = players.get(p.id());
+            if (existing != null) {
+                existing.setAlive(p.alive());
+                existing.setHost(p.isHost());
+                existing.setUdpPort(p.udpPort());
+            } else {
+                players.put(p.id(), toPlayer(p));
+            }
+        }
+        session.setPlayers(new ArrayList<>(players.values()));
         notifyPlayersUpdated();
+        
+        if (check == SessionStateSync.Check.GAP) {
+            requestSnapshot();
+        }
     }
     
-    private void handleGameStart(JsonObject message) {
-        String roleStr = message.get("role").getAsString();
-        String word = message.has("word") && !message.get("word").isJsonNull() ? 
-            message.get("word").getAsString() : null;
+    /**
+     * Reception d'un etat complet (client) : joueurs et ordre des tours
+     */
+    private void handleStateSnapshot(StateSnapshot message) {
+        if (session == null || !stateSync.acceptFull(message.version())) {
+            return;
+        }
+        session.setTurnOrder(message.turnOrder());
+        session.setCurrentTurnIndex(message.currentTurnIndex());
+        applyRoster(message.players());
+    }
+    
+    /**
+     * Demande d'etat complet d'un client (host)
+     */
+    private void handleSnapshotRequest(SnapshotRequest message) {
+        if (!isHost || session == null) return;
         
-        Role role = Role.valueOf(roleStr);
+        Player player = session.getPlayer(message.playerId());
+        if (player != null) {
+            sendSnapshot(player);
+        }
+    }
+    
+    /**
+     * Client : un message d'etat manque, on demande l'etat complet a l'hote
+     */
+    private void requestSnapshot() {
+        if (isHost || localPlayer == null || !stateSync.shouldRequestSnapshot()) return;
+        System.out.println("Demande de l'etat complet (version " + stateSync.getAppliedVersion() + ")");
+        sendToServer(new SnapshotRequest(localPlayer.getId(), stateSync.getAppliedVersion()));
+        
+        // Demande ou reponse perdue : on redemande tant que l'etat n'est pas a jour
+        SessionStateSync sync = stateSync;
+        scheduler.schedule(() -> {
+            if (sync == stateSync && sync.isSnapshotPending()) {
+                requestSnapshot();
+            }
+        }, SessionStateSync.SNAPSHOT_RETRY_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    private void handleGameStart(GameStart message) {
+        String word = message.word();
+        
+        Role role = Role.valueOf(message.role());
         localPlayer.setRole(role);
         myWord = word;
         
@@ -519,9 +694,8 @@ public class GameController {
         }
     }
     
-    private void handlePhaseChange(JsonObject message) {
-        String stateStr = message.get("state").getAsString();
-        GameSession.State state = GameSession.State.valueOf(stateStr);
+    private void handlePhaseChange(PhaseChange message) {
+        GameSession.State state = GameSession.State.valueOf(message.state());
         
         if (session != null) {
             session.setState(state);
@@ -532,10 +706,10 @@ public class GameController {
         }
     }
     
-    private void handleWordSpoken(JsonObject message) {
-        String senderId = message.get("playerId").getAsString();
-        String senderName = message.get("playerName").getAsString();
-        String word = message.get("word").getAsString();
+    private void handleWordSpoken(WordSpoken message) {
+        String senderId = message.playerId();
+        String senderName = message.playerName();
+        String word = message.word();
         
         // Si on est l'hote et que le message vient d'un client, relayer a tous
         if (isHost && session != null && !senderId.equals(localPlayer.getId())) {
@@ -566,10 +740,10 @@ public class GameController {
         }
     }
     
-    private void handleChat(JsonObject message) {
-        String senderId = message.get("playerId").getAsString();
-        String senderName = message.get("playerName").getAsString();
-        String content = message.get("message").getAsString();
+    private void handleChat(Chat message) {
+        String senderId = message.playerId();
+        String senderName = message.playerName();
+        String content = message.message();
         
         // Si on est l'hote et que le message vient d'un client, relayer a tous
         if (isHost && session != null && !senderId.equals(localPlayer.getId())) {
@@ -584,22 +758,16 @@ public class GameController {
         }
     }
     
-    private void handleVote(JsonObject message) {
-        String voterId = message.get("voterId").getAsString();
-        String targetId = message.get("targetId").getAsString();
-        
+    private void handleVote(Vote message) {
         if (isHost && session != null) {
-            session.vote(voterId, targetId);
+            session.vote(message.voterId(), message.targetId());
             broadcastGameState();
         }
     }
     
-    private void handleGuess(JsonObject message) {
-        String playerId = message.get("playerId").getAsString();
-        String guess = message.get("guess").getAsString();
-        
+    private void handleGuess(Guess message) {
         if (isHost && session != null) {
-            boolean correct = session.guessWord(playerId, guess);
+            boolean correct = session.guessWord(message.playerId(), message.guess());
             broadcastGameState();
             
             if (session.getState() == GameSession.State.FINISHED) {
@@ -608,8 +776,8 @@ public class GameController {
         }
     }
     
-    private void handleGameEnd(JsonObject message) {
-        String endMessage = message.get("message").getAsString();
+    private void handleGameEnd(GameEnd message) {
+        String endMessage = message.message();
         
         // Arreter tous les timers
         cancelCurrentTimer();
@@ -619,41 +787,148 @@ public class GameController {
         }
     }
     
+    /**
+     * Un joueur quitte la partie (host) : on libere son canal UDP
+     */
+    private void handlePlayerLeave(PlayerLeave message) {
+        String playerId = message.playerId();
+        
+        if (isHost && session != null) {
+            Player player = session.getPlayer(playerId);
+            if (player == null) return;
+            
+            broadcastGroup.remove(playerId);
+            session.removePlayer(playerId);
+            updateSessionWireFormat();
+            scheduleMembershipUpdate();
+            notifyPlayersUpdated();
+        }
+    }
+    
+    // ===== REGROUPEMENT DES CHANGEMENTS DE MEMBRES (HOST) =====
+    
+    /**
+     * Un joueur est arrive ou parti. L'envoi est differe de la fenetre de
+     * regroupement : tous les changements de la fenetre partent ensemble.
+     */
+    private void scheduleMembershipUpdate() {
+        membershipChanges.incrementAndGet();
+        if (!membershipDebounceEnabled) {
+            // Sans regroupement : annonce et liste envoyees tout de suite, a chaque changement
+            flushMembershipUpdate();
+            return;
+        }
+        if (membershipUpdatePending.compareAndSet(false, true)) {
+            scheduler.schedule(this::flushMembershipUpdate, membershipDebounceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Fin de fenetre : une annonce et une liste de joueurs pour tous les changements
+     */
+    private void flushMembershipUpdate() {
+        // Remis a false avant l'envoi : un JOIN pendant l'envoi ouvre une nouvelle fenetre
+        membershipUpdatePending.set(false);
+        if (!isHost || session == null) return;
+        membershipFlushes.incrementAndGet();
+        
+        try {
+            refreshServerAnnouncement();
+            broadcastPlayerList();
+        } catch (Exception e) {
+            System.err.println("Erreur envoi mise a jour des joueurs: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Met a jour l'annonce du serveur (nombre de joueurs et leurs noms)
+     */
+    private void refreshServerAnnouncement() {
+        announcementUpdates.incrementAndGet();
+        List<String> playerNames = new ArrayList<>();
+        for (Player p : session.getPlayers()) {
+            playerNames.add(p.getName());
+        }
+        // Le script d'annonce lance par createServer est mis a jour sans redemarrer
+        if (!networkBridge.updateServerBroadcast(session.getPlayers().size(), playerNames)) {
+            networkBridge.startServerBroadcast(
+                session.getHostIp(), 
+                session.getHostPort(), 
+                session.getName(),
+                session.getMaxPlayers(),
+                session.getPlayers().size(),
+                playerNames
+            );
+        }
+    }
+    
+    /**
+     * Fenetre de regroupement des changements de membres, en ms. Avec 0,
+     * l'envoi part des que possible, mais les changements arrives avant
+     * lui sont encore regroupes.
+     */
+    public void setMembershipDebounceMs(long debounceMs) {
+        this.membershipDebounceMs = Math.max(0, debounceMs);
+    }
+    
+    /**
+     * Active ou desactive le regroupement. Desactive : chaque arrivee ou
+     * depart envoie aussitot l'annonce et la liste des joueurs.
+     */
+    public void setMembershipDebounceEnabled(boolean enabled) {
+        this.membershipDebounceEnabled = enabled;
+    }
+    
+    /**
+     * Nombre de changements de membres et d'envois effectifs
+     */
+    public String getMembershipStats() {
+        return String.format("Changements de joueurs: %d, envois groupes: %d (%s), listes de joueurs envoyees: %d, annonces mises a jour: %d",
+            membershipChanges.get(), membershipFlushes.get(),
+            membershipDebounceEnabled ? "fenetre " + membershipDebounceMs + "ms" : "sans regroupement",
+            rosterDatagrams.get(), announcementUpdates.get());
+    }
+    
     // ===== NOUVEAUX HANDLERS POUR LA SYNCHRONISATION DES TOURS =====
     
     /**
      * Reception d'un changement de tour (client)
      */
-    private void handleTurnStart(JsonObject message) {
-        String currentPlayerId = message.get("currentPlayerId").getAsString();
-        int remainingSeconds = message.get("remainingSeconds").getAsInt();
-        int currentTurnIndex = message.get("currentTurnIndex").getAsInt();
-        
-        // Mettre a jour la session locale
-        if (session != null) {
-            session.setCurrentTurnIndex(currentTurnIndex);
+    private void handleTurnStart(TurnStart message) {
+        SessionStateSync.Check check = stateSync.check(message.version());
+        if (check == SessionStateSync.Check.STALE) {
+            return;
         }
         
-        // Parser l'ordre des tours
-        List<String> turnOrder = new ArrayList<>();
-        if (message.has("turnOrder")) {
-            JsonArray orderArray = message.getAsJsonArray("turnOrder");
-            for (JsonElement elem : orderArray) {
-                turnOrder.add(elem.getAsString());
+        String currentPlayerId = message.currentPlayerId();
+        int remainingSeconds = message.remainingSeconds();
+        
+        // Mettre a jour la session locale (ordre des tours absent = inchange)
+        List<String> turnOrder = message.turnOrder();
+        if (session != null) {
+            if (!turnOrder.isEmpty()) {
+                session.setTurnOrder(turnOrder);
+            } else {
+                turnOrder = session.getTurnOrder();
             }
+            session.setCurrentTurnIndex(message.currentTurnIndex());
         }
         
         // Notifier l'UI
         for (GameEventListener listener : listeners) {
             listener.onTurnChanged(currentPlayerId, remainingSeconds, turnOrder);
         }
+        
+        if (check == SessionStateSync.Check.GAP) {
+            requestSnapshot();
+        }
     }
     
     /**
      * Reception d'une synchronisation de timer (client)
      */
-    private void handleTimerSync(JsonObject message) {
-        int remainingSeconds = message.get("remainingSeconds").getAsInt();
+    private void handleTimerSync(TimerSync message) {
+        int remainingSeconds = message.remainingSeconds();
         
         for (GameEventListener listener : listeners) {
             listener.onTimerSync(remainingSeconds);
@@ -663,9 +938,8 @@ public class GameController {
     /**
      * Reception d'un timeout de tour (client)
      */
-    private void handleTurnTimeout(JsonObject message) {
-        String playerId = message.get("playerId").getAsString();
-        String playerName = message.has("playerName") ? message.get("playerName").getAsString() : "Joueur";
+    private void handleTurnTimeout(TurnTimeout message) {
+        String playerName = message.playerName() != null ? message.playerName() : "Joueur";
         
         // Afficher le message de timeout
         GameMessage gameMsg = new GameMessage("system", "Systeme", 
@@ -679,7 +953,7 @@ public class GameController {
     /**
      * Reception de fin de ronde (client)
      */
-    private void handleRoundEnd(JsonObject message) {
+    private void handleRoundEnd(RoundEnd message) {
         // La ronde est terminee, passer en phase de debat
         if (session != null) {
             session.setState(GameSession.State.DEBATE);
@@ -761,11 +1035,7 @@ public class GameController {
         String playerName = player != null ? player.getName() : "Joueur";
         
         // Broadcaster le timeout
-        JsonObject timeoutMsg = new JsonObject();
-        timeoutMsg.addProperty("type", "TURN_TIMEOUT");
-        timeoutMsg.addProperty("playerId", playerId);
-        timeoutMsg.addProperty("playerName", playerName);
-        broadcastToAll(timeoutMsg);
+        broadcastToAll(new TurnTimeout(playerId, playerName));
         
         // Passer au joueur suivant
         advanceToNextTurn();
@@ -780,9 +1050,7 @@ public class GameController {
         cancelCurrentTimer();
         
         // Broadcaster la fin de ronde
-        JsonObject roundEndMsg = new JsonObject();
-        roundEndMsg.addProperty("type", "ROUND_END");
-        broadcastToAll(roundEndMsg);
+        broadcastToAll(new RoundEnd());
         
         // Passer en phase de debat
         session.startDebate();
@@ -901,20 +1169,14 @@ public class GameController {
      * Broadcast le debut d'un tour
      */
     private void broadcastTurnStart(String currentPlayerId, int seconds) {
-        JsonObject msg = new JsonObject();
-        msg.addProperty("type", "TURN_START");
-        msg.addProperty("currentPlayerId", currentPlayerId);
-        msg.addProperty("remainingSeconds", seconds);
-        msg.addProperty("currentTurnIndex", session.getCurrentTurnIndex());
-        
-        // Ajouter l'ordre des tours
-        JsonArray orderArray = new JsonArray();
-        for (String id : session.getTurnOrder()) {
-            orderArray.add(id);
-        }
-        msg.add("turnOrder", orderArray);
-        
-        broadcastToAll(msg);
+        // Ordre des tours joint seulement s'il a change (ou si un joueur ne gere pas DELTA)
+        broadcastToAll(stateSync.turnStart(
+            currentPlayerId,
+            seconds,
+            session.getCurrentTurnIndex(),
+            session.getTurnOrder(),
+            isDeltaEnabled()
+        ));
         
         // Notifier localement aussi (pour l'host)
         for (GameEventListener listener : listeners) {
@@ -926,10 +1188,7 @@ public class GameController {
      * Broadcast la synchronisation du timer
      */
     private void broadcastTimerSync(int seconds) {
-        JsonObject msg = new JsonObject();
-        msg.addProperty("type", "TIMER_SYNC");
-        msg.addProperty("remainingSeconds", seconds);
-        broadcastToAll(msg);
+        broadcastToAll(new TimerSync(seconds));
         
         // Notifier localement
         for (GameEventListener listener : listeners) {
@@ -941,13 +1200,12 @@ public class GameController {
      * Broadcast un message de jeu a tous
      */
     private void broadcastMessage(GameMessage gameMessage) {
-        JsonObject msg = new JsonObject();
-        msg.addProperty("type", "GAME_MESSAGE");
-        msg.addProperty("senderId", gameMessage.getSenderId());
-        msg.addProperty("senderName", gameMessage.getSenderName());
-        msg.addProperty("content", gameMessage.getContent());
-        msg.addProperty("messageType", gameMessage.getType().name());
-        broadcastToAll(msg);
+        broadcastToAll(new GameNotice(
+            gameMessage.getSenderId(),
+            gameMessage.getSenderName(),
+            gameMessage.getContent(),
+            gameMessage.getType().name()
+        ));
         
         // Notifier localement
         for (GameEventListener listener : listeners) {
@@ -1004,14 +1262,7 @@ public class GameController {
                     String word = session.getWordForPlayer(player);
                     System.out.println("[THREAD] Joueur " + player.getName() + " - Role: " + player.getRole() + " - Mot: " + word);
                     
-                    JsonObject startMsg = new JsonObject();
-                    startMsg.addProperty("type", "GAME_START");
-                    startMsg.addProperty("role", player.getRole().name());
-                    if (word != null) {
-                        startMsg.addProperty("word", word);
-                    } else {
-                        startMsg.add("word", JsonNull.INSTANCE);
-                    }
+                    GameStart startMsg = new GameStart(player.getRole().name(), word);
                     
                     // Envoyer via UDP pour rapidite
                     System.out.println("[THREAD] Envoi UDP a " + player.getIpAddress() + ":" + player.getUdpPort());
@@ -1054,12 +1305,7 @@ public class GameController {
             return;
         }
         
-        JsonObject msg = new JsonObject();
-        msg.addProperty("type", "WORD_SPOKEN");
-        msg.addProperty("playerId", localPlayer.getId());
-        msg.addProperty("playerName", localPlayer.getName());
-        msg.addProperty("word", word);
-        msg.addProperty("timestamp", System.currentTimeMillis());
+        WordSpoken msg = new WordSpoken(localPlayer.getId(), localPlayer.getName(), word, System.currentTimeMillis());
         
         // Afficher localement d'abord
         GameMessage gameMsg = new GameMessage(localPlayer.getId(), localPlayer.getName(), word, GameMessage.Type.WORD);
@@ -1091,12 +1337,7 @@ public class GameController {
             return;
         }
         
-        JsonObject msg = new JsonObject();
-        msg.addProperty("type", "CHAT");
-        msg.addProperty("playerId", localPlayer.getId());
-        msg.addProperty("playerName", localPlayer.getName());
-        msg.addProperty("message", message);
-        msg.addProperty("timestamp", System.currentTimeMillis());
+        Chat msg = new Chat(localPlayer.getId(), localPlayer.getName(), message, System.currentTimeMillis());
         
         // Afficher localement d'abord
         GameMessage gameMsg = new GameMessage(localPlayer.getId(), localPlayer.getName(), message, GameMessage.Type.CHAT);
@@ -1116,10 +1357,7 @@ public class GameController {
     public void vote(String targetPlayerId) {
         if (localPlayer == null) return;
         
-        JsonObject msg = new JsonObject();
-        msg.addProperty("type", "VOTE");
-        msg.addProperty("voterId", localPlayer.getId());
-        msg.addProperty("targetId", targetPlayerId);
+        Vote msg = new Vote(localPlayer.getId(), targetPlayerId);
         
         if (isHost && session != null) {
             session.vote(localPlayer.getId(), targetPlayerId);
@@ -1132,10 +1370,7 @@ public class GameController {
     public void guessWord(String guess) {
         if (localPlayer == null || localPlayer.getRole() != Role.IMPOSTOR) return;
         
-        JsonObject msg = new JsonObject();
-        msg.addProperty("type", "GUESS");
-        msg.addProperty("playerId", localPlayer.getId());
-        msg.addProperty("guess", guess);
+        Guess msg = new Guess(localPlayer.getId(), guess);
         
         if (isHost && session != null) {
             session.guessWord(localPlayer.getId(), guess);
@@ -1161,24 +1396,18 @@ public class GameController {
     private void broadcastPlayerList() {
         if (session == null) return;
         
-        JsonObject msg = new JsonObject();
-        msg.addProperty("type", "PLAYER_LIST");
-        
-        JsonArray players = new JsonArray();
-        for (Player p : session.getPlayers()) {
-            JsonObject pObj = new JsonObject();
-            pObj.addProperty("id", p.getId());
-            pObj.addProperty("name", p.getName());
-            pObj.addProperty("ip", p.getIpAddress());
-            pObj.addProperty("port", p.getPort());
-            pObj.addProperty("udpPort", p.getUdpPort());  // Port UDP pour les messages de jeu
-            pObj.addProperty("isHost", p.isHost());
-            pObj.addProperty("alive", p.isAlive());
-            players.add(pObj);
+        List<PlayerInfo> players = currentRoster();
+        if (isDeltaEnabled()) {
+            // Seulement les joueurs modifies depuis le dernier envoi (rien si aucun changement)
+            PlayerDelta delta = stateSync.rosterDelta(players);
+            if (delta != null) {
+                broadcastToAll(delta);
+                rosterDatagrams.addAndGet(broadcastGroup.size());
+            }
+        } else {
+            broadcastToAll(stateSync.fullRoster(players));
+            rosterDatagrams.addAndGet(broadcastGroup.size());
         }
-        msg.add("players", players);
-        
-        broadcastToAll(msg);
         
         // Notifier localement (l'hote est exclu du broadcast UDP)
         if (isHost) {
@@ -1186,11 +1415,44 @@ public class GameController {
         }
     }
     
+    /**
+     * Liste des joueurs de la session au format reseau
+     */
+    private List<PlayerInfo> currentRoster() {
+        List<PlayerInfo> players = new ArrayList<>();
+        for (Player p : session.getPlayers()) {
+            players.add(new PlayerInfo(
+                p.getId(),
+                p.getName(),
+                p.getIpAddress(),
+                p.getPort(),
+                p.getUdpPort(),  // Port UDP pour les messages de jeu
+                p.isHost(),
+                p.isAlive()
+            ));
+        }
+        return players;
+    }
+    
+    /**
+     * Envoie l'etat complet a un joueur (arrivee ou trou de versions)
+     */
+    private void sendSnapshot(Player player) {
+        StateSnapshot snapshot = stateSync.snapshot(currentRoster(), session.getTurnOrder(), session.getCurrentTurnIndex());
+        networkBridge.sendUdpMessage(player.getIpAddress(), player.getUdpPort(), snapshot);
+    }
+    
+    /**
+     * Host : les deltas ne sont utilises que si tous les joueurs les supportent
+     */
+    private boolean isDeltaEnabled() {
+        if (localPlayer == null) return false;
+        int common = broadcastGroup.commonCapabilities(localPlayer.getCapabilities());
+        return Capabilities.has(common, Capabilities.DELTA);
+    }
+    
     private void broadcastPhaseChange(GameSession.State state) {
-        JsonObject msg = new JsonObject();
-        msg.addProperty("type", "PHASE_CHANGE");
-        msg.addProperty("state", state.name());
-        broadcastToAll(msg);
+        broadcastToAll(new PhaseChange(state.name()));
         
         // Notifier localement (l'hote est exclu du broadcast UDP)
         if (isHost) {
@@ -1206,10 +1468,7 @@ public class GameController {
     }
     
     private void broadcastGameEnd(String message) {
-        JsonObject msg = new JsonObject();
-        msg.addProperty("type", "GAME_END");
-        msg.addProperty("message", message);
-        broadcastToAll(msg);
+        broadcastToAll(new GameEnd(message));
         
         // Notifier localement (l'hote est exclu du broadcast UDP)
         if (isHost) {
@@ -1222,40 +1481,34 @@ public class GameController {
     
     /**
      * Broadcast un message a tous les joueurs via UDP (rapide, sans latence)
-     * Si on est l'hote, on s'exclut car les notifications locales sont faites separement
+     * L'hote n'est pas membre du groupe : ses notifications locales sont faites separement
      */
-    private void broadcastToAll(JsonObject message) {
+    private void broadcastToAll(ProtocolMessage message) {
         if (session == null) return;
-        
-        for (Player player : session.getPlayers()) {
-            // L'hote ne s'envoie pas a lui-meme (il traite localement)
-            if (isHost && localPlayer != null && player.getId().equals(localPlayer.getId())) {
-                continue;
-            }
-            // Utiliser UDP pour les messages de jeu (rapide)
-            networkBridge.sendUdpMessage(player.getIpAddress(), player.getUdpPort(), message);
-        }
+        broadcastGroup.send(message);
     }
     
     /**
      * Broadcast un message a tous les joueurs SAUF un (pour eviter les echos)
      */
-    private void broadcastToAllExcept(JsonObject message, String excludePlayerId) {
+    private void broadcastToAllExcept(ProtocolMessage message, String excludePlayerId) {
         if (session == null) return;
-        
-        for (Player player : session.getPlayers()) {
-            if (excludePlayerId != null && player.getId().equals(excludePlayerId)) {
-                continue;  // Sauter ce joueur
-            }
-            // Utiliser UDP pour les messages de jeu (rapide)
-            networkBridge.sendUdpMessage(player.getIpAddress(), player.getUdpPort(), message);
-        }
+        broadcastGroup.sendExcept(message, excludePlayerId != null ? Set.of(excludePlayerId) : Set.of());
+    }
+    
+    /**
+     * Host : diffuse dans le format le moins couteux que tous les joueurs supportent
+     */
+    private void updateSessionWireFormat() {
+        if (!isHost || localPlayer == null) return;
+        int common = broadcastGroup.commonCapabilities(localPlayer.getCapabilities());
+        networkBridge.setWireFormat(Capabilities.cheapestFormat(common));
     }
     
     /**
      * Envoie un message au serveur (hote) via UDP
      */
-    private void sendToServer(JsonObject message) {
+    private void sendToServer(ProtocolMessage message) {
         if (hostIp != null && hostUdpPort > 0) {
             // Utiliser UDP pour les messages de jeu
             networkBridge.sendUdpMessage(hostIp, hostUdpPort, message);
@@ -1291,6 +1544,15 @@ public class GameController {
         listeners.remove(listener);
     }
     
+    /**
+     * Choisit le format le plus compact autorise pour la session. Le format
+     * effectif reste limite par les capacites des pairs.
+     * A appeler avant createServer / joinServer.
+     */
+    public void setWireFormat(WireFormat format) {
+        this.allowedWireFormat = format;
+    }
+    
     public GameSession getSession() {
         return session;
     }
@@ -1305,6 +1567,16 @@ public class GameController {
     
     public void shutdown() {
         cancelCurrentTimer();
+        
+        if (isHost) {
+            System.out.println(getMembershipStats());
+        }
+        
+        // Prevenir l'hote pour qu'il ferme notre canal UDP
+        if (!isHost && localPlayer != null && session != null) {
+            sendToServer(new PlayerLeave(localPlayer.getId()));
+        }
+        
         scheduler.shutdown();
         networkBridge.shutdown();
         executor.shutdown();
@@ -0,0 +1,216 @@
+package com.undercover.controller;
+
+import com.undercover.network.protocol.ProtocolMessage.*;
+
+import java.util.*;
+
+/**
+ * SessionStateSync - Versions de l'etat partage (joueurs + ordre des tours)
+ *
+ * Cote hote : chaque PLAYER_LIST, PLAYER_DELTA et TURN_START recoit une
+ * version croissante. En mode DELTA, seuls les joueurs modifies depuis le
+ * dernier envoi sont diffuses, et l'ordre des tours n'est renvoye que s'il a
+ * change.
+ *
+ * Cote client : une version deja appliquee est ignoree (doublon ou message
+ * en retard), un trou de versions declenche une demande de STATE_SNAPSHOT.
+ * La demande reste en cours (et est renvoyee apres SNAPSHOT_RETRY_MS) tant
+ * qu'aucun etat complet au moins aussi recent que la derniere version vue
+ * n'a ete applique.
+ */
+public class SessionStateSync {
+
+    /**
+     * Resultat du controle de version d'un message recu
+     */
+    public enum Check {
+        /** Version suivante attendue (ou message non versionne) */
+        APPLY,
+        /** Version deja appliquee : ignorer */
+        STALE,
+        /** Des versions manquent : appliquer puis demander un etat complet */
+        GAP
+    }
+
+    // Delai minimal entre deux demandes d'etat complet
+    private static final long SNAPSHOT_REQUEST_INTERVAL_MS = 500;
+    // Delai avant de renvoyer une demande restee sans reponse
+    static final long SNAPSHOT_RETRY_MS = 1000;
+
+    // ===== HOTE =====
+    private int version;
+    private final Map<String, PlayerInfo> sentRoster = new LinkedHashMap<>();
+    private List<String> sentTurnOrder = List.of();
+
+    // ===== CLIENT =====
+    private int appliedVersion;
+    private long lastSnapshotRequest;
+    // Etat complet attendu : version a atteindre, et derniere version
+    // appliquee sans trou (un etat complet plus ancien ne comble rien)
+    private boolean snapshotPending;
+    private int requestedVersion;
+    private int contiguousVersion;
+
+    // =====================================================================
+    // HOTE
+    // =====================================================================
+
+    /**
+     * Liste complete (pairs sans DELTA)
+     */
+    public synchronized PlayerList fullRoster(List<PlayerInfo> roster) {
+        rememberRoster(roster);
+        return new PlayerList(roster, ++version);
+    }
+
+    /**
+     * Joueurs ajoutes, modifies ou retires depuis le dernier envoi.
+     * Retourne null si rien n'a change (aucun message a envoyer).
+     */
+    public synchronized PlayerDelta rosterDelta(List<PlayerInfo> roster) {
+        List<PlayerInfo> upserts = new ArrayList<>();
+        Set<String> current = new HashSet<>();
+        for (PlayerInfo p : roster) {
+            current.add(p.id());
+            if (!p.equals(sentRoster.get(p.id()))) {
+                upserts.add(p);
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String id : sentRoster.keySet()) {
+            if (!current.contains(id)) {
+                removed.add(id);
+            }
+        }
+        if (upserts.isEmpty() && removed.isEmpty()) {
+            return null;
+        }
+        rememberRoster(roster);
+        return new PlayerDelta(++version, upserts, removed);
+    }
+
+    /**
+     * Debut de tour. En mode DELTA, l'ordre des tours n'est joint que s'il a
+     * change depuis le dernier TURN_START.
+     */
+    public synchronized TurnStart turnStart(String currentPlayerId, int seconds, int turnIndex,
+                                            List<String> turnOrder, boolean delta) {
+        boolean orderChanged = !turnOrder.equals(sentTurnOrder);
+        sentTurnOrder = List.copyOf(turnOrder);
+        List<String> order = !delta || orderChanged ? sentTurnOrder : List.of();
+        return new TurnStart(currentPlayerId, seconds, turnIndex, order, ++version);
+    }
+
+    /**
+     * Etat complet a la version courante (pour un joueur qui arrive ou qui l'a demande)
+     */
+    public synchronized StateSnapshot snapshot(List<PlayerInfo> roster, List<String> turnOrder, int turnIndex) {
+        return new StateSnapshot(version, roster, List.copyOf(turnOrder), turnIndex);
+    }
+
+    private void rememberRoster(List<PlayerInfo> roster) {
+        sentRoster.clear();
+        for (PlayerInfo p : roster) {
+            sentRoster.put(p.id(), p);
+        }
+    }
+
+    // =====================================================================
+    // CLIENT
+    // =====================================================================
+
+    /**
+     * Controle un message differentiel (PLAYER_DELTA, TURN_START).
+     * La version 0 (hote sans versions) est toujours appliquee.
+     */
+    public synchronized Check check(int messageVersion) {
+        if (messageVersion == 0) {
+            return Check.APPLY;
+        }
+        if (messageVersion <= appliedVersion) {
+            return Check.STALE;
+        }
+        Check result = messageVersion == appliedVersion + 1 ? Check.APPLY : Check.GAP;
+        if (result == Check.GAP) {
+            markPending();
+        }
+        appliedVersion = messageVersion;
+        if (snapshotPending) {
+            // L'etat complet devra inclure ce message
+            requestedVersion = messageVersion;
+        }
+        return result;
+    }
+
+    /**
+     * Controle un etat complet (PLAYER_LIST, STATE_SNAPSHOT) : applique s'il
+     * n'est pas plus ancien que l'etat courant.
+     *
+     * Pendant une demande en cours, un etat complet qui comble le trou est
+     * applique meme s'il precede le delta qui l'a revele (ex. STATE_SNAPSHOT v
+     * recu apres PLAYER_DELTA v+1) ; la demande ne se termine que lorsque la
+     * version attendue est atteinte, sinon elle sera renvoyee.
+     */
+    public synchronized boolean acceptFull(int messageVersion) {
+        if (messageVersion == 0) {
+            snapshotPending = false;
+            return true;
+        }
+        if (snapshotPending) {
+            if (messageVersion <= contiguousVersion) {
+                return false;
+            }
+            contiguousVersion = messageVersion;
+            appliedVersion = Math.max(appliedVersion, messageVersion);
+            if (messageVersion >= requestedVersion) {
+                snapshotPending = false;
+            }
+            return true;
+        }
+        if (messageVersion < appliedVersion) {
+            return false;
+        }
+        appliedVersion = messageVersion;
+        return true;
+    }
+
+    /**
+     * Demande un etat complet sans trou constate (arrivee dans la partie)
+     */
+    public synchronized void requireSnapshot() {
+        markPending();
+        requestedVersion = Math.max(requestedVersion, appliedVersion);
+    }
+
+    private void markPending() {
+        if (!snapshotPending) {
+            snapshotPending = true;
+            contiguousVersion = appliedVersion;
+            requestedVersion = appliedVersion;
+        }
+    }
+
+    /**
+     * Indique s'il faut envoyer une demande d'etat complet : une est en cours
+     * et la precedente date d'au moins SNAPSHOT_REQUEST_INTERVAL_MS
+     */
+    public synchronized boolean shouldRequestSnapshot() {
+        if (!snapshotPending) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastSnapshotRequest < SNAPSHOT_REQUEST_INTERVAL_MS) {
+            return false;
+        }
+        lastSnapshotRequest = now;
+        return true;
+    }
+
+    public synchronized boolean isSnapshotPending() {
+        return snapshotPending;
+    }
+
+    public synchronized int getAppliedVersion() {
+        return appliedVersion;
+    }
+}
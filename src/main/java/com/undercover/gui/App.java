@@ -3,7 +3,7 @@ package com.undercover.gui;
 import com.undercover.controller.GameController;
 import com.undercover.gui.screens.*;
 import com.undercover.model.*;
-import com.undercover.network.NetworkBridge;
+import com.undercover.network.DiscoveryEvent;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.scene.Scene;
@@ -62,6 +62,11 @@ public class App extends Application implements GameController.GameEventListener
     // ===== NAVIGATION =====
     
     private void showHomeScreen() {
+        // Quitter l'ecran "Rejoindre" arrete la decouverte
+        if (controller != null) {
+            controller.stopServerDiscovery();
+        }
+        joinServerScreen = null;
         homeScreen = new HomeScreen();
         homeScreen.setOnAction(action -> {
             switch (action) {
@@ -95,8 +100,18 @@ public class App extends Application implements GameController.GameEventListener
         });
         
         // Callback pour rafraîchir quand l'option localhost change
+        JoinServerScreen screen = joinServerScreen;
         joinServerScreen.setOnRefreshRequest(() -> {
-            controller.startServerDiscovery(joinServerScreen.isIncludeLocalhost());
+            controller.startServerDiscovery(screen.isIncludeLocalhost());
+        });
+        
+        // Noms des joueurs d'une partie, demandes a son hote quand on la selectionne
+        joinServerScreen.setOnDetailsRequest(server -> {
+            controller.queryServerStatus(server).thenAccept(details -> {
+                if (details != null) {
+                    screen.showServerDetails(details);
+                }
+            });
         });
         
         // Démarrer la découverte de serveurs (avec localhost par défaut)
@@ -213,12 +228,10 @@ public class App extends Application implements GameController.GameEventListener
     }
     
     @Override
-    public void onServerDiscovered(List<NetworkBridge.ServerInfo> servers) {
-        Platform.runLater(() -> {
-            if (joinServerScreen != null) {
-                joinServerScreen.updateServerList(servers);
-            }
-        });
+    public void onDiscoveryEvent(DiscoveryEvent event) {
+        if (joinServerScreen != null) {
+            joinServerScreen.applyDiscoveryEvent(event);
+        }
     }
     
     @Override
@@ -1,6 +1,7 @@
 package com.undercover.gui.screens;
 
 import com.undercover.gui.*;
+import com.undercover.network.DiscoveryEvent;
 import com.undercover.network.NetworkBridge;
 import javafx.application.Platform;
 import javafx.geometry.*;
@@ -11,8 +12,10 @@ import javafx.scene.shape.Circle;
 import javafx.animation.*;
 import javafx.util.Duration;
 
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -28,11 +31,15 @@ public class JoinServerScreen extends StackPane {
     private ProgressIndicator loadingIndicator;
     private CheckBox includeLocalhostCheckbox;
     private Button joinButton;  // Bouton rejoindre
-    private List<NetworkBridge.ServerInfo> currentServers = new ArrayList<>();
+    // Une carte par serveur (cle ip:port via ServerInfo.equals), dans l'ordre de decouverte
+    private final Map<NetworkBridge.ServerInfo, VBox> serverCards = new LinkedHashMap<>();
+    // Details (noms des joueurs) recus par STATUS_QUERY, par serveur
+    private final Map<NetworkBridge.ServerInfo, NetworkBridge.ServerInfo> serverDetails = new HashMap<>();
     
     private BiConsumer<String, NetworkBridge.ServerInfo> onJoinServer;
     private Runnable onBack;
     private Runnable onRefreshRequest;
+    private Consumer<NetworkBridge.ServerInfo> onDetailsRequest;
     
     public JoinServerScreen() {
         setupUI();
@@ -124,9 +131,8 @@ public class JoinServerScreen extends StackPane {
         includeLocalhostCheckbox = new CheckBox("🏠 Inclure les parties locales (même PC)");
         includeLocalhostCheckbox.setStyle("-fx-font-size: 12px; -fx-text-fill: #666666;");
         includeLocalhostCheckbox.setSelected(true);
-        includeLocalhostCheckbox.setOnAction(e -> {
-            if (onRefreshRequest != null) onRefreshRequest.run();
-        });
+        // La decouverte repart de zero : les cartes actuelles sont retirees
+        includeLocalhostCheckbox.setOnAction(e -> refreshServerList());
         
         section.getChildren().addAll(label, playerNameField, includeLocalhostCheckbox);
         return section;
@@ -209,26 +215,95 @@ public class JoinServerScreen extends StackPane {
         serverListContainer.getChildren().add(emptyState);
     }
     
-    public void updateServerList(List<NetworkBridge.ServerInfo> servers) {
+    /**
+     * Applique un changement de la decouverte : seule la carte concernee est
+     * ajoutee, remplacee ou retiree.
+     */
+    public void applyDiscoveryEvent(DiscoveryEvent event) {
         Platform.runLater(() -> {
-            currentServers = new ArrayList<>(servers);
+            NetworkBridge.ServerInfo server = event.server();
+            if (event instanceof DiscoveryEvent.ServerExpired) {
+                VBox card = serverCards.remove(server);
+                if (card != null) {
+                    serverListContainer.getChildren().remove(card);
+                }
+                serverDetails.remove(server);
+                if (server.equals(selectedServer)) {
+                    clearSelection();
+                }
+            } else {
+                putServerCard(server);
+                // La partie selectionnee a change : redemander ses details
+                if (server.equals(selectedServer)) {
+                    selectedServer = server;
+                    if (!hasCurrentDetails(server)) {
+                        requestDetails(server);
+                    }
+                }
+            }
+            updateListStatus();
+        });
+    }
+    
+    /**
+     * Ajoute la carte d'un serveur, ou remplace l'ancienne a la meme place
+     */
+    private void putServerCard(NetworkBridge.ServerInfo server) {
+        if (serverCards.isEmpty()) {
+            // Retirer le placeholder "Aucune partie trouvée"
             serverListContainer.getChildren().clear();
-            
-            if (servers.isEmpty()) {
-                showEmptyState();
-                statusLabel.setText("🔍 Aucune partie trouvée - Actualisation automatique...");
-                return;
+        }
+        VBox card = createServerCard(server);
+        // remove puis put : la cle garde la derniere annonce (equals ne compare que ip:port)
+        VBox previous = serverCards.remove(server);
+        serverCards.put(server, card);
+        int index = previous != null ? serverListContainer.getChildren().indexOf(previous) : -1;
+        if (index >= 0) {
+            serverListContainer.getChildren().set(index, card);
+        } else {
+            serverListContainer.getChildren().add(card);
+        }
+    }
+    
+    private void updateListStatus() {
+        if (serverCards.isEmpty()) {
+            showEmptyState();
+            statusLabel.setText("🔍 Aucune partie trouvée - Actualisation automatique...");
+        } else {
+            statusLabel.setText("✅ " + serverCards.size() + " partie(s) trouvée(s)");
+        }
+    }
+    
+    /**
+     * Details d'une partie recus de son hote (reponse a STATUS_QUERY)
+     */
+    public void showServerDetails(NetworkBridge.ServerInfo details) {
+        Platform.runLater(() -> {
+            serverDetails.put(details, details);
+            // Redessiner la carte avec l'annonce courante (les noms viennent des details)
+            NetworkBridge.ServerInfo announced = null;
+            for (NetworkBridge.ServerInfo server : serverCards.keySet()) {
+                if (server.equals(details)) {
+                    announced = server;
+                }
             }
-            
-            statusLabel.setText("✅ " + servers.size() + " partie(s) trouvée(s)");
-            
-            for (NetworkBridge.ServerInfo server : servers) {
-                VBox card = createServerCard(server);
-                serverListContainer.getChildren().add(card);
+            if (announced != null) {
+                putServerCard(announced);
             }
         });
     }
     
+    private boolean hasCurrentDetails(NetworkBridge.ServerInfo server) {
+        NetworkBridge.ServerInfo details = serverDetails.get(server);
+        return details != null && details.version >= server.version;
+    }
+    
+    private void requestDetails(NetworkBridge.ServerInfo server) {
+        if (onDetailsRequest != null) {
+            onDetailsRequest.accept(server);
+        }
+    }
+    
     private VBox createServerCard(NetworkBridge.ServerInfo server) {
         VBox card = new VBox(8);
         card.setPadding(new Insets(15));
@@ -274,9 +349,14 @@ public class JoinServerScreen extends StackPane {
         
         info.getChildren().addAll(nameLabel, addressLabel);
         
-        // Afficher les noms des joueurs en petit
-        if (server.playerNames != null && !server.playerNames.isEmpty()) {
-            String names = String.join(", ", server.playerNames);
+        // Afficher les noms des joueurs en petit (annonce d'un ancien hote,
+        // sinon details demandes a la selection)
+        List<String> playerNames = server.playerNames;
+        if (playerNames.isEmpty() && hasCurrentDetails(server)) {
+            playerNames = serverDetails.get(server).playerNames;
+        }
+        if (!playerNames.isEmpty()) {
+            String names = String.join(", ", playerNames);
             Label namesLabel = new Label(names);
             namesLabel.setStyle("-fx-font-size: 10px; -fx-text-fill: #666666; -fx-font-style: italic;");
             namesLabel.setWrapText(true);
@@ -349,6 +429,11 @@ public class JoinServerScreen extends StackPane {
         
         // Mettre à jour visuellement les cartes pour montrer la sélection
         updateCardSelection();
+        
+        // Les noms des joueurs ne sont plus dans l'annonce : les demander a l'hote
+        if (server.playerNames.isEmpty() && !hasCurrentDetails(server)) {
+            requestDetails(server);
+        }
     }
     
     private void updateCardSelection() {
@@ -377,8 +462,22 @@ public class JoinServerScreen extends StackPane {
     private void refreshServerList() {
         loadingIndicator.setVisible(true);
         statusLabel.setText("🔍 Recherche en cours...");
+        serverCards.clear();
+        serverDetails.clear();
+        clearSelection();
         showEmptyState();
-        // Le NetworkBridge appellera updateServerList
+        // La decouverte repart de zero : chaque serveur revient en ServerAdded
+        if (onRefreshRequest != null) onRefreshRequest.run();
+    }
+    
+    private void clearSelection() {
+        selectedServer = null;
+        joinButton.setDisable(true);
+        joinButton.setStyle(
+            "-fx-background-color: #CCCCCC;" +
+            "-fx-text-fill: white; -fx-font-size: 16px; -fx-font-weight: bold;" +
+            "-fx-padding: 15 40; -fx-background-radius: 25;"
+        );
     }
     
     private void handleJoin() {
@@ -419,6 +518,10 @@ public class JoinServerScreen extends StackPane {
         this.onRefreshRequest = handler;
     }
     
+    public void setOnDetailsRequest(Consumer<NetworkBridge.ServerInfo> handler) {
+        this.onDetailsRequest = handler;
+    }
+    
     public boolean isIncludeLocalhost() {
         return includeLocalhostCheckbox.isSelected();
     }
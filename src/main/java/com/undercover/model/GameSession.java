@@ -444,6 +444,14 @@ public class GameSession implements Serializable {
     public void setState(State state) { this.state = state; }
     public void setCurrentTurnIndex(int index) { this.currentTurnIndex = index; }
     
+    /**
+     * Met a jour l'ordre des tours (pour les clients, recu du serveur)
+     */
+    public void setTurnOrder(List<String> order) {
+        this.turnOrder.clear();
+        this.turnOrder.addAll(order);
+    }
+    
     /**
      * Met a jour la liste des joueurs (pour les clients qui recoivent la liste du serveur)
      */
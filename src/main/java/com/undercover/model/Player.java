@@ -24,6 +24,10 @@ public class Player implements Serializable {
     private boolean isHost;
     private boolean isReady;
     
+    // Negocies au JOIN (voir network.protocol.Capabilities)
+    private int protocolVersion;
+    private int capabilities;
+    
     public Player(String name, String ipAddress, int port) {
         this.id = UUID.randomUUID().toString().substring(0, 8);
         this.name = name;
@@ -71,6 +75,8 @@ public class Player implements Serializable {
     public String getSpokenWord() { return spokenWord; }
     public boolean isHost() { return isHost; }
     public boolean isReady() { return isReady; }
+    public int getProtocolVersion() { return protocolVersion; }
+    public int getCapabilities() { return capabilities; }
     
     // Setters
     public void setRole(Role role) { this.role = role; }
@@ -81,6 +87,8 @@ public class Player implements Serializable {
     public void setHost(boolean host) { this.isHost = host; }
     public void setReady(boolean ready) { this.isReady = ready; }
     public void setUdpPort(int udpPort) { this.udpPort = udpPort; }
+    public void setProtocolVersion(int protocolVersion) { this.protocolVersion = protocolVersion; }
+    public void setCapabilities(int capabilities) { this.capabilities = capabilities; }
     
     public void resetForNewRound() {
         this.hasVoted = false;
@@ -2,7 +2,10 @@ package com.undercover.network;
 
 import java.io.*;
 import java.nio.file.*;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
@@ -11,9 +14,26 @@ import java.util.function.Consumer;
  */
 public class BashExecutor {
     
+    // Nombre max de scripts ponctuels executes en meme temps
+    private static final int MAX_WORKERS = 4;
+    // Attente max d'un worker libre avant d'abandonner
+    private static final long WORKER_ACQUIRE_TIMEOUT_MS = 5000;
+    // Duree max d'un script ponctuel
+    private static final long SCRIPT_TIMEOUT_MS = 30000;
+    
+    // Threads des processus continus (startBackground)
     private final ExecutorService executor;
+    // Threads des scripts ponctuels (executeAsync), bornes comme le pool de workers
+    private final ExecutorService oneShotExecutor;
+    private final BashWorkerPool workerPool;
     private final String scriptsDir;
     private final ConcurrentHashMap<String, Process> runningProcesses;
+    // Processus continus en cours de lancement, et ceux a tuer des leur lancement
+    private final AtomicLong processCounter = new AtomicLong();
+    private final Set<String> pendingStarts = ConcurrentHashMap.newKeySet();
+    private final Set<String> stopRequested = ConcurrentHashMap.newKeySet();
+    // Variables d'environnement ajoutees a chaque script (et aux workers)
+    private final Map<String, String> environment = new ConcurrentHashMap<>();
     
     public BashExecutor() {
         this.executor = Executors.newCachedThreadPool(r -> {
@@ -21,7 +41,13 @@ public class BashExecutor {
             t.setDaemon(true);
             return t;
         });
+        this.oneShotExecutor = Executors.newFixedThreadPool(MAX_WORKERS, r -> {
+            Thread t = new Thread(r, "BashExecutor-OneShot");
+            t.setDaemon(true);
+            return t;
+        });
         this.scriptsDir = getScriptsDirectory();
+        this.workerPool = new BashWorkerPool(scriptsDir, environment, MAX_WORKERS, WORKER_ACQUIRE_TIMEOUT_MS, SCRIPT_TIMEOUT_MS);
         this.runningProcesses = new ConcurrentHashMap<>();
         makeScriptsExecutable();
     }
@@ -52,49 +78,59 @@ public class BashExecutor {
     }
     
     /**
-     * Exécute un script de manière synchrone et retourne le résultat
+     * Exécute un script de manière synchrone et retourne le résultat.
+     * Le script tourne dans un worker bash déjà lancé (voir BashWorkerPool).
      */
     public String executeSync(String scriptName, String... args) throws IOException, InterruptedException {
-        ProcessBuilder pb = createProcessBuilder(scriptName, args);
-        Process process = pb.start();
-        
-        StringBuilder output = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-            }
-        }
-        
-        process.waitFor(30, TimeUnit.SECONDS);
-        return output.toString().trim();
+        return workerPool.execute(scriptName, args);
     }
     
     /**
-     * Exécute un script de manière asynchrone avec callback
+     * Exécute un script de manière asynchrone avec callback.
+     * Le temps passé dans la file compte dans le délai d'attente d'un worker.
      */
     public CompletableFuture<String> executeAsync(String scriptName, String... args) {
+        long enqueuedAt = System.nanoTime();
         return CompletableFuture.supplyAsync(() -> {
             try {
-                return executeSync(scriptName, args);
+                return workerPool.execute(enqueuedAt, scriptName, args);
             } catch (Exception e) {
                 throw new CompletionException(e);
             }
-        }, executor);
+        }, oneShotExecutor);
+    }
+    
+    /**
+     * Statistiques du pool de workers (spawns, reutilisations, attente)
+     */
+    public String getWorkerPoolStats() {
+        return workerPool.describeStats();
     }
     
     /**
      * Lance un script en arrière-plan (processus continu)
-     * Retourne un ID pour pouvoir l'arrêter plus tard
+     * Retourne un ID pour pouvoir l'arrêter plus tard.
+     *
+     * stopBackground peut etre appele avant que le processus ait demarre
+     * (demarrage asynchrone) : il est alors tue des son lancement.
      */
     public String startBackground(String scriptName, Consumer<String> outputHandler, String... args) {
-        String processId = scriptName + "_" + System.currentTimeMillis();
+        // Compteur : deux lancements dans la meme milliseconde ont des IDs distincts
+        String processId = scriptName + "_" + processCounter.incrementAndGet();
+        pendingStarts.add(processId);
         
         executor.submit(() -> {
             try {
                 ProcessBuilder pb = createProcessBuilder(scriptName, args);
                 Process process = pb.start();
-                runningProcesses.put(processId, process);
+                synchronized (runningProcesses) {
+                    pendingStarts.remove(processId);
+                    if (stopRequested.remove(processId)) {
+                        process.destroy();
+                        return;
+                    }
+                    runningProcesses.put(processId, process);
+                }
                 
                 try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
                     String line;
@@ -107,6 +143,8 @@ public class BashExecutor {
             } catch (IOException e) {
                 // Process terminé ou erreur
             } finally {
+                pendingStarts.remove(processId);
+                stopRequested.remove(processId);
                 runningProcesses.remove(processId);
             }
         });
@@ -114,11 +152,32 @@ public class BashExecutor {
         return processId;
     }
     
+    /**
+     * Lance un script en arrière-plan en gardant son entrée standard ouverte.
+     * Java écrit dans le pipe, le script consomme ligne par ligne
+     * (ex: udp_channel.sh). La sortie du script est ignorée.
+     */
+    public Process startInteractive(String processId, String scriptName, String... args) throws IOException {
+        ProcessBuilder pb = createProcessBuilder(scriptName, args);
+        pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        Process process = pb.start();
+        runningProcesses.put(processId, process);
+        process.onExit().thenRun(() -> runningProcesses.remove(processId, process));
+        return process;
+    }
+
     /**
      * Arrête un processus en arrière-plan
      */
     public void stopBackground(String processId) {
-        Process process = runningProcesses.remove(processId);
+        Process process;
+        synchronized (runningProcesses) {
+            process = runningProcesses.remove(processId);
+            if (process == null && pendingStarts.contains(processId)) {
+                // Pas encore lance : startBackground le tuera au demarrage
+                stopRequested.add(processId);
+            }
+        }
         if (process != null && process.isAlive()) {
             process.destroy();
             try {
@@ -141,6 +200,18 @@ public class BashExecutor {
         runningProcesses.clear();
     }
     
+    /**
+     * Definit une variable d'environnement pour les scripts lances ensuite
+     * (null la retire). Un processus deja lance garde son environnement.
+     */
+    public void setEnvironment(String key, String value) {
+        if (value == null) {
+            environment.remove(key);
+        } else {
+            environment.put(key, value);
+        }
+    }
+    
     private ProcessBuilder createProcessBuilder(String scriptName, String... args) {
         String scriptPath = Paths.get(scriptsDir, scriptName).toString();
         
@@ -152,23 +223,16 @@ public class BashExecutor {
         ProcessBuilder pb = new ProcessBuilder(command);
         pb.redirectErrorStream(true);
         pb.directory(new File(scriptsDir));
+        pb.environment().putAll(environment);
         
         return pb;
     }
     
-    /**
-     * Récupère l'IP locale via le script Bash
-     */
-    public String getLocalIp() {
-        try {
-            return executeSync("get_local_ip.sh");
-        } catch (Exception e) {
-            return "127.0.0.1";
-        }
-    }
-    
     public void shutdown() {
+        System.out.println(workerPool.describeStats());
         stopAll();
+        workerPool.shutdown();
+        oneShotExecutor.shutdownNow();
         executor.shutdown();
         try {
             if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -0,0 +1,219 @@
+package com.undercover.network;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BashWorkerPool - Pool borne de processus bash pre-lances
+ *
+ * Chaque worker execute bash_worker.sh et attend des commandes
+ * "script + arguments" sur stdin. Les scripts ponctuels (send_tcp.sh,
+ * listen_localhost.sh, get_local_ip.sh...) ne coutent donc plus un
+ * fork + exec de bash a chaque appel, et le nombre de processus
+ * simultanes est plafonne.
+ */
+public class BashWorkerPool {
+
+    private static final String END_MARKER = "__UNDERCOVER_END__";
+    private static final String WORKER_SCRIPT = "bash_worker.sh";
+
+    private final String scriptsDir;
+    private final Map<String, String> environment;
+    private final int maxWorkers;
+    private final long acquireTimeoutMs;
+    private final long executionTimeoutMs;
+
+    // Un permis par processus autorise a tourner en meme temps
+    private final Semaphore permits;
+    private final BlockingDeque<Worker> idleWorkers = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService watchdog;
+    private volatile boolean closed;
+
+    // Compteurs
+    private final AtomicLong spawns = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+    private final AtomicLong queueTimeouts = new AtomicLong();
+    private final AtomicLong executionTimeouts = new AtomicLong();
+    private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLong executions = new AtomicLong();
+
+    public BashWorkerPool(String scriptsDir, Map<String, String> environment, int maxWorkers,
+                          long acquireTimeoutMs, long executionTimeoutMs) {
+        this.scriptsDir = scriptsDir;
+        this.environment = environment;
+        this.maxWorkers = maxWorkers;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.executionTimeoutMs = executionTimeoutMs;
+        this.permits = new Semaphore(maxWorkers, true);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "BashWorkerPool-Watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Execute un script dans un worker et retourne sa sortie.
+     */
+    public String execute(String scriptName, String... args) throws IOException, InterruptedException {
+        return execute(System.nanoTime(), scriptName, args);
+    }
+
+    /**
+     * Execute un script en comptant l'attente depuis enqueuedAt (System.nanoTime()).
+     * Le delai d'attente d'un worker libre est borne par acquireTimeoutMs.
+     */
+    public String execute(long enqueuedAt, String scriptName, String... args) throws IOException, InterruptedException {
+        if (closed) {
+            throw new IOException("Pool bash arrete");
+        }
+
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs) - (System.nanoTime() - enqueuedAt);
+        if (remainingNanos <= 0 || !permits.tryAcquire(remainingNanos, TimeUnit.NANOSECONDS)) {
+            queueTimeouts.incrementAndGet();
+            throw new IOException("Pool bash sature (" + maxWorkers + " workers occupes) pour " + scriptName);
+        }
+        recordQueueWait(System.nanoTime() - enqueuedAt);
+
+        Worker worker = null;
+        try {
+            worker = takeWorker();
+            String output = worker.run(scriptName, args);
+            executions.incrementAndGet();
+            return output;
+        } catch (IOException e) {
+            // Worker dans un etat inconnu : on le jette
+            if (worker != null) {
+                worker.destroy();
+                worker = null;
+            }
+            throw e;
+        } finally {
+            if (worker != null) {
+                if (closed || !worker.isAlive()) {
+                    worker.destroy();
+                } else {
+                    idleWorkers.offerFirst(worker);
+                }
+            }
+            permits.release();
+        }
+    }
+
+    private Worker takeWorker() throws IOException {
+        Worker worker;
+        while ((worker = idleWorkers.pollFirst()) != null) {
+            if (worker.isAlive()) {
+                reuses.incrementAndGet();
+                return worker;
+            }
+            worker.destroy();
+        }
+        spawns.incrementAndGet();
+        return new Worker();
+    }
+
+    private void recordQueueWait(long waitNanos) {
+        totalQueueWaitNanos.addAndGet(waitNanos);
+        maxQueueWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    public long getSpawnCount() { return spawns.get(); }
+    public long getReuseCount() { return reuses.get(); }
+    public long getQueueTimeoutCount() { return queueTimeouts.get(); }
+    public long getExecutionTimeoutCount() { return executionTimeouts.get(); }
+    public int getActiveCount() { return maxWorkers - permits.availablePermits(); }
+    public int getQueueLength() { return permits.getQueueLength(); }
+
+    public double getAverageQueueWaitMs() {
+        long n = spawns.get() + reuses.get();
+        return n == 0 ? 0 : totalQueueWaitNanos.get() / 1_000_000.0 / n;
+    }
+
+    public String describeStats() {
+        return String.format(
+            "BashWorkerPool[max=%d, actifs=%d, en attente=%d, spawns=%d, reuses=%d, executions=%d, "
+                + "attente moy=%.2fms, attente max=%.2fms, timeouts file=%d, timeouts exec=%d]",
+            maxWorkers, getActiveCount(), getQueueLength(), spawns.get(), reuses.get(), executions.get(),
+            getAverageQueueWaitMs(), maxQueueWaitNanos.get() / 1_000_000.0,
+            queueTimeouts.get(), executionTimeouts.get());
+    }
+
+    public void shutdown() {
+        closed = true;
+        Worker worker;
+        while ((worker = idleWorkers.pollFirst()) != null) {
+            worker.destroy();
+        }
+        watchdog.shutdownNow();
+    }
+
+    // =====================================================================
+    // WORKER
+    // =====================================================================
+
+    private class Worker {
+        private final Process process;
+        private final OutputStream stdin;
+        private final BufferedReader stdout;
+
+        Worker() throws IOException {
+            ProcessBuilder pb = new ProcessBuilder(
+                "/bin/bash", Paths.get(scriptsDir, WORKER_SCRIPT).toString(), END_MARKER);
+            pb.redirectErrorStream(true);
+            pb.directory(new File(scriptsDir));
+            pb.environment().putAll(environment);
+            this.process = pb.start();
+            this.stdin = new BufferedOutputStream(process.getOutputStream());
+            this.stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        String run(String scriptName, String... args) throws IOException {
+            writeField(scriptName);
+            writeField(String.valueOf(args.length));
+            for (String arg : args) {
+                writeField(arg);
+            }
+            stdin.flush();
+
+            // Si le script bloque, le watchdog tue le worker et readLine() sort en EOF
+            ScheduledFuture<?> timeout = watchdog.schedule(() -> {
+                executionTimeouts.incrementAndGet();
+                destroy();
+            }, executionTimeoutMs, TimeUnit.MILLISECONDS);
+
+            try {
+                StringBuilder output = new StringBuilder();
+                String line;
+                while ((line = stdout.readLine()) != null) {
+                    if (line.startsWith(END_MARKER)) {
+                        return output.toString().trim();
+                    }
+                    output.append(line).append("\n");
+                }
+                throw new IOException("Worker bash termine pendant " + scriptName);
+            } finally {
+                timeout.cancel(false);
+            }
+        }
+
+        private void writeField(String value) throws IOException {
+            stdin.write(value.getBytes(StandardCharsets.UTF_8));
+            stdin.write(0);
+        }
+
+        boolean isAlive() {
+            return process.isAlive();
+        }
+
+        void destroy() {
+            process.descendants().forEach(ProcessHandle::destroy);
+            process.destroy();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.undercover.network;
+
+import com.undercover.network.protocol.Capabilities;
+import com.undercover.network.protocol.ProtocolMessage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BroadcastGroup - Ensemble des pairs UDP auxquels l'hote diffuse
+ *
+ * Les membres sont ajoutes quand un joueur rejoint et retires quand il part.
+ * Un message diffuse est serialise UNE seule fois en un tableau d'octets
+ * partage, puis ecrit dans le canal UDP de chaque membre : le cout d'une
+ * diffusion depend de la taille du message, pas du nombre de joueurs
+ * multiplie par le cout de serialisation.
+ */
+public class BroadcastGroup {
+
+    /**
+     * Adresse UDP d'un membre du groupe et capacites negociees au JOIN
+     */
+    public record Member(String id, String ip, int udpPort, int capabilities) {}
+
+    private final NetworkBridge networkBridge;
+    private final Map<String, Member> members = new ConcurrentHashMap<>();
+
+    public BroadcastGroup(NetworkBridge networkBridge) {
+        this.networkBridge = networkBridge;
+    }
+
+    /**
+     * Ajoute (ou met a jour) un membre et ouvre son canal UDP persistant,
+     * avec livraison fiable si le membre a la capacite RELIABLE
+     */
+    public void add(String id, String ip, int udpPort, int capabilities) {
+        Member previous = members.put(id, new Member(id, ip, udpPort, capabilities));
+        if (previous != null && (!previous.ip().equals(ip) || previous.udpPort() != udpPort)) {
+            networkBridge.closeUdpChannel(previous.ip(), previous.udpPort());
+        }
+        networkBridge.openUdpChannel(ip, udpPort);
+        if (Capabilities.has(capabilities, Capabilities.RELIABLE)) {
+            networkBridge.enableReliableDelivery(ip, udpPort);
+        }
+    }
+
+    /**
+     * Retire un membre et ferme son canal UDP
+     */
+    public void remove(String id) {
+        Member member = members.remove(id);
+        if (member != null) {
+            networkBridge.closeUdpChannel(member.ip(), member.udpPort());
+        }
+    }
+
+    public void clear() {
+        for (String id : new ArrayList<>(members.keySet())) {
+            remove(id);
+        }
+    }
+
+    public boolean contains(String id) {
+        return members.containsKey(id);
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    /**
+     * Capacites supportees par tous les membres (et par l'hote lui-meme)
+     */
+    public int commonCapabilities(int hostCapabilities) {
+        int common = hostCapabilities;
+        for (Member member : members.values()) {
+            common &= member.capabilities();
+        }
+        return common;
+    }
+
+    /**
+     * Diffuse un message a tous les membres
+     */
+    public void send(ProtocolMessage message) {
+        sendExcept(message, Collections.emptySet());
+    }
+
+    /**
+     * Diffuse un message a tous les membres sauf ceux dont l'id est exclu
+     */
+    public void sendExcept(ProtocolMessage message, Set<String> excludeIds) {
+        if (members.isEmpty()) {
+            return;
+        }
+        byte[] payload = networkBridge.getWireFormat().encodeToBytes(message);
+
+        List<Member> targets = new ArrayList<>(members.size());
+        for (Member member : members.values()) {
+            if (!excludeIds.contains(member.id())) {
+                targets.add(member);
+            }
+        }
+        networkBridge.sendUdpToAll(targets, message.type(), payload);
+    }
+}
@@ -0,0 +1,22 @@
+package com.undercover.network;
+
+/**
+ * DiscoveryEvent - Changement dans la liste des serveurs decouverts
+ *
+ * Emis par DiscoveryRegistry : l'ecran "Rejoindre" n'applique que le
+ * changement (une carte ajoutee, remplacee ou retiree) au lieu de
+ * reconstruire toute la liste a chaque annonce.
+ */
+public sealed interface DiscoveryEvent {
+
+    NetworkBridge.ServerInfo server();
+
+    /** Premiere annonce de ce serveur (ou retour apres expiration) */
+    record ServerAdded(NetworkBridge.ServerInfo server) implements DiscoveryEvent {}
+
+    /** Le serveur annonce un nouvel etat (joueurs, version...) */
+    record ServerUpdated(NetworkBridge.ServerInfo server) implements DiscoveryEvent {}
+
+    /** Plus aucune annonce depuis DiscoveryRegistry.TTL_MS */
+    record ServerExpired(NetworkBridge.ServerInfo server) implements DiscoveryEvent {}
+}
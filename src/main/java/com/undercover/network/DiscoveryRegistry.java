@@ -0,0 +1,99 @@
+package com.undercover.network;
+
+import com.undercover.network.DiscoveryEvent.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DiscoveryRegistry - Serveurs decouverts, en memoire, avec expiration
+ *
+ * Alimente par discovery_listener.sh (une ligne SERVER_ANNOUNCE par annonce
+ * recue) et par la lecture du registre localhost. Cle : "ip:port", une
+ * annonce coute donc une recherche dans la table quel que soit le nombre de
+ * parties. Un serveur qui n'a rien annonce depuis TTL_MS est retire : un
+ * hote inactif annonce au moins toutes les 5 secondes.
+ *
+ * Chaque changement est rendu sous forme de DiscoveryEvent.
+ */
+public class DiscoveryRegistry {
+
+    /** Duree de vie d'un serveur sans nouvelle annonce */
+    public static final long TTL_MS = 15_000;
+
+    private static final class Entry {
+        NetworkBridge.ServerInfo info;
+        long lastSeen;
+
+        Entry(NetworkBridge.ServerInfo info, long lastSeen) {
+            this.info = info;
+            this.lastSeen = lastSeen;
+        }
+    }
+
+    private final Map<String, Entry> servers = new LinkedHashMap<>();
+
+    /**
+     * Enregistre une annonce. Retourne ServerAdded pour un nouveau serveur,
+     * ServerUpdated si ce qu'il annonce a change, null sinon (simple
+     * rafraichissement de sa duree de vie).
+     */
+    public synchronized DiscoveryEvent update(NetworkBridge.ServerInfo info, long now) {
+        String key = info.ip + ":" + info.port;
+        Entry entry = servers.get(key);
+        if (entry == null) {
+            servers.put(key, new Entry(info, now));
+            return new ServerAdded(info);
+        }
+        boolean changed = !sameAnnouncement(entry.info, info);
+        entry.info = info;
+        entry.lastSeen = now;
+        return changed ? new ServerUpdated(info) : null;
+    }
+
+    /**
+     * Retire les serveurs muets depuis plus de TTL_MS (un ServerExpired par serveur retire)
+     */
+    public synchronized List<DiscoveryEvent> expire(long now) {
+        List<DiscoveryEvent> expired = new ArrayList<>();
+        Iterator<Entry> it = servers.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (now - entry.lastSeen > TTL_MS) {
+                it.remove();
+                expired.add(new ServerExpired(entry.info));
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Serveurs connus, dans l'ordre de decouverte
+     */
+    public synchronized List<NetworkBridge.ServerInfo> snapshot() {
+        List<NetworkBridge.ServerInfo> result = new ArrayList<>(servers.size());
+        for (Entry entry : servers.values()) {
+            result.add(entry.info);
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        servers.clear();
+    }
+
+    public synchronized int size() {
+        return servers.size();
+    }
+
+    private static boolean sameAnnouncement(NetworkBridge.ServerInfo a, NetworkBridge.ServerInfo b) {
+        return a.version == b.version
+            && a.currentPlayers == b.currentPlayers
+            && a.maxPlayers == b.maxPlayers
+            && a.name.equals(b.name)
+            && a.playerNames.equals(b.playerNames);
+    }
+}
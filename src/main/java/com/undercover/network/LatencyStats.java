@@ -0,0 +1,47 @@
+package com.undercover.network;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LatencyStats - Compteur de latences (en microsecondes), sans verrou
+ */
+public class LatencyStats {
+
+    private final String label;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public LatencyStats(String label) {
+        this.label = label;
+    }
+
+    public void record(long micros) {
+        if (micros < 0) {
+            return;
+        }
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public long getCount() { return count.get(); }
+
+    public double getAverageMs() {
+        long n = count.get();
+        return n == 0 ? 0 : totalMicros.get() / 1000.0 / n;
+    }
+
+    public double getMaxMs() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    public String describe() {
+        return String.format("%s: n=%d, moy=%.2fms, max=%.2fms", label, getCount(), getAverageMs(), getMaxMs());
+    }
+
+    @Override
+    public String toString() {
+        return describe();
+    }
+}
@@ -0,0 +1,155 @@
+package com.undercover.network;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MessageCodec - Encodage / decodage JSON des messages reseau
+ *
+ * Une seule instance Gson partagee (sans pretty printing : une ligne par
+ * message), et l'encodage passe par un JsonWriter qui ecrit dans un
+ * StringBuilder reutilise par thread. Le decodage lit la ligne en flux avec
+ * un JsonReader : chaque champ est passe a l'appelant, qui range directement
+ * sa valeur dans le message type (aucun arbre JsonObject construit).
+ */
+public final class MessageCodec {
+
+    /** Instance partagee : Gson est thread-safe et couteux a construire */
+    public static final Gson GSON = new Gson();
+
+    // Au-dela, le buffer n'est pas garde (evite de retenir un gros message)
+    private static final int MAX_RETAINED_CHARS = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilderWriter> WRITERS =
+        ThreadLocal.withInitial(StringBuilderWriter::new);
+
+    private MessageCodec() {}
+
+    /**
+     * Ecriture d'un message directement dans un JsonWriter
+     */
+    @FunctionalInterface
+    public interface JsonWriterAction {
+        void write(JsonWriter out) throws IOException;
+    }
+
+    /**
+     * Lecture d'un champ : consomme la valeur du champ name (ou in.skipValue())
+     */
+    @FunctionalInterface
+    public interface FieldReader {
+        void read(JsonReader in, String name) throws IOException;
+    }
+
+    /**
+     * Encode un message en une ligne JSON
+     */
+    public static String encode(JsonElement message) {
+        return encode(out -> GSON.toJson(message, out));
+    }
+
+    /**
+     * Encode une ligne JSON ecrite par action, dans le buffer du thread courant
+     */
+    public static String encode(JsonWriterAction action) {
+        StringBuilderWriter out = WRITERS.get();
+        out.reset();
+        try {
+            action.write(new JsonWriter(out));
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        String json = out.toString();
+        if (out.capacity() > MAX_RETAINED_CHARS) {
+            WRITERS.remove();
+        }
+        return json;
+    }
+
+    /**
+     * Encode un message en octets UTF-8 (pret a etre ecrit dans un canal)
+     */
+    public static byte[] encodeToBytes(JsonElement message) {
+        return encode(message).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lit une ligne JSON en flux : chaque champ de l'objet est passe a fields.
+     * Leve JsonSyntaxException si la ligne n'est pas un objet JSON valide.
+     */
+    public static void readObject(String line, FieldReader fields) {
+        try {
+            readObject(new JsonReader(new StringReader(line)), fields);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Lit l'objet suivant du flux (element d'un tableau, objet imbrique...)
+     */
+    public static void readObject(JsonReader in, FieldReader fields) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            fields.read(in, in.nextName());
+        }
+        in.endObject();
+    }
+
+    /**
+     * Writer sur un StringBuilder reutilisable (pas de synchronisation,
+     * contrairement a StringWriter qui s'appuie sur un StringBuffer)
+     */
+    private static final class StringBuilderWriter extends Writer {
+        private final StringBuilder builder = new StringBuilder(512);
+
+        void reset() {
+            builder.setLength(0);
+        }
+
+        int capacity() {
+            return builder.capacity();
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            builder.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            builder.append(str, off, off + len);
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            builder.append(csq);
+            return this;
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
+    }
+}
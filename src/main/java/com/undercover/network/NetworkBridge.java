@@ -1,11 +1,18 @@
 package com.undercover.network;
 
-import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.undercover.network.protocol.MessageType;
+import com.undercover.network.protocol.ProtocolCodec;
+import com.undercover.network.protocol.ProtocolMessage;
+import com.undercover.network.protocol.WireFormat;
 import java.util.concurrent.*;
 import java.util.function.Consumer;
 import java.util.*;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.time.Instant;
 
 /**
  * NetworkBridge - Pont entre Java et les scripts Bash pour le reseau
@@ -13,20 +20,48 @@ import java.nio.file.*;
  * PRINCIPE : Java ne fait AUCUN socket.
  * Toute la communication passe par des scripts Bash :
  *   - broadcast_server.sh / broadcast_localhost.sh : annonces UDP
- *   - listen_servers.sh / listen_localhost.sh : decouverte de serveurs
+ *   - discovery_listener.sh : ecoute continue des annonces LAN
+ *   - listen_servers.sh / listen_localhost.sh : decouverte de serveurs (scans ponctuels)
  *   - send_tcp.sh : envoi TCP (fiable, pour JOIN)
  *   - tcp_server.sh + handle_tcp_client.sh : reception TCP
  *   - send_udp.sh : envoi UDP (rapide, pour messages de jeu)
  *   - udp_server.sh : reception UDP
- *   - get_local_ip.sh : recuperation de l'IP locale
+ *   - probe_network.sh : releve de l'IP locale, des interfaces et des outils (NetworkEnvironment)
+ *
+ * Quatre pools separes (NetworkExecutor) : reception (handlers des messages
+ * recus), envoi (send_udp.sh, qui attend son processus), minuteries
+ * (renvois ReliableUdp, remise en ordre, rythme des files d'envoi) et
+ * decouverte. Une diffusion bloquee sur des envois ne retarde pas le
+ * traitement des votes recus, et une passe de decouverte lente ne retarde
+ * pas les renvois.
  */
 public class NetworkBridge {
     
     private final BashExecutor bashExecutor;
-    private final Gson gson;
-    private final ScheduledExecutorService scheduler;
+    private final NetworkEnvironment networkEnvironment;
+    // Handlers des messages recus ; file pleine : le lecteur attend (aucun message perdu)
+    private final NetworkExecutor receiveExecutor =
+        NetworkExecutor.bounded("Receive", 4, 256, NetworkExecutor.Overflow.CALLER_RUNS);
+    // Envois par send_udp.sh ; file pleine : un message non critique est abandonne,
+    // un critique (ReliableUdp.CRITICAL_TYPES) est envoye par l'appelant
+    private final NetworkExecutor sendExecutor =
+        NetworkExecutor.bounded("Send", 4, 128, NetworkExecutor.Overflow.DISCARD);
+    // Tick ReliableUdp, attente de remise en ordre, reprise des files d'envoi.
+    // Deux threads : une ecriture de file d'envoi bloquee sur un pipe ne
+    // retarde pas les renvois.
+    private final NetworkExecutor timerExecutor = NetworkExecutor.scheduled("Timers", 2);
+    // Passes de decouverte uniquement (lecture du registre localhost)
+    private final NetworkExecutor discoveryExecutor = NetworkExecutor.scheduled("Discovery", 1);
     
-    private String broadcastProcessId;
+    // Script d'annonce du serveur (stdin ouvert pour les mises a jour)
+    private Process broadcastProcess;
+    private OutputStream broadcastInput;
+    private String broadcastKey;
+    // Champs servis par status.json ; la version augmente a chaque changement,
+    // y compris quand le script d'annonce est relance (jamais remise a 1)
+    private String announcedName;
+    private int announcedMaxPlayers;
+    private int announcementVersion;
     private String tcpServerProcessId;
     private String udpServerProcessId;
     private volatile boolean running;
@@ -37,23 +72,119 @@ public class NetworkBridge {
     // Port TCP en cours d'ecoute
     private int tcpPort;
     
-    // Repertoire d'inbox TCP (les messages recus par tcp_server.sh y sont ecrits)
-    private static final String TCP_INBOX_DIR = "/tmp/undercover_tcp_inbox";
-    private static final String TCP_INBOX_FILE = TCP_INBOX_DIR + "/messages.jsonl";
+    // Repertoire racine des inbox TCP : un sous-dossier par port d'ecoute,
+    // pour que plusieurs instances locales ne lisent pas les messages des autres
+    private static final String TCP_INBOX_ROOT = "/tmp/undercover_tcp_inbox";
+    private Path tcpInboxDir;
     private Thread tcpInboxPollerThread;
     
+    /**
+     * Mode de livraison des messages TCP vers Java :
+     * PUSH = tcp_server.sh recopie chaque message sur stdout (via un pipe nomme),
+     * POLL = les messages sont ajoutes au fichier d'inbox, relu toutes les 100ms.
+     */
+    public enum TcpDeliveryMode { PUSH, POLL }
+    
+    private volatile TcpDeliveryMode tcpDeliveryMode =
+        "poll".equalsIgnoreCase(System.getProperty("undercover.tcp.delivery")) ? TcpDeliveryMode.POLL : TcpDeliveryMode.PUSH;
+    
+    // Delai entre la reception par handle_tcp_client.sh et le traitement Java
+    private final LatencyStats tcpPushLatency = new LatencyStats("Livraison TCP (push)");
+    private final LatencyStats tcpPollLatency = new LatencyStats("Livraison TCP (poll)");
+
+    // Format des messages envoyes (la reception accepte les deux formats)
+    private volatile WireFormat wireFormat = WireFormat.fromSystemProperty();
+
+    /**
+     * Transport des annonces LAN :
+     * BROADCAST = adresse de broadcast du sous-reseau (tous les hotes la recoivent),
+     * MULTICAST = groupe IPv4 (seuls les abonnes la recoivent, sur chaque interface),
+     * BOTH = les deux, pour rester visible des pairs en mode broadcast.
+     */
+    public enum DiscoveryMode { BROADCAST, MULTICAST, BOTH }
+    
+    private volatile DiscoveryMode discoveryMode = parseDiscoveryMode(System.getProperty("undercover.discovery.mode"));
+    
+    // Registre localhost : un fichier <port>.json par serveur (broadcast_localhost.sh)
+    private static final String LOCAL_REGISTRY_DIR = "/tmp/undercover_servers.d";
+    
+    // Decouverte continue des serveurs (ecran "Rejoindre")
+    private final DiscoveryRegistry discoveryRegistry = new DiscoveryRegistry();
+    private String discoveryListenerId;
+    private ScheduledFuture<?> discoveryTask;
+    private Consumer<DiscoveryEvent> discoveryConsumer;
+    private boolean discoveryIncludeLocalhost;
+    private volatile boolean discoveryActive;
+    // Incremente a chaque pause/reprise : une passe d'une ancienne session ne se replanifie pas
+    private volatile int discoveryGeneration;
+    // Delai entre deux passes (localhost + expiration), double tant que rien ne change
+    private static final long DISCOVERY_POLL_MIN_MS = 1000;
+    private static final long DISCOVERY_POLL_MAX_MS = 8000;
+    private volatile long discoveryPollDelayMs = DISCOVERY_POLL_MIN_MS;
+
+    // Canaux UDP persistants (un processus udp_channel.sh par pair, cle "ip:port")
+    private final Map<String, UdpChannel> udpChannels = new ConcurrentHashMap<>();
+    
+    // Livraison fiable (capacite RELIABLE) : numeros de sequence, acquittements, renvois
+    private final ReliableUdp reliableUdp = new ReliableUdp(this::sendEnvelope);
+    // Messages UDP recus : une boite serie par emetteur, remise en ordre par seq
+    private final SenderMailboxes udpMailboxes;
+    // Messages UDP a envoyer : une file par pair, par priorite, au debit -Dundercover.udp.peer.rate
+    private final PeerOutboxes udpOutboxes;
+    private ScheduledFuture<?> reliableTask;
+    // IP locale annoncee aux pairs (champ from des enveloppes)
+    private volatile String localIp = "127.0.0.1";
+
     public NetworkBridge() {
         this.bashExecutor = new BashExecutor();
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
-        this.scheduler = Executors.newScheduledThreadPool(4, r -> {
-            Thread t = new Thread(r, "NetworkBridge-Scheduler");
-            t.setDaemon(true);
-            return t;
-        });
+        this.networkEnvironment = new NetworkEnvironment(bashExecutor);
+        this.udpMailboxes = new SenderMailboxes(receiveExecutor, timerExecutor.scheduler());
+        this.udpOutboxes = new PeerOutboxes(this::transmit, timerExecutor.scheduler(),
+            Long.getLong("undercover.udp.peer.rate", PeerOutboxes.DEFAULT_RATE_BYTES));
         this.running = false;
         this.localhostMode = false;
         this.udpPort = 0;
         this.tcpPort = 0;
+        // Groupe et TTL multicast : -Dundercover.discovery.group / .ttl (defauts dans les scripts)
+        bashExecutor.setEnvironment("UNDERCOVER_MCAST_GROUP", System.getProperty("undercover.discovery.group"));
+        bashExecutor.setEnvironment("UNDERCOVER_MCAST_TTL", System.getProperty("undercover.discovery.ttl"));
+        bashExecutor.setEnvironment("UNDERCOVER_DISCOVERY_MODE", discoveryMode.name().toLowerCase());
+    }
+    
+    /**
+     * Interfaces d'envoi / d'abonnement multicast, relevees par NetworkEnvironment.
+     * Vide en mode BROADCAST : les scripts n'en ont pas besoin (pas de releve).
+     */
+    private String multicastInterfaces() {
+        return discoveryMode == DiscoveryMode.BROADCAST ? "" : networkEnvironment.getInterfaceAddresses();
+    }
+    
+    private static DiscoveryMode parseDiscoveryMode(String value) {
+        if ("multicast".equalsIgnoreCase(value)) {
+            return DiscoveryMode.MULTICAST;
+        }
+        return "both".equalsIgnoreCase(value) ? DiscoveryMode.BOTH : DiscoveryMode.BROADCAST;
+    }
+    
+    /**
+     * Change le transport des annonces LAN (-Dundercover.discovery.mode).
+     * S'applique a l'annonce et a l'ecoute lancees ensuite : une ecoute
+     * active est relancee, l'annonce d'une partie en cours ne change pas.
+     */
+    public synchronized void setDiscoveryMode(DiscoveryMode mode) {
+        if (mode == discoveryMode) {
+            return;
+        }
+        discoveryMode = mode;
+        bashExecutor.setEnvironment("UNDERCOVER_DISCOVERY_MODE", mode.name().toLowerCase());
+        if (discoveryActive) {
+            pauseServerDiscovery();
+            resumeServerDiscovery();
+        }
+    }
+    
+    public DiscoveryMode getDiscoveryMode() {
+        return discoveryMode;
     }
     
     /**
@@ -79,54 +210,175 @@ public class NetworkBridge {
     }
     
     /**
-     * Démarre le broadcast du serveur avec les noms des joueurs
+     * Démarre le broadcast du serveur avec les noms des joueurs.
+     * Le script est lance une seule fois par session : si l'annonce de ce
+     * serveur tourne deja, seuls le nombre et les noms des joueurs changent.
+     * Les noms ne sont pas diffuses : ils sont servis a la demande (STATUS_QUERY).
      */
-    public void startServerBroadcast(String serverIp, int serverPort, String sessionName, 
+    public synchronized void startServerBroadcast(String serverIp, int serverPort, String sessionName, 
                                       int maxPlayers, int currentPlayers, List<String> playerNames) {
-        if (broadcastProcessId != null) {
-            bashExecutor.stopBackground(broadcastProcessId);
-        }
-        
         running = true;
-        String namesArg = playerNames != null ? String.join(",", playerNames) : "";
+        String key = serverIp + ":" + serverPort + ":" + sessionName + ":" + maxPlayers;
+        if (key.equals(broadcastKey) && updateServerBroadcast(currentPlayers, playerNames)) {
+            return;
+        }
+        stopServerBroadcast();
         
-        if (localhostMode) {
-            // Mode localhost - utilise le fichier partagé
-            broadcastProcessId = bashExecutor.startBackground(
-                "broadcast_localhost.sh",
-                output -> {
-                    // Log optionnel des annonces
-                },
-                String.valueOf(serverPort),
-                sessionName,
-                String.valueOf(maxPlayers),
-                String.valueOf(currentPlayers),
-                namesArg
-            );
-        } else {
-            // Mode LAN - broadcast UDP
-            broadcastProcessId = bashExecutor.startBackground(
-                "broadcast_server.sh",
-                output -> {
-                    // Log optionnel des annonces
-                },
-                serverIp,
-                String.valueOf(serverPort),
-                sessionName,
-                String.valueOf(maxPlayers),
-                String.valueOf(currentPlayers),
-                namesArg
-            );
+        announcedName = sessionName;
+        announcedMaxPlayers = maxPlayers;
+        // Un client compare la version de ses details a celle de l'annonce :
+        // elle ne doit pas redescendre si le script est relance
+        announcementVersion++;
+        writeServerStatus(currentPlayers, playerNames);
+        try {
+            Process process;
+            if (localhostMode) {
+                // Mode localhost - utilise le fichier partagé
+                process = bashExecutor.startInteractive(
+                    "broadcast_localhost_" + serverPort,
+                    "broadcast_localhost.sh",
+                    String.valueOf(serverPort),
+                    sessionName,
+                    String.valueOf(maxPlayers),
+                    String.valueOf(currentPlayers),
+                    String.valueOf(announcementVersion)
+                );
+            } else {
+                // Mode LAN - broadcast UDP
+                process = bashExecutor.startInteractive(
+                    "broadcast_server_" + serverPort,
+                    "broadcast_server.sh",
+                    serverIp,
+                    String.valueOf(serverPort),
+                    sessionName,
+                    String.valueOf(maxPlayers),
+                    String.valueOf(currentPlayers),
+                    String.valueOf(announcementVersion),
+                    networkEnvironment.getBroadcastAddress(serverIp),
+                    multicastInterfaces()
+                );
+            }
+            broadcastProcess = process;
+            broadcastInput = new BufferedOutputStream(process.getOutputStream(), 1024);
+            broadcastKey = key;
+        } catch (IOException e) {
+            System.err.println("Erreur demarrage annonce serveur: " + e.getMessage());
         }
     }
     
     /**
-     * Arrête le broadcast du serveur
+     * Signale un changement au script d'annonce deja lance : la version
+     * augmente, status.json est reecrit, puis une ligne "nombre<TAB>version"
+     * sur l'entree standard du script declenche une annonce immediate.
+     * Retourne false si aucune annonce ne tourne.
      */
-    public void stopServerBroadcast() {
-        if (broadcastProcessId != null) {
-            bashExecutor.stopBackground(broadcastProcessId);
-            broadcastProcessId = null;
+    public synchronized boolean updateServerBroadcast(int currentPlayers, List<String> playerNames) {
+        if (broadcastProcess == null || !broadcastProcess.isAlive()) {
+            return false;
+        }
+        announcementVersion++;
+        writeServerStatus(currentPlayers, playerNames);
+        String line = currentPlayers + "\t" + announcementVersion + "\n";
+        try {
+            broadcastInput.write(line.getBytes(StandardCharsets.UTF_8));
+            broadcastInput.flush();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Ecrit status.json dans l'inbox TCP : handle_tcp_client.sh le renvoie
+     * tel quel aux STATUS_QUERY. Ecriture dans un fichier temporaire puis
+     * renommage, pour ne jamais servir un fichier a moitie ecrit.
+     */
+    private void writeServerStatus(int currentPlayers, List<String> playerNames) {
+        Path inboxDir = tcpInboxDir;
+        if (inboxDir == null) {
+            return;
+        }
+        String json = MessageCodec.encode(out -> {
+            out.beginObject();
+            out.name("success").value(true);
+            out.name("type").value("SERVER_STATUS");
+            out.name("name").value(announcedName);
+            out.name("maxPlayers").value(announcedMaxPlayers);
+            out.name("currentPlayers").value(currentPlayers);
+            out.name("version").value(announcementVersion);
+            out.name("playerNames").beginArray();
+            if (playerNames != null) {
+                for (String name : playerNames) {
+                    out.value(name);
+                }
+            }
+            out.endArray();
+            out.endObject();
+        });
+        try {
+            Path tmp = inboxDir.resolve("status.json.tmp");
+            Files.write(tmp, (json + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, inboxDir.resolve("status.json"),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Erreur ecriture status.json: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Demande les details d'une partie (noms des joueurs...) a son hote.
+     * Retourne null si l'hote ne repond pas ou ne connait pas STATUS_QUERY.
+     */
+    public CompletableFuture<ServerInfo> queryServerStatus(ServerInfo server) {
+        return bashExecutor.executeAsync("send_tcp.sh", server.ip, String.valueOf(server.port),
+                "{\"type\":\"STATUS_QUERY\"}")
+            .thenApply(response -> {
+                try {
+                    ServerFields f = new ServerFields();
+                    MessageCodec.readObject(response.trim(), f::read);
+                    if (!"SERVER_STATUS".equals(f.type)) {
+                        return null;
+                    }
+                    f.ip = server.ip;
+                    f.port = server.port;
+                    return f.build();
+                } catch (Exception e) {
+                    return null;
+                }
+            })
+            .exceptionally(e -> null);
+    }
+    
+    /**
+     * Arrête le broadcast du serveur : la fermeture de l'entree standard
+     * termine le script (et retire l'entree du registre en mode localhost)
+     */
+    public synchronized void stopServerBroadcast() {
+        Process process = broadcastProcess;
+        broadcastProcess = null;
+        broadcastKey = null;
+        if (process == null) {
+            return;
+        }
+        if (tcpInboxDir != null) {
+            try {
+                Files.deleteIfExists(tcpInboxDir.resolve("status.json"));
+            } catch (IOException e) {
+                // Supprime avec l'inbox a l'arret du serveur TCP
+            }
+        }
+        try {
+            broadcastInput.close();
+        } catch (IOException e) {
+            // Pipe deja ferme
+        }
+        try {
+            if (!process.waitFor(500, TimeUnit.MILLISECONDS)) {
+                process.destroy();
+            }
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
         }
     }
     
@@ -134,10 +386,12 @@ public class NetworkBridge {
      * Écoute les serveurs disponibles sur le réseau ou localhost
      */
     public CompletableFuture<List<ServerInfo>> discoverServers(int timeoutSeconds) {
-        String script = localhostMode ? "listen_localhost.sh" : "listen_servers.sh";
+        CompletableFuture<String> output = localhostMode
+            ? bashExecutor.executeAsync("listen_localhost.sh", String.valueOf(timeoutSeconds))
+            : bashExecutor.executeAsync("listen_servers.sh", String.valueOf(timeoutSeconds),
+                                        multicastInterfaces());
         
-        return bashExecutor.executeAsync(script, String.valueOf(timeoutSeconds))
-            .thenApply(this::parseServerList);
+        return output.thenApply(this::parseServerList);
     }
     
     /**
@@ -152,7 +406,8 @@ public class NetworkBridge {
         
         // LAN peut être lent, avec timeout court
         CompletableFuture<List<ServerInfo>> lanFuture = 
-            bashExecutor.executeAsync("listen_servers.sh", String.valueOf(timeoutSeconds))
+            bashExecutor.executeAsync("listen_servers.sh", String.valueOf(timeoutSeconds),
+                                      multicastInterfaces())
                 .thenApply(this::parseServerList)
                 .exceptionally(e -> new ArrayList<>());
         
@@ -160,16 +415,10 @@ public class NetworkBridge {
         return localFuture.thenCombine(
             lanFuture.completeOnTimeout(new ArrayList<>(), timeoutSeconds + 1, TimeUnit.SECONDS),
             (localServers, lanServers) -> {
-                List<ServerInfo> all = new ArrayList<>(localServers);
-                for (ServerInfo lan : lanServers) {
-                    boolean exists = all.stream().anyMatch(s -> 
-                        s.port == lan.port && (s.ip.equals(lan.ip) || 
-                        s.ip.equals("127.0.0.1") && lan.ip.equals("127.0.0.1")));
-                    if (!exists) {
-                        all.add(lan);
-                    }
-                }
-                return all;
+                // Fusion indexee par ip:port (ServerInfo.equals) : les parties locales d'abord
+                Set<ServerInfo> all = new LinkedHashSet<>(localServers);
+                all.addAll(lanServers);
+                return new ArrayList<>(all);
             }
         );
     }
@@ -177,97 +426,307 @@ public class NetworkBridge {
     private List<ServerInfo> parseServerList(String output) {
         List<ServerInfo> servers = new ArrayList<>();
         try {
-            JsonArray array = JsonParser.parseString(output).getAsJsonArray();
-            for (JsonElement elem : array) {
-                JsonObject obj = elem.getAsJsonObject();
-                List<String> playerNames = new ArrayList<>();
-                if (obj.has("playerNames")) {
-                    String names = obj.get("playerNames").getAsString();
-                    if (!names.isEmpty()) {
-                        for (String n : names.split(",")) {
-                            if (!n.trim().isEmpty()) playerNames.add(n.trim());
-                        }
-                    }
+            JsonReader in = new JsonReader(new StringReader(output));
+            in.beginArray();
+            while (in.hasNext()) {
+                ServerFields f = new ServerFields();
+                MessageCodec.readObject(in, f::read);
+                ServerInfo server = f.build();
+                if (server != null) {
+                    servers.add(server);
                 }
-                servers.add(new ServerInfo(
-                    obj.get("ip").getAsString(),
-                    obj.get("port").getAsInt(),
-                    obj.get("name").getAsString(),
-                    obj.get("maxPlayers").getAsInt(),
-                    obj.get("currentPlayers").getAsInt(),
-                    playerNames
-                ));
             }
+            in.endArray();
         } catch (Exception e) {
             // Parsing error
         }
         return servers;
     }
     
+    /**
+     * Une ligne SERVER_ANNOUNCE de discovery_listener.sh, ou null si la ligne
+     * n'est pas une annonce valide
+     */
+    private ServerInfo parseServerAnnounce(String line) {
+        try {
+            ServerFields f = new ServerFields();
+            MessageCodec.readObject(line, f::read);
+            return "SERVER_ANNOUNCE".equals(f.type) ? f.build() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Champs d'une annonce, d'une liste de serveurs ou d'un SERVER_STATUS,
+     * lus en flux (MessageCodec.readObject)
+     */
+    private static final class ServerFields {
+        String type, ip, name;
+        int port, maxPlayers, currentPlayers, version;
+        List<String> playerNames = new ArrayList<>();
+        
+        void read(JsonReader in, String field) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return;
+            }
+            switch (field) {
+                case "type" -> type = in.nextString();
+                case "ip" -> ip = in.nextString();
+                case "port" -> port = in.nextInt();
+                case "name" -> name = in.nextString();
+                case "maxPlayers" -> maxPlayers = in.nextInt();
+                case "currentPlayers" -> currentPlayers = in.nextInt();
+                case "version" -> version = in.nextInt();
+                case "playerNames" -> readPlayerNames(in);
+                default -> in.skipValue();
+            }
+        }
+        
+        /**
+         * Tableau (SERVER_STATUS) ou chaine separee par des virgules
+         * (annonces des hotes d'avant STATUS_QUERY)
+         */
+        private void readPlayerNames(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.BEGIN_ARRAY) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    playerNames.add(in.nextString());
+                }
+                in.endArray();
+                return;
+            }
+            for (String n : in.nextString().split(",")) {
+                if (!n.trim().isEmpty()) playerNames.add(n.trim());
+            }
+        }
+        
+        /** null si un champ obligatoire manque */
+        ServerInfo build() {
+            if (ip == null || name == null) {
+                return null;
+            }
+            return new ServerInfo(ip, port, name, maxPlayers, currentPlayers, playerNames, version);
+        }
+    }
+    
     /**
      * Démarre l'écoute continue des serveurs (LAN et/ou localhost)
      */
-    public void startServerDiscovery(Consumer<List<ServerInfo>> onServersFound) {
-        startServerDiscovery(onServersFound, true);
+    public void startServerDiscovery(Consumer<DiscoveryEvent> onEvent) {
+        startServerDiscovery(onEvent, true);
     }
     
     /**
-     * Démarre l'écoute continue des serveurs
+     * Démarre l'écoute continue des serveurs.
+     * Un seul discovery_listener.sh recoit les annonces LAN et les transmet
+     * des leur arrivee ; le registre localhost est relu periodiquement.
+     * onEvent ne recoit que les changements : ServerAdded, ServerUpdated,
+     * ServerExpired (une annonce identique a la precedente ne produit rien).
      * @param includeLocalhost true pour inclure les parties sur localhost
      */
-    public void startServerDiscovery(Consumer<List<ServerInfo>> onServersFound, boolean includeLocalhost) {
+    public synchronized void startServerDiscovery(Consumer<DiscoveryEvent> onEvent, boolean includeLocalhost) {
+        // Relancer la decouverte remplace la precedente (pas de taches empilees)
+        stopServerDiscovery();
         running = true;
-        scheduler.scheduleAtFixedRate(() -> {
-            if (running) {
-                if (includeLocalhost) {
-                    discoverAllServers(2).thenAccept(onServersFound);
-                } else {
-                    bashExecutor.executeAsync("listen_servers.sh", "3")
-                        .thenApply(this::parseServerList)
-                        .thenAccept(onServersFound);
+        discoveryConsumer = onEvent;
+        discoveryIncludeLocalhost = includeLocalhost;
+        resumeServerDiscovery();
+    }
+    
+    /**
+     * Suspend la decouverte (partie rejointe ou creee) : plus aucun processus
+     * ni tache planifiee. Le registre est conserve pour resumeServerDiscovery.
+     */
+    public synchronized void pauseServerDiscovery() {
+        if (!discoveryActive) {
+            return;
+        }
+        discoveryActive = false;
+        discoveryGeneration++;
+        if (discoveryTask != null) {
+            discoveryTask.cancel(false);
+            discoveryTask = null;
+        }
+        if (discoveryListenerId != null) {
+            bashExecutor.stopBackground(discoveryListenerId);
+            discoveryListenerId = null;
+        }
+    }
+    
+    /**
+     * Reprend une decouverte suspendue (ex: JOIN refuse, retour a la liste).
+     * Sans effet si la decouverte a ete arretee ou n'a jamais demarre.
+     */
+    public synchronized void resumeServerDiscovery() {
+        if (discoveryActive || discoveryConsumer == null) {
+            return;
+        }
+        discoveryActive = true;
+        int generation = ++discoveryGeneration;
+        Consumer<DiscoveryEvent> onEvent = discoveryConsumer;
+        
+        discoveryListenerId = bashExecutor.startBackground(
+            "discovery_listener.sh",
+            line -> {
+                ServerInfo server = parseServerAnnounce(line);
+                if (server != null && discoveryActive) {
+                    DiscoveryEvent event = discoveryRegistry.update(server, System.currentTimeMillis());
+                    if (event != null) {
+                        discoveryPollDelayMs = DISCOVERY_POLL_MIN_MS;
+                        onEvent.accept(event);
+                    }
+                }
+            },
+            "5555",
+            multicastInterfaces()
+        );
+        
+        discoveryPollDelayMs = DISCOVERY_POLL_MIN_MS;
+        discoveryTask = discoveryExecutor.scheduler().schedule(() -> pollDiscovery(generation, onEvent), 0, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Arrête l'écoute des serveurs et oublie les serveurs connus
+     */
+    public synchronized void stopServerDiscovery() {
+        pauseServerDiscovery();
+        discoveryConsumer = null;
+        discoveryRegistry.clear();
+    }
+    
+    public boolean isDiscoveryActive() {
+        return discoveryActive;
+    }
+    
+    /**
+     * Une passe de decouverte : relecture du registre localhost et expiration.
+     * Tant que rien ne change, le delai avant la passe suivante double
+     * (1 s -> 8 s) ; il revient a 1 s des qu'un serveur apparait, change ou
+     * disparait. Les annonces LAN, elles, arrivent sans attendre cette passe.
+     */
+    private void pollDiscovery(int generation, Consumer<DiscoveryEvent> onEvent) {
+        if (!discoveryActive || generation != discoveryGeneration) return;
+        long now = System.currentTimeMillis();
+        boolean changed = false;
+        if (discoveryIncludeLocalhost) {
+            for (ServerInfo server : readLocalServers(now)) {
+                DiscoveryEvent event = discoveryRegistry.update(server, now);
+                if (event != null) {
+                    changed = true;
+                    onEvent.accept(event);
                 }
             }
-        }, 0, 3, TimeUnit.SECONDS);
+        }
+        for (DiscoveryEvent event : discoveryRegistry.expire(now)) {
+            changed = true;
+            onEvent.accept(event);
+        }
+        
+        synchronized (this) {
+            // Suspendue ou relancee pendant la passe : ne pas replanifier
+            if (!discoveryActive || generation != discoveryGeneration) return;
+            discoveryPollDelayMs = changed
+                ? DISCOVERY_POLL_MIN_MS
+                : Math.min(discoveryPollDelayMs * 2, DISCOVERY_POLL_MAX_MS);
+            discoveryTask = discoveryExecutor.scheduler().schedule(() -> pollDiscovery(generation, onEvent),
+                discoveryPollDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Lit le registre localhost (un fichier <port>.json par serveur, ecrit par
+     * broadcast_localhost.sh) sans lancer de script : un fichier modifie il y
+     * a moins de DiscoveryRegistry.TTL_MS est un serveur vivant. Un fichier
+     * illisible ou en cours d'ecriture est ignore pour cette passe.
+     */
+    private List<ServerInfo> readLocalServers(long now) {
+        List<ServerInfo> servers = new ArrayList<>();
+        Path dir = Paths.get(LOCAL_REGISTRY_DIR);
+        if (!Files.isDirectory(dir)) {
+            return servers;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.json")) {
+            for (Path file : files) {
+                try {
+                    if (now - Files.getLastModifiedTime(file).toMillis() > DiscoveryRegistry.TTL_MS) {
+                        continue;
+                    }
+                    ServerInfo server = parseServerAnnounce(Files.readString(file).trim());
+                    if (server != null) {
+                        servers.add(server);
+                    }
+                } catch (IOException e) {
+                    // Fichier supprime entre le listing et la lecture
+                }
+            }
+        } catch (IOException e) {
+            // Dossier illisible : on reessaie a la prochaine passe
+        }
+        return servers;
+    }
+    
+    /**
+     * Serveurs actuellement connus de la decouverte continue
+     */
+    public List<ServerInfo> getDiscoveredServers() {
+        return discoveryRegistry.snapshot();
     }
     
     // =====================================================================
     // ENVOI DE MESSAGES TCP (via send_tcp.sh)
     // =====================================================================
     
+    /**
+     * Reponse immediate de handle_tcp_client.sh / send_tcp.sh :
+     * {"success":true,...} ou {"success":false,"error":"..."}
+     */
+    public record TcpResponse(boolean success, String error) {
+        static TcpResponse parse(String line) {
+            boolean[] success = {false};
+            String[] error = {null};
+            MessageCodec.readObject(line, (in, name) -> {
+                if (in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                } else if (name.equals("success")) {
+                    success[0] = in.nextBoolean();
+                } else if (name.equals("error")) {
+                    error[0] = in.nextString();
+                } else {
+                    in.skipValue();
+                }
+            });
+            return new TcpResponse(success[0], error[0]);
+        }
+    }
+    
     /**
      * Envoie un message TCP a un serveur distant via le script Bash send_tcp.sh.
      * Le script ouvre la connexion, envoie le message, et retourne la reponse.
      * Java ne fait aucun socket directement.
      */
-    public CompletableFuture<JsonObject> sendMessage(String targetIp, int targetPort, JsonObject message) {
-        String jsonMessage = new Gson().toJson(message);
+    public CompletableFuture<TcpResponse> sendMessage(String targetIp, int targetPort, ProtocolMessage message) {
+        // Toujours en JSON : le JOIN doit rester lisible par toutes les versions
+        String jsonMessage = ProtocolCodec.encode(message);
         
         return bashExecutor.executeAsync("send_tcp.sh", targetIp, String.valueOf(targetPort), jsonMessage)
             .thenApply(response -> {
                 System.out.println("Reponse TCP recue: " + response);
                 if (response != null && !response.trim().isEmpty()) {
                     try {
-                        return JsonParser.parseString(response.trim()).getAsJsonObject();
+                        return TcpResponse.parse(response.trim());
                     } catch (Exception e) {
                         System.err.println("Erreur parsing reponse TCP: " + e.getMessage());
-                        JsonObject result = new JsonObject();
-                        result.addProperty("success", true);
-                        result.addProperty("raw", response);
-                        return result;
+                        return new TcpResponse(true, null);
                     }
                 } else {
-                    JsonObject result = new JsonObject();
-                    result.addProperty("success", false);
-                    result.addProperty("error", "Reponse vide");
-                    return result;
+                    return new TcpResponse(false, "Reponse vide");
                 }
             })
             .exceptionally(e -> {
                 System.err.println("Erreur envoi TCP: " + e.getMessage());
-                JsonObject error = new JsonObject();
-                error.addProperty("error", e.getMessage());
-                error.addProperty("success", false);
-                return error;
+                return new TcpResponse(false, e.getMessage());
             });
     }
     
@@ -275,82 +734,150 @@ public class NetworkBridge {
     // SERVEUR TCP (via tcp_server.sh + handle_tcp_client.sh)
     // =====================================================================
     
+    /**
+     * Change le mode de livraison TCP (a appeler avant startTcpServer)
+     */
+    public void setTcpDeliveryMode(TcpDeliveryMode mode) {
+        this.tcpDeliveryMode = mode;
+    }
+    
+    /**
+     * Change le format des messages UDP envoyes pour cette session (JSON ou binaire)
+     */
+    public void setWireFormat(WireFormat format) {
+        this.wireFormat = format;
+    }
+    
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+    
     /**
      * Demarre le serveur TCP pour recevoir les messages.
-     * Le script tcp_server.sh ecoute sur le port et ecrit les messages
-     * dans /tmp/undercover_tcp_inbox/messages.jsonl via handle_tcp_client.sh.
-     * Java lit ce fichier en continu (polling) pour traiter les messages.
+     * En mode PUSH (defaut), tcp_server.sh recopie chaque message recu sur
+     * son stdout, lu directement par BashExecutor.startBackground() comme
+     * pour startUdpServer : aucune attente de polling.
+     * En mode POLL, les messages sont ecrits dans des segments
+     * /tmp/undercover_tcp_inbox/<port>/segment-N.jsonl via handle_tcp_client.sh
+     * et Java les lit en continu (voir SegmentedInboxReader).
      */
-    public void startTcpServer(int port, Consumer<JsonObject> messageHandler) {
+    public void startTcpServer(int port, Consumer<ProtocolMessage> messageHandler) {
         this.tcpPort = port;
+        this.tcpInboxDir = Paths.get(TCP_INBOX_ROOT, String.valueOf(port));
         running = true;
         
-        // Nettoyer l'inbox avant de demarrer
+        // Nettoyer notre inbox avant de demarrer (celles des autres instances restent)
         try {
-            Files.createDirectories(Paths.get(TCP_INBOX_DIR));
-            Files.deleteIfExists(Paths.get(TCP_INBOX_FILE));
+            deleteTcpInboxDir();
+            Files.createDirectories(tcpInboxDir);
         } catch (IOException e) {
             System.err.println("Erreur creation inbox TCP: " + e.getMessage());
         }
         
+        if (tcpDeliveryMode == TcpDeliveryMode.PUSH) {
+            // Chaque ligne de stdout est un message recu (precede de son horodatage)
+            tcpServerProcessId = bashExecutor.startBackground(
+                "tcp_server.sh",
+                line -> deliverTcpLine(line, tcpPushLatency, messageHandler),
+                String.valueOf(port),
+                "push"
+            );
+            System.out.println("TCP Server (Bash, push) demarre sur le port " + port);
+            return;
+        }
+        
         // Demarrer le script tcp_server.sh en arriere-plan
         tcpServerProcessId = bashExecutor.startBackground(
             "tcp_server.sh",
             output -> {
                 System.out.println("[TCP Server stdout] " + output);
             },
-            String.valueOf(port)
+            String.valueOf(port),
+            "poll"
         );
-        System.out.println("TCP Server (Bash) demarre sur le port " + port);
+        System.out.println("TCP Server (Bash, poll) demarre sur le port " + port);
         
         // Demarrer le polling du fichier inbox
         startTcpInboxPoller(messageHandler);
     }
     
     /**
-     * Lit en continu le fichier d'inbox TCP pour les messages entrants.
-     * Chaque ligne est un message JSON ecrit par handle_tcp_client.sh.
-     * On utilise un polling rapide (100ms) pour une latence faible.
+     * Traite une ligne recue par TCP : "horodatage\tjson" ou "json".
+     * L'horodatage ($EPOCHREALTIME de handle_tcp_client.sh) sert a mesurer
+     * la latence de livraison jusqu'a Java.
+     */
+    private void deliverTcpLine(String line, LatencyStats latency, Consumer<ProtocolMessage> messageHandler) {
+        if (line == null || line.trim().isEmpty()) {
+            return;
+        }
+        String json = line;
+        int tab = line.indexOf('\t');
+        if (tab > 0 && line.charAt(0) != '{') {
+            json = line.substring(tab + 1);
+            long receivedAtMicros = parseEpochRealtime(line.substring(0, tab));
+            if (receivedAtMicros > 0) {
+                Instant now = Instant.now();
+                latency.record(now.getEpochSecond() * 1_000_000L + now.getNano() / 1000 - receivedAtMicros);
+            }
+        }
+        try {
+            ProtocolMessage msg = WireFormat.decodeLine(json.trim());
+            if (msg == null) {
+                System.err.println("Message TCP de type inconnu ignore: " + json);
+                return;
+            }
+            if (messageHandler != null) {
+                receiveExecutor.submit(() -> messageHandler.accept(msg));
+            }
+        } catch (Exception e) {
+            System.err.println("Erreur parsing message TCP: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Convertit "1700000000.123456" (ou avec une virgule selon la locale) en microsecondes
+     */
+    private static long parseEpochRealtime(String value) {
+        int sep = Math.max(value.indexOf('.'), value.indexOf(','));
+        try {
+            if (sep < 0) {
+                return Long.parseLong(value) * 1_000_000L;
+            }
+            long seconds = Long.parseLong(value.substring(0, sep));
+            String frac = (value.substring(sep + 1) + "000000").substring(0, 6);
+            return seconds * 1_000_000L + Long.parseLong(frac);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * Latences de livraison TCP mesurees, pour les deux modes
      */
-    private void startTcpInboxPoller(Consumer<JsonObject> messageHandler) {
+    public String getTcpDeliveryStats() {
+        return tcpPushLatency.describe() + " | " + tcpPollLatency.describe();
+    }
+    
+    /**
+     * Lit en continu le journal d'inbox TCP (segments ecrits par handle_tcp_client.sh).
+     * Chaque ligne est un message JSON precede de son horodatage de reception.
+     * On utilise un polling rapide (100ms) ; les segments lus sont supprimes.
+     */
+    private void startTcpInboxPoller(Consumer<ProtocolMessage> messageHandler) {
+        Path inboxDir = tcpInboxDir;
         tcpInboxPollerThread = new Thread(() -> {
-            Path inboxPath = Paths.get(TCP_INBOX_FILE);
-            long lastPosition = 0;
-            
-            while (running) {
-                try {
-                    if (Files.exists(inboxPath)) {
-                        long fileSize = Files.size(inboxPath);
-                        if (fileSize > lastPosition) {
-                            // Lire les nouvelles lignes depuis la derniere position
-                            try (RandomAccessFile raf = new RandomAccessFile(inboxPath.toFile(), "r")) {
-                                raf.seek(lastPosition);
-                                String line;
-                                while ((line = raf.readLine()) != null) {
-                                    if (!line.trim().isEmpty()) {
-                                        // readLine retourne en ISO-8859-1, convertir en UTF-8
-                                        String utf8Line = new String(line.getBytes("ISO-8859-1"), "UTF-8");
-                                        try {
-                                            JsonObject msg = JsonParser.parseString(utf8Line.trim()).getAsJsonObject();
-                                            if (messageHandler != null) {
-                                                scheduler.submit(() -> messageHandler.accept(msg));
-                                            }
-                                        } catch (Exception e) {
-                                            System.err.println("Erreur parsing message TCP inbox: " + e.getMessage());
-                                        }
-                                    }
-                                }
-                                lastPosition = raf.getFilePointer();
-                            }
-                        }
+            try (SegmentedInboxReader reader = new SegmentedInboxReader(inboxDir)) {
+                while (running) {
+                    try {
+                        reader.poll(line -> deliverTcpLine(line, tcpPollLatency, messageHandler));
+                        // Polling interval : 100ms pour une latence faible
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        break;
+                    } catch (Exception e) {
+                        System.err.println("Erreur lecture inbox TCP: " + e.getMessage());
+                        try { Thread.sleep(500); } catch (InterruptedException ie) { break; }
                     }
-                    // Polling interval : 100ms pour une latence faible
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    break;
-                } catch (Exception e) {
-                    System.err.println("Erreur lecture inbox TCP: " + e.getMessage());
-                    try { Thread.sleep(500); } catch (InterruptedException ie) { break; }
                 }
             }
         }, "TCP-Inbox-Poller");
@@ -362,6 +889,9 @@ public class NetworkBridge {
      * Arrete le serveur TCP (processus Bash + poller)
      */
     public void stopTcpServer() {
+        if (tcpPushLatency.getCount() > 0 || tcpPollLatency.getCount() > 0) {
+            System.out.println(getTcpDeliveryStats());
+        }
         if (tcpServerProcessId != null) {
             bashExecutor.stopBackground(tcpServerProcessId);
             tcpServerProcessId = null;
@@ -370,6 +900,24 @@ public class NetworkBridge {
             tcpInboxPollerThread.interrupt();
             tcpInboxPollerThread = null;
         }
+        deleteTcpInboxDir();
+    }
+    
+    /**
+     * Supprime le dossier d'inbox de cette instance (fichier, verrou, pipe nomme)
+     */
+    private void deleteTcpInboxDir() {
+        if (tcpInboxDir == null || !Files.exists(tcpInboxDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(tcpInboxDir)) {
+            for (Path entry : entries) {
+                Files.deleteIfExists(entry);
+            }
+            Files.deleteIfExists(tcpInboxDir);
+        } catch (IOException e) {
+            System.err.println("Erreur nettoyage inbox TCP: " + e.getMessage());
+        }
     }
     
     // =====================================================================
@@ -377,19 +925,223 @@ public class NetworkBridge {
     // =====================================================================
     
     /**
-     * Envoie un message UDP (fire-and-forget) via le script Bash send_udp.sh.
-     * Aucun socket Java. Le script utilise socat ou netcat.
+     * Envoie un message UDP (fire-and-forget).
+     * Si un canal persistant existe vers ce pair, le message passe par sa file
+     * d'envoi (PeerOutboxes) puis est ecrit dans le pipe du canal. Sinon on
+     * passe par send_udp.sh (un processus par message).
+     * Aucun socket Java. Les scripts utilisent socat ou netcat.
      */
-    public void sendUdpMessage(String targetIp, int targetPort, JsonObject message) {
-        String jsonMessage = new Gson().toJson(message);
-        
-        scheduler.submit(() -> {
-            try {
-                bashExecutor.executeSync("send_udp.sh", targetIp, String.valueOf(targetPort), jsonMessage);
-            } catch (Exception e) {
-                System.err.println("Erreur UDP send to " + targetIp + ":" + targetPort + " - " + e.getMessage());
+    public void sendUdpMessage(String targetIp, int targetPort, ProtocolMessage message) {
+        String key = targetIp + ":" + targetPort;
+        if (reliableUdp.isEnabled(key) || getUdpChannel(targetIp, targetPort) != null) {
+            udpOutboxes.offer(key, message.type(), wireFormat.encodeToBytes(message));
+            return;
+        }
+        String jsonMessage = wireFormat.encode(message);
+        submitSend(targetIp, targetPort, message.type(), () -> sendUdpForked(targetIp, targetPort, jsonMessage));
+    }
+
+    /**
+     * Envoie le meme message deja encode a plusieurs pairs en une seule operation
+     * (utilise par BroadcastGroup). Le message encode est partage entre les
+     * files d'envoi des pairs ; ceux sans canal passent par send_udp.sh dans
+     * une seule tache. Pour un pair en livraison fiable, seule l'enveloppe
+     * (quelques octets) est propre au pair.
+     */
+    void sendUdpToAll(List<BroadcastGroup.Member> targets, MessageType type, byte[] payload) {
+        List<BroadcastGroup.Member> forked = null;
+        for (BroadcastGroup.Member target : targets) {
+            String key = target.ip() + ":" + target.udpPort();
+            if (reliableUdp.isEnabled(key) || getUdpChannel(target.ip(), target.udpPort()) != null) {
+                udpOutboxes.offer(key, type, payload);
+            } else {
+                if (forked == null) {
+                    forked = new ArrayList<>();
+                }
+                forked.add(target);
             }
-        });
+        }
+        if (forked != null) {
+            List<BroadcastGroup.Member> remaining = forked;
+            String jsonMessage = new String(payload, StandardCharsets.UTF_8);
+            Runnable send = () -> {
+                for (BroadcastGroup.Member target : remaining) {
+                    sendUdpForked(target.ip(), target.udpPort(), jsonMessage);
+                }
+            };
+            if (ReliableUdp.CRITICAL_TYPES.contains(type)) {
+                sendExecutor.submitOrRun(send);
+            } else if (!sendExecutor.submit(send)) {
+                System.err.println("File d'envoi pleine, message " + type + " abandonne vers " + remaining.size() + " pair(s)");
+            }
+        }
+    }
+
+    /**
+     * Sortie d'une file d'envoi (PeerOutboxes) : l'enveloppe ReliableUdp est
+     * construite maintenant, pour que les seq suivent l'ordre reel d'envoi
+     */
+    private void transmit(String key, MessageType type, byte[] payload) {
+        writeToPeer(key, type, reliableUdp.wrap(key, type, payload), payload);
+    }
+
+    /**
+     * Renvois et acquittements de ReliableUdp : leur seq est deja attribue,
+     * ils partent sans attendre mais sont decomptes du budget du pair
+     */
+    private void sendEnvelope(String key, byte[] header, byte[] payload) {
+        udpOutboxes.charge(key, header.length + payload.length);
+        // Un renvoi perdu sera refait par ReliableUdp : abandon possible
+        writeToPeer(key, null, header, payload);
+    }
+
+    /**
+     * Ecrit l'enveloppe (null = sans) suivie du message sur le canal du pair
+     * "ip:port", ou passe par send_udp.sh si le canal est ferme. type (null
+     * pour un renvoi) decide si l'envoi peut etre abandonne, file pleine.
+     */
+    private void writeToPeer(String key, MessageType type, byte[] header, byte[] payload) {
+        int sep = key.lastIndexOf(':');
+        String targetIp = key.substring(0, sep);
+        int targetPort = Integer.parseInt(key.substring(sep + 1));
+        UdpChannel channel = getUdpChannel(targetIp, targetPort);
+        if (channel != null && channel.send(header, payload)) {
+            return;
+        }
+        String line = (header != null ? new String(header, StandardCharsets.US_ASCII) : "")
+            + new String(payload, StandardCharsets.UTF_8);
+        submitSend(targetIp, targetPort, type, () -> sendUdpForked(targetIp, targetPort, line));
+    }
+    
+    /**
+     * Confie un envoi au pool d'envoi. File pleine : un message critique
+     * (GAME_START, VOTE, GAME_END...) est envoye par l'appelant, qui attend
+     * le processus, car rien ne le renverrait a un pair sans livraison
+     * fiable ; les autres sont abandonnes.
+     */
+    private void submitSend(String targetIp, int targetPort, MessageType type, Runnable send) {
+        if (type != null && ReliableUdp.CRITICAL_TYPES.contains(type)) {
+            sendExecutor.submitOrRun(send);
+            return;
+        }
+        if (!sendExecutor.submit(send)) {
+            System.err.println("File d'envoi pleine, message UDP abandonne vers " + targetIp + ":" + targetPort);
+        }
+    }
+    
+    /**
+     * Active la livraison fiable vers un pair (capacite RELIABLE negociee) :
+     * les messages critiques (ReliableUdp.CRITICAL_TYPES) sont renvoyes
+     * jusqu'a leur acquittement.
+     */
+    public synchronized void enableReliableDelivery(String targetIp, int targetPort) {
+        reliableUdp.enable(targetIp + ":" + targetPort);
+        if (reliableTask == null) {
+            reliableTask = timerExecutor.scheduler().scheduleWithFixedDelay(reliableUdp::tick,
+                ReliableUdp.TICK_MS, ReliableUdp.TICK_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    public synchronized void disableReliableDelivery(String targetIp, int targetPort) {
+        reliableUdp.disable(targetIp + ":" + targetPort);
+        if (!reliableUdp.hasPeers() && reliableTask != null) {
+            reliableTask.cancel(false);
+            reliableTask = null;
+        }
+    }
+    
+    /**
+     * Pools de reception, d'envoi, de minuteries et de decouverte (profondeur de file, saturation)
+     */
+    public List<NetworkExecutor> getExecutors() {
+        return List.of(receiveExecutor, sendExecutor, timerExecutor, discoveryExecutor);
+    }
+    
+    /**
+     * Files d'envoi par pair (backlog, compteurs)
+     */
+    public PeerOutboxes getUdpOutboxes() {
+        return udpOutboxes;
+    }
+    
+    public ReliableUdp getReliableUdp() {
+        return reliableUdp;
+    }
+    
+    /**
+     * IP locale de ce pair, telle que les autres la connaissent (JOIN)
+     */
+    public void setLocalIp(String ip) {
+        this.localIp = ip;
+        if (udpPort > 0) {
+            reliableUdp.setLocalAddress(ip + ":" + udpPort);
+        }
+    }
+    
+    /**
+     * Envoi par send_udp.sh (un script par message), quand aucun canal n'est ouvert
+     */
+    private void sendUdpForked(String targetIp, int targetPort, String jsonMessage) {
+        try {
+            bashExecutor.executeSync("send_udp.sh", targetIp, String.valueOf(targetPort), jsonMessage);
+        } catch (Exception e) {
+            System.err.println("Erreur UDP send to " + targetIp + ":" + targetPort + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ouvre un canal UDP persistant vers un pair (appele quand un joueur rejoint).
+     * Les messages suivants vers ce pair ne lancent plus de processus.
+     */
+    public void openUdpChannel(String targetIp, int targetPort) {
+        String key = targetIp + ":" + targetPort;
+        UdpChannel existing = udpChannels.get(key);
+        if (existing != null && existing.isAlive()) {
+            return;
+        }
+        try {
+            Process process = bashExecutor.startInteractive(
+                "udp_channel_" + key, "udp_channel.sh", targetIp, String.valueOf(targetPort));
+            udpChannels.put(key, new UdpChannel(targetIp, targetPort, process));
+            System.out.println("Canal UDP ouvert vers " + key);
+        } catch (IOException e) {
+            System.err.println("Erreur ouverture canal UDP " + key + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ferme le canal UDP persistant vers un pair (appele quand un joueur part).
+     */
+    public void closeUdpChannel(String targetIp, int targetPort) {
+        disableReliableDelivery(targetIp, targetPort);
+        udpMailboxes.forget(targetIp + ":" + targetPort);
+        udpOutboxes.forget(targetIp + ":" + targetPort);
+        UdpChannel channel = udpChannels.remove(targetIp + ":" + targetPort);
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Retourne le canal vers ce pair, en le rouvrant si le processus est mort.
+     * Retourne null si aucun canal n'a ete ouvert pour ce pair.
+     */
+    private UdpChannel getUdpChannel(String targetIp, int targetPort) {
+        UdpChannel channel = udpChannels.get(targetIp + ":" + targetPort);
+        if (channel == null || channel.isAlive()) {
+            return channel;
+        }
+        openUdpChannel(targetIp, targetPort);
+        return udpChannels.get(targetIp + ":" + targetPort);
+    }
+
+    private void closeAllUdpChannels() {
+        for (UdpChannel channel : udpChannels.values()) {
+            disableReliableDelivery(channel.getTargetIp(), channel.getTargetPort());
+            udpOutboxes.forget(channel.getTargetIp() + ":" + channel.getTargetPort());
+            channel.close();
+        }
+        udpChannels.clear();
     }
     
     // =====================================================================
@@ -401,8 +1153,9 @@ public class NetworkBridge {
      * Le script udp_server.sh ecoute en continu et ecrit chaque message
      * recu sur stdout, qui est lu par BashExecutor.startBackground().
      */
-    public void startUdpServer(int port, Consumer<JsonObject> messageHandler) {
+    public void startUdpServer(int port, Consumer<ProtocolMessage> messageHandler) {
         this.udpPort = port;
+        reliableUdp.setLocalAddress(localIp + ":" + port);
         running = true;
         
         udpServerProcessId = bashExecutor.startBackground(
@@ -410,14 +1163,42 @@ public class NetworkBridge {
             output -> {
                 // Chaque ligne de stdout est un message JSON recu par UDP
                 if (output != null && !output.trim().isEmpty()) {
-                    try {
-                        JsonObject msg = JsonParser.parseString(output.trim()).getAsJsonObject();
-                        if (messageHandler != null) {
-                            scheduler.submit(() -> messageHandler.accept(msg));
+                    String line = output.trim();
+                    String sender = null;
+                    int seq = 0;
+                    // Enveloppe fiable : acquittements traites ici, doublons ecartes
+                    if (ReliableUdp.isEnvelope(line)) {
+                        ReliableUdp.Received received = reliableUdp.unwrap(line);
+                        if (received == null) {
+                            return;
                         }
-                    } catch (Exception e) {
-                        System.err.println("Erreur parsing UDP message: " + e.getMessage());
+                        sender = received.from();
+                        seq = received.seq();
+                        line = received.line();
                     }
+                    ProtocolMessage msg = null;
+                    if (line != null) {
+                        try {
+                            msg = WireFormat.decodeLine(line);
+                            if (msg == null) {
+                                System.err.println("Message UDP de type inconnu ignore: " + output);
+                            }
+                        } catch (Exception e) {
+                            System.err.println("Erreur parsing UDP message: " + e.getMessage());
+                        }
+                    }
+                    ProtocolMessage decoded = msg;
+                    Runnable task = decoded != null && messageHandler != null ? () -> messageHandler.accept(decoded) : null;
+                    if (sender == null) {
+                        // Sans enveloppe, l'emetteur est inconnu (udp_server.sh ne donne pas
+                        // l'adresse source) : traitement direct sur le pool, en parallele
+                        if (task != null) {
+                            receiveExecutor.submit(task);
+                        }
+                        return;
+                    }
+                    // Boite de l'emetteur : ses messages sont traites dans l'ordre d'envoi
+                    udpMailboxes.deliver(sender, seq, task);
                 }
             },
             String.valueOf(port)
@@ -447,10 +1228,22 @@ public class NetworkBridge {
     // =====================================================================
     
     /**
-     * Recupere l'IP locale via le script Bash get_local_ip.sh
+     * IP locale, relevee une fois par probe_network.sh puis gardee en cache
+     * (voir NetworkEnvironment)
      */
     public String getLocalIp() {
-        return bashExecutor.getLocalIp();
+        return networkEnvironment.getLocalIp();
+    }
+    
+    /**
+     * Refait le releve reseau (changement de reseau signale par l'utilisateur)
+     */
+    public NetworkEnvironment.Snapshot refreshNetworkEnvironment() {
+        return networkEnvironment.refresh();
+    }
+    
+    public NetworkEnvironment getNetworkEnvironment() {
+        return networkEnvironment;
     }
     
     /**
@@ -458,10 +1251,23 @@ public class NetworkBridge {
      */
     public void shutdown() {
         running = false;
+        stopServerDiscovery();
         stopServerBroadcast();
         stopTcpServer();
         stopUdpServer();
-        scheduler.shutdown();
+        closeAllUdpChannels();
+        receiveExecutor.shutdown();
+        sendExecutor.shutdown();
+        timerExecutor.shutdown();
+        discoveryExecutor.shutdown();
+        System.out.println(receiveExecutor.describeStats());
+        System.out.println(sendExecutor.describeStats());
+        System.out.println(timerExecutor.describeStats());
+        System.out.println(discoveryExecutor.describeStats());
+        System.out.println(networkEnvironment.describeStats());
+        System.out.println(reliableUdp.describeStats());
+        System.out.println(udpMailboxes.describeStats());
+        System.out.println(udpOutboxes.describeStats());
         bashExecutor.shutdown();
     }
     
@@ -476,18 +1282,26 @@ public class NetworkBridge {
         public final int maxPlayers;
         public final int currentPlayers;
         public final List<String> playerNames;
+        // Version de l'etat annonce (0 = hote qui n'en envoie pas)
+        public final int version;
         
         public ServerInfo(String ip, int port, String name, int maxPlayers, int currentPlayers) {
             this(ip, port, name, maxPlayers, currentPlayers, new ArrayList<>());
         }
         
         public ServerInfo(String ip, int port, String name, int maxPlayers, int currentPlayers, List<String> playerNames) {
+            this(ip, port, name, maxPlayers, currentPlayers, playerNames, 0);
+        }
+        
+        public ServerInfo(String ip, int port, String name, int maxPlayers, int currentPlayers,
+                          List<String> playerNames, int version) {
             this.ip = ip;
             this.port = port;
             this.name = name;
             this.maxPlayers = maxPlayers;
             this.currentPlayers = currentPlayers;
             this.playerNames = playerNames != null ? playerNames : new ArrayList<>();
+            this.version = version;
         }
         
         @Override
@@ -0,0 +1,172 @@
+package com.undercover.network;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NetworkEnvironment - Releve de l'environnement reseau, en cache
+ *
+ * probe_network.sh est lance une seule fois : IP locale, interfaces IPv4
+ * actives avec leur adresse de broadcast, presence de socat et nc. Les
+ * valeurs sont ensuite passees en arguments aux scripts (annonce, ecoute)
+ * au lieu d'etre recalculees a chaque createServer / joinServer.
+ *
+ * Le releve est refait sur demande (refresh) ou quand la table de routage du
+ * noyau change (/proc/net/route et /proc/net/fib_trie, lus par Java sans
+ * lancer de processus). Hors Linux, seul refresh() refait le releve.
+ */
+public class NetworkEnvironment {
+
+    /** Interface IPv4 active (hors loopback) */
+    public record Interface(String name, String ip, String broadcast) {}
+
+    /** Resultat d'un releve */
+    public record Snapshot(String localIp, List<Interface> interfaces, boolean hasSocat, boolean hasNc) {}
+
+    private static final String PROBE_SCRIPT = "probe_network.sh";
+    private static final String FALLBACK_IP = "127.0.0.1";
+    // Fichiers du noyau qui changent quand une adresse ou une interface change
+    private static final Path[] CHANGE_SOURCES = {
+        Paths.get("/proc/net/route"),
+        Paths.get("/proc/net/fib_trie")
+    };
+
+    private final BashExecutor bashExecutor;
+    private Snapshot snapshot;
+    private int fingerprint;
+
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    public NetworkEnvironment(BashExecutor bashExecutor) {
+        this.bashExecutor = bashExecutor;
+    }
+
+    /**
+     * Releve en cache, refait si les interfaces ont change depuis
+     */
+    public synchronized Snapshot current() {
+        int now = readFingerprint();
+        if (snapshot != null && now == fingerprint) {
+            cacheHits.incrementAndGet();
+            return snapshot;
+        }
+        return probe(now);
+    }
+
+    /**
+     * Refait le releve (ex: l'utilisateur a change de reseau)
+     */
+    public synchronized Snapshot refresh() {
+        return probe(readFingerprint());
+    }
+
+    public String getLocalIp() {
+        return current().localIp();
+    }
+
+    /**
+     * Adresse de broadcast du reseau de localIp, sinon celle de la premiere
+     * interface qui en a une (hors docker). Vide si aucune : le script
+     * d'annonce la calcule alors lui-meme.
+     */
+    public String getBroadcastAddress(String localIp) {
+        Snapshot s = current();
+        String fallback = "";
+        for (Interface iface : s.interfaces()) {
+            if (iface.broadcast().isEmpty()) {
+                continue;
+            }
+            if (iface.ip().equals(localIp)) {
+                return iface.broadcast();
+            }
+            if (fallback.isEmpty() && !iface.name().startsWith("docker")) {
+                fallback = iface.broadcast();
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * IP des interfaces actives, separees par des virgules (format des
+     * arguments "interfaces_multicast" des scripts)
+     */
+    public String getInterfaceAddresses() {
+        StringJoiner joined = new StringJoiner(",");
+        for (Interface iface : current().interfaces()) {
+            joined.add(iface.ip());
+        }
+        return joined.toString();
+    }
+
+    public String describeStats() {
+        return String.format("Environnement reseau: %d releve(s), %d lecture(s) en cache", probes.get(), cacheHits.get());
+    }
+
+    private Snapshot probe(int currentFingerprint) {
+        probes.incrementAndGet();
+        Snapshot probed;
+        try {
+            probed = parse(bashExecutor.executeSync(PROBE_SCRIPT));
+        } catch (Exception e) {
+            System.err.println("Erreur releve reseau: " + e.getMessage());
+            probed = null;
+        }
+        if (probed == null) {
+            // Pas de mise en cache : le prochain appel refait le releve
+            snapshot = null;
+            return new Snapshot(FALLBACK_IP, List.of(), false, false);
+        }
+        snapshot = probed;
+        fingerprint = currentFingerprint;
+        return probed;
+    }
+
+    private static Snapshot parse(String output) {
+        if (output == null || output.isBlank()) {
+            return null;
+        }
+        JsonObject json = JsonParser.parseString(output.trim()).getAsJsonObject();
+        List<Interface> interfaces = new ArrayList<>();
+        JsonArray array = json.has("interfaces") ? json.getAsJsonArray("interfaces") : new JsonArray();
+        for (JsonElement element : array) {
+            JsonObject obj = element.getAsJsonObject();
+            interfaces.add(new Interface(
+                obj.get("name").getAsString(),
+                obj.get("ip").getAsString(),
+                obj.has("broadcast") ? obj.get("broadcast").getAsString() : ""
+            ));
+        }
+        String localIp = json.has("localIp") ? json.get("localIp").getAsString() : FALLBACK_IP;
+        return new Snapshot(
+            localIp.isEmpty() ? FALLBACK_IP : localIp,
+            List.copyOf(interfaces),
+            json.has("socat") && json.get("socat").getAsBoolean(),
+            json.has("nc") && json.get("nc").getAsBoolean()
+        );
+    }
+
+    private static int readFingerprint() {
+        int hash = 1;
+        for (Path source : CHANGE_SOURCES) {
+            try {
+                hash = 31 * hash + Arrays.hashCode(Files.readAllBytes(source));
+            } catch (IOException | SecurityException e) {
+                hash = 31 * hash;
+            }
+        }
+        return hash;
+    }
+}
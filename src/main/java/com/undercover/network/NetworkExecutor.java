@@ -0,0 +1,189 @@
+package com.undercover.network;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NetworkExecutor - Pool de threads nomme, borne, avec ses compteurs
+ *
+ * NetworkBridge en utilise un par role (reception, envoi, minuteries,
+ * decouverte) pour qu'une diffusion vers beaucoup de pairs, dont chaque
+ * envoi attend un processus, ne retarde pas le traitement des messages recus.
+ *
+ * Compteurs : profondeur de file (courante et max), taches soumises alors
+ * que tous les threads etaient occupes, debordements (file pleine), attente
+ * max en file. En cas de debordement, la tache est executee par l'appelant
+ * (CALLER_RUNS : ralentit le lecteur au lieu de perdre un message) ou
+ * abandonnee (DISCARD : submit retourne false ; submitOrRun l'execute quand
+ * meme sur l'appelant, pour les taches qui ne doivent pas etre perdues).
+ */
+public class NetworkExecutor implements Executor {
+
+    /** Comportement quand la file est pleine */
+    public enum Overflow { CALLER_RUNS, DISCARD }
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final String name;
+    private final ThreadPoolExecutor pool;
+    private final int threads;
+    // 0 = file non bornee (pool planifie)
+    private final int capacity;
+    private final Overflow overflow;
+
+    // Compteurs
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong busySubmits = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicInteger peakQueueDepth = new AtomicInteger();
+    private final AtomicLong maxWaitMicros = new AtomicLong();
+
+    /**
+     * Pool de threads threads, file d'au plus capacity taches en attente
+     */
+    public static NetworkExecutor bounded(String name, int threads, int capacity, Overflow overflow) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<>(capacity), threadFactory(name));
+        pool.allowCoreThreadTimeOut(true);
+        return new NetworkExecutor(name, pool, threads, capacity, overflow);
+    }
+
+    /**
+     * Pool planifie (taches differees ou periodiques, voir scheduler()).
+     * La file n'est pas bornee : reserve aux taches breves et peu nombreuses.
+     */
+    public static NetworkExecutor scheduled(String name, int threads) {
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(threads, threadFactory(name));
+        // Une passe annulee (pause de la decouverte) ne reste pas dans la file
+        pool.setRemoveOnCancelPolicy(true);
+        return new NetworkExecutor(name, pool, threads, 0, Overflow.CALLER_RUNS);
+    }
+
+    private NetworkExecutor(String name, ThreadPoolExecutor pool, int threads, int capacity, Overflow overflow) {
+        this.name = name;
+        this.pool = pool;
+        this.threads = threads;
+        this.capacity = capacity;
+        this.overflow = overflow;
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "NetworkBridge-" + name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        submit(task);
+    }
+
+    /**
+     * Soumet une tache. Retourne false si elle est abandonnee (file pleine en
+     * mode DISCARD, ou pool arrete).
+     */
+    public boolean submit(Runnable task) {
+        return submit(task, overflow);
+    }
+
+    /**
+     * Soumet une tache qui ne doit pas etre perdue : file pleine, elle est
+     * executee par l'appelant meme en mode DISCARD. Retourne false seulement
+     * si le pool est arrete.
+     */
+    public boolean submitOrRun(Runnable task) {
+        return submit(task, Overflow.CALLER_RUNS);
+    }
+
+    private boolean submit(Runnable task, Overflow onOverflow) {
+        submitted.incrementAndGet();
+        if (pool.getActiveCount() >= threads) {
+            busySubmits.incrementAndGet();
+        }
+        long queuedAt = System.nanoTime();
+        try {
+            pool.execute(() -> {
+                maxWaitMicros.accumulateAndGet((System.nanoTime() - queuedAt) / 1000, Math::max);
+                run(task);
+            });
+        } catch (RejectedExecutionException e) {
+            if (pool.isShutdown()) {
+                return false;
+            }
+            overflows.incrementAndGet();
+            if (onOverflow == Overflow.DISCARD) {
+                return false;
+            }
+            run(task);
+            return true;
+        }
+        peakQueueDepth.accumulateAndGet(pool.getQueue().size(), Math::max);
+        return true;
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            System.err.println("Erreur tache " + name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Acces planifie (schedule, scheduleWithFixedDelay) d'un pool cree par scheduled()
+     */
+    public ScheduledExecutorService scheduler() {
+        if (!(pool instanceof ScheduledExecutorService)) {
+            throw new IllegalStateException("Executeur " + name + " non planifie");
+        }
+        return (ScheduledExecutorService) pool;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Taches en attente d'un thread (planifiees comprises) */
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    public int getPeakQueueDepth() {
+        return peakQueueDepth.get();
+    }
+
+    public int getActiveThreads() {
+        return pool.getActiveCount();
+    }
+
+    /** Part des taches soumises alors que tous les threads etaient occupes (0..1) */
+    public double getSaturation() {
+        long total = submitted.get();
+        return total == 0 ? 0 : (double) busySubmits.get() / total;
+    }
+
+    public long getOverflows() {
+        return overflows.get();
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public String describeStats() {
+        return String.format("Executeur %s: %d/%d thread(s) actif(s), file %d/%s (max %d), %d tache(s), %.0f%% avec threads occupes, %d debordement(s), attente max %.1f ms",
+            name, pool.getActiveCount(), threads, getQueueDepth(), capacity == 0 ? "-" : String.valueOf(capacity),
+            peakQueueDepth.get(), submitted.get(), getSaturation() * 100, overflows.get(), maxWaitMicros.get() / 1000.0);
+    }
+}
@@ -0,0 +1,286 @@
+package com.undercover.network;
+
+import com.undercover.network.protocol.MessageType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PeerOutboxes - File d'envoi par pair, par classe de priorite, avec debit borne
+ *
+ * Chaque pair a un budget d'octets par seconde (seau a jetons, rafale de
+ * BURST_BYTES). Tant que le budget suffit, un message part tout de suite, sur
+ * le thread appelant. Sinon il attend dans la file de sa classe, et la file
+ * est videe des que le budget le permet, classe la plus prioritaire d'abord :
+ * un GAME_START ou un PHASE_CHANGE ne reste jamais derriere des TIMER_SYNC.
+ *
+ * Dans une meme classe, l'ordre d'envoi est garde. En attente, seul le
+ * dernier TIMER_SYNC compte (il remplace le precedent) et le chat est borne
+ * a MAX_CHAT messages (les plus anciens sont abandonnes).
+ *
+ * L'enveloppe ReliableUdp (seq) est construite au moment de l'envoi, pas de
+ * la mise en file : le recepteur voit des seq dans l'ordre reel d'envoi et
+ * n'attend pas un message que la priorite a fait passer apres.
+ */
+public class PeerOutboxes {
+
+    /**
+     * Classes d'envoi, de la plus prioritaire a la moins prioritaire.
+     * Les messages de controle et d'etat (phases, tours, listes de joueurs,
+     * etats complets, votes) forment une seule classe : ils restent dans
+     * l'ordre d'emission, sinon un PHASE_CHANGE passerait devant la liste de
+     * joueurs envoyee juste avant (le seq est attribue a l'envoi, le
+     * recepteur ne pourrait pas retablir l'ordre). Seuls le chat et le timer
+     * peuvent etre depasses.
+     */
+    public enum Priority {
+        GAME, CHAT, TIMER;
+
+        public static Priority of(MessageType type) {
+            return switch (type) {
+                case CHAT -> CHAT;
+                case TIMER_SYNC -> TIMER;
+                default -> GAME;
+            };
+        }
+    }
+
+    /**
+     * Envoi effectif d'un message a un pair (enveloppe, canal : voir NetworkBridge)
+     */
+    @FunctionalInterface
+    interface Transmitter {
+        void transmit(String peerKey, MessageType type, byte[] payload);
+    }
+
+    /** Debit par defaut par pair (octets/s), -Dundercover.udp.peer.rate, 0 = sans limite */
+    public static final long DEFAULT_RATE_BYTES = 64 * 1024;
+    /** Octets envoyables d'un coup quand le budget est plein */
+    public static final int BURST_BYTES = 8 * 1024;
+    private static final int MAX_CHAT = 64;
+
+    private record Queued(MessageType type, byte[] payload) {}
+
+    private final Transmitter transmitter;
+    private final ScheduledExecutorService timer;
+    private final long rateBytesPerSecond;
+    private final Map<String, Outbox> outboxes = new ConcurrentHashMap<>();
+
+    // Compteurs
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong budgetWaits = new AtomicLong();
+    private final AtomicLong overtaken = new AtomicLong();
+    private final AtomicLong timerReplaced = new AtomicLong();
+    private final AtomicLong chatDropped = new AtomicLong();
+    private final AtomicInteger peakBacklog = new AtomicInteger();
+
+    PeerOutboxes(Transmitter transmitter, ScheduledExecutorService timer, long rateBytesPerSecond) {
+        this.transmitter = transmitter;
+        this.timer = timer;
+        this.rateBytesPerSecond = rateBytesPerSecond;
+    }
+
+    /**
+     * Envoie un message a un pair, tout de suite si son budget le permet,
+     * sinon des que possible selon sa priorite
+     */
+    public void offer(String peerKey, MessageType type, byte[] payload) {
+        outboxes.computeIfAbsent(peerKey, Outbox::new).offer(new Queued(type, payload));
+    }
+
+    /**
+     * Decompte un envoi fait hors file (renvoi ou acquittement ReliableUdp,
+     * dont le seq est deja attribue)
+     */
+    public void charge(String peerKey, int bytes) {
+        Outbox outbox = outboxes.get(peerKey);
+        if (outbox != null) {
+            outbox.charge(bytes);
+        }
+    }
+
+    /**
+     * Oublie un pair (depart) : les messages en attente sont abandonnes
+     */
+    public void forget(String peerKey) {
+        Outbox outbox = outboxes.remove(peerKey);
+        if (outbox != null) {
+            outbox.clear();
+        }
+    }
+
+    /** Messages en attente vers un pair */
+    public int getBacklog(String peerKey) {
+        Outbox outbox = outboxes.get(peerKey);
+        return outbox != null ? outbox.backlog() : 0;
+    }
+
+    public String describeStats() {
+        return String.format("Files d'envoi: %d envoye(s), %d attente(s) de budget, %d depassement(s) par priorite, %d TIMER_SYNC remplace(s), %d chat abandonne(s), file max %d",
+            sent.get(), budgetWaits.get(), overtaken.get(), timerReplaced.get(), chatDropped.get(), peakBacklog.get());
+    }
+
+    private final class Outbox {
+        private final String peerKey;
+        // Une file par classe, dans l'ordre de priorite (index = ordinal)
+        private final List<ArrayDeque<Queued>> queues = new ArrayList<>();
+        private int backlog;
+        private boolean draining;
+        private ScheduledFuture<?> drainTask;
+        // Seau a jetons (octets)
+        private double tokens = BURST_BYTES;
+        private long refilledAt = System.nanoTime();
+
+        Outbox(String peerKey) {
+            this.peerKey = peerKey;
+            for (int i = 0; i < Priority.values().length; i++) {
+                queues.add(new ArrayDeque<>());
+            }
+        }
+
+        void offer(Queued message) {
+            synchronized (this) {
+                Priority priority = Priority.of(message.type());
+                ArrayDeque<Queued> queue = queues.get(priority.ordinal());
+                if (priority == Priority.TIMER && !queue.isEmpty()) {
+                    // Seule la derniere valeur du timer compte
+                    queue.pollLast();
+                    backlog--;
+                    timerReplaced.incrementAndGet();
+                } else if (priority == Priority.CHAT && queue.size() >= MAX_CHAT) {
+                    queue.pollFirst();
+                    backlog--;
+                    chatDropped.incrementAndGet();
+                }
+                if (backlog > 0 && hasLowerThan(priority)) {
+                    overtaken.incrementAndGet();
+                }
+                queue.addLast(message);
+                backlog++;
+                peakBacklog.accumulateAndGet(backlog, Math::max);
+                if (draining || drainTask != null) {
+                    // Un drain est en cours ou attend le budget : il prendra ce message
+                    return;
+                }
+                draining = true;
+            }
+            drain();
+        }
+
+        private boolean hasLowerThan(Priority priority) {
+            for (int i = priority.ordinal() + 1; i < queues.size(); i++) {
+                if (!queues.get(i).isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Envoie les messages en attente, priorite d'abord, tant que le budget
+         * le permet ; sinon replanifie le drain quand il sera reconstitue.
+         * Un seul drain a la fois : l'ordre d'envoi est celui des enveloppes.
+         */
+        private void drain() {
+            while (true) {
+                Queued next;
+                synchronized (this) {
+                    next = peekNext();
+                    if (next == null) {
+                        draining = false;
+                        return;
+                    }
+                    long waitNanos = reserve(next.payload().length);
+                    if (waitNanos > 0) {
+                        draining = false;
+                        budgetWaits.incrementAndGet();
+                        drainTask = timer.schedule(this::resumeDrain, waitNanos, TimeUnit.NANOSECONDS);
+                        return;
+                    }
+                    queues.get(Priority.of(next.type()).ordinal()).pollFirst();
+                    backlog--;
+                }
+                sent.incrementAndGet();
+                try {
+                    transmitter.transmit(peerKey, next.type(), next.payload());
+                } catch (RuntimeException e) {
+                    System.err.println("Erreur envoi vers " + peerKey + ": " + e.getMessage());
+                }
+            }
+        }
+
+        private void resumeDrain() {
+            synchronized (this) {
+                drainTask = null;
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            drain();
+        }
+
+        private Queued peekNext() {
+            for (ArrayDeque<Queued> queue : queues) {
+                if (!queue.isEmpty()) {
+                    return queue.peekFirst();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Preleve bytes jetons ; retourne 0 si c'est fait, sinon le delai
+         * (ns) avant d'en avoir assez. Un message plus gros que la rafale part
+         * des que le seau est plein.
+         */
+        private long reserve(int bytes) {
+            if (rateBytesPerSecond <= 0) {
+                return 0;
+            }
+            refill();
+            double needed = Math.min(bytes, BURST_BYTES);
+            if (tokens >= needed) {
+                tokens -= bytes;
+                return 0;
+            }
+            return Math.max(1, (long) ((needed - tokens) * 1_000_000_000L / rateBytesPerSecond));
+        }
+
+        synchronized void charge(int bytes) {
+            if (rateBytesPerSecond > 0) {
+                refill();
+                tokens -= bytes;
+            }
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(BURST_BYTES, tokens + (now - refilledAt) * rateBytesPerSecond / 1e9);
+            refilledAt = now;
+        }
+
+        synchronized int backlog() {
+            return backlog;
+        }
+
+        synchronized void clear() {
+            if (drainTask != null) {
+                drainTask.cancel(false);
+                drainTask = null;
+            }
+            for (ArrayDeque<Queued> queue : queues) {
+                queue.clear();
+            }
+            backlog = 0;
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package com.undercover.network;
+
+import com.undercover.network.protocol.MessageType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ReliableUdp - Livraison "au moins une fois" sur les canaux UDP
+ *
+ * Active pour un pair quand la capacite RELIABLE est negociee au JOIN.
+ * Chaque ligne envoyee a ce pair (JSON ou binaire) est precedee d'une
+ * enveloppe :
+ *
+ *   @from|seq|ack|ackBits|rel|ligne
+ *
+ *   from    : adresse UDP "ip:port" de l'emetteur (ou renvoyer les acquittements)
+ *   seq     : numero du datagramme pour ce pair (0 = acquittement seul)
+ *   ack     : plus grand seq recu de ce pair, ackBits : les 32 precedents (hexa)
+ *   rel     : numero du message critique (0 = message ordinaire, jamais renvoye)
+ *
+ * Les acquittements voyagent dans l'enveloppe des messages suivants ; si rien
+ * ne part vers le pair, un acquittement seul part apres ACK_DELAY_MS. Un
+ * message critique non acquitte est renvoye sous un nouveau seq (l'ancien a
+ * pu sortir des 32 acquittements suivis) mais garde son rel : le recepteur
+ * ecarte les doublons sur rel (DeliveredWindow). Un datagramme recu deux fois
+ * (meme seq) est ecarte par la SequenceWindow du pair, qui fournit aussi
+ * ack et ackBits. Le delai de renvoi suit
+ * le RTT mesure (SRTT + 4 RTTVAR, RFC 6298) et double a chaque essai ; le
+ * message est abandonne apres MAX_RETRIES.
+ */
+public class ReliableUdp {
+
+    /** Premier caractere d'une ligne avec enveloppe */
+    public static final char LINE_PREFIX = '@';
+
+    /** Messages qui bloquent ou desynchronisent la partie s'ils se perdent */
+    public static final Set<MessageType> CRITICAL_TYPES = EnumSet.of(
+        MessageType.GAME_START,
+        MessageType.PHASE_CHANGE,
+        MessageType.GAME_END,
+        MessageType.WORD_SPOKEN,
+        MessageType.VOTE,
+        MessageType.GUESS,
+        MessageType.ROUND_END,
+        MessageType.SNAPSHOT_REQUEST,
+        MessageType.STATE_SNAPSHOT
+    );
+
+    /** Periode de la tache de retransmission / acquittements (voir tick) */
+    public static final long TICK_MS = 10;
+
+    private static final long ACK_DELAY_MS = 10;
+    private static final long INITIAL_RTO_MS = 200;
+    private static final long MIN_RTO_MS = 50;
+    private static final long MAX_RTO_MS = 2000;
+    private static final int MAX_RETRIES = 8;
+
+    /**
+     * Envoi effectif d'une enveloppe (canal UDP du pair, voir NetworkBridge)
+     */
+    @FunctionalInterface
+    interface Sender {
+        void send(String peerKey, byte[] header, byte[] payload);
+    }
+
+    private static final class Pending {
+        final int rel;
+        final byte[] payload;
+        long sentAt;
+        long timeoutMs;
+        int retries;
+
+        Pending(int rel, byte[] payload, long sentAt, long timeoutMs) {
+            this.rel = rel;
+            this.payload = payload;
+            this.sentAt = sentAt;
+            this.timeoutMs = timeoutMs;
+        }
+    }
+
+    private static final class Peer {
+        // Envoi : prochain seq de datagramme, prochain numero de message critique
+        int nextSeq = 1;
+        int nextRel = 1;
+        // Messages critiques non acquittes, par seq du dernier envoi
+        final Map<Integer, Pending> unacked = new LinkedHashMap<>();
+        // Reception : datagrammes deja recus (doublons, acquittements)
+        final SequenceWindow received = new SequenceWindow();
+        // Reception : messages critiques deja livres
+        final DeliveredWindow deliveredRel = new DeliveredWindow();
+        boolean ackPending;
+        long ackDueAt;
+        // Estimation du RTT (millisecondes)
+        boolean hasRtt;
+        double srtt;
+        double rttvar;
+        long rto = INITIAL_RTO_MS;
+    }
+
+    /**
+     * Messages critiques deja livres, sans oubli possible : tous les rel
+     * jusqu'a base ont ete livres, plus un masque des SIZE suivants. Un rel
+     * trop en avance n'est ni livre ni acquitte (l'emetteur le renverra) :
+     * contrairement a SequenceWindow, un rel ancien n'est jamais pris pour un
+     * doublon sans avoir ete livre.
+     */
+    private static final class DeliveredWindow {
+        static final int SIZE = 64;
+
+        int base;
+        // bit i = rel (base + 1 + i) livre
+        long bits;
+
+        boolean accepts(int rel) {
+            return rel - base <= SIZE;
+        }
+
+        /** Retourne false si le rel a deja ete livre (ou est trop en avance) */
+        boolean record(int rel) {
+            if (rel <= base) {
+                return false;
+            }
+            int offset = rel - base - 1;
+            if (offset >= SIZE) {
+                return false;
+            }
+            long mask = 1L << offset;
+            if ((bits & mask) != 0) {
+                return false;
+            }
+            bits |= mask;
+            while ((bits & 1) != 0) {
+                bits >>>= 1;
+                base++;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Enveloppe recue : emetteur, seq du datagramme (0 = acquittement seul) et
+     * ligne a livrer (null si rien a livrer : acquittement seul, doublon...)
+     */
+    public record Received(String from, int seq, String line) {}
+
+    /** Une enveloppe a envoyer, construite sous le verrou du pair */
+    private record Outgoing(String peerKey, byte[] header, byte[] payload) {}
+
+    private final Sender sender;
+    private final Map<String, Peer> peers = new ConcurrentHashMap<>();
+    private volatile String localAddress = "";
+
+    // Compteurs
+    private final AtomicLong criticalSent = new AtomicLong();
+    private final AtomicLong retransmits = new AtomicLong();
+    private final AtomicLong acked = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong duplicateDatagrams = new AtomicLong();
+    private final AtomicLong pureAcks = new AtomicLong();
+
+    ReliableUdp(Sender sender) {
+        this.sender = sender;
+    }
+
+    /**
+     * Adresse UDP locale "ip:port" annoncee dans le champ from
+     */
+    public void setLocalAddress(String address) {
+        this.localAddress = address;
+    }
+
+    public void enable(String peerKey) {
+        peers.computeIfAbsent(peerKey, k -> new Peer());
+    }
+
+    public void disable(String peerKey) {
+        peers.remove(peerKey);
+    }
+
+    public boolean isEnabled(String peerKey) {
+        return peers.containsKey(peerKey);
+    }
+
+    public boolean hasPeers() {
+        return !peers.isEmpty();
+    }
+
+    public static boolean isEnvelope(String line) {
+        return !line.isEmpty() && line.charAt(0) == LINE_PREFIX;
+    }
+
+    // =====================================================================
+    // ENVOI
+    // =====================================================================
+
+    /**
+     * Numerote un message pour ce pair et retourne l'enveloppe a ecrire avant
+     * la ligne. Un message critique est garde jusqu'a son acquittement.
+     * Retourne null si la livraison fiable n'est pas active pour ce pair.
+     */
+    public byte[] wrap(String peerKey, MessageType type, byte[] payload) {
+        Peer peer = peers.get(peerKey);
+        if (peer == null) {
+            return null;
+        }
+        boolean critical = CRITICAL_TYPES.contains(type);
+        synchronized (peer) {
+            int seq = peer.nextSeq++;
+            int rel = 0;
+            if (critical) {
+                rel = peer.nextRel++;
+                peer.unacked.put(seq, new Pending(rel, payload, System.currentTimeMillis(), peer.rto));
+                criticalSent.incrementAndGet();
+            }
+            return header(peer, seq, rel);
+        }
+    }
+
+    /**
+     * Construit l'enveloppe ; l'acquittement y est joint, plus besoin d'en
+     * envoyer un seul
+     */
+    private byte[] header(Peer peer, int seq, int rel) {
+        peer.ackPending = false;
+        String header = LINE_PREFIX + localAddress
+            + '|' + seq
+            + '|' + peer.received.highest()
+            + '|' + Integer.toHexString((int) peer.received.bits())
+            + '|' + rel
+            + '|';
+        return header.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // =====================================================================
+    // RECEPTION
+    // =====================================================================
+
+    /**
+     * Traite l'enveloppe d'une ligne recue : acquittements, numero de
+     * sequence. Le seq est rendu meme quand il n'y a rien a livrer, pour que
+     * l'ordre de livraison (SenderMailboxes) n'attende pas ce datagramme.
+     * Un datagramme deja recu (meme seq) n'est pas livre une seconde fois.
+     * Retourne null si l'enveloppe est illisible.
+     */
+    public Received unwrap(String line) {
+        String[] parts = line.substring(1).split("\\|", 6);
+        if (parts.length < 6) {
+            return null;
+        }
+        int seq, ack, ackBits, rel;
+        try {
+            seq = Integer.parseInt(parts[1]);
+            ack = Integer.parseInt(parts[2]);
+            ackBits = Integer.parseUnsignedInt(parts[3], 16);
+            rel = Integer.parseInt(parts[4]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        String from = parts[0];
+        String payload = parts[5].isEmpty() ? null : parts[5];
+
+        Peer peer = peers.get(from);
+        if (peer == null) {
+            // Pair sans livraison fiable de notre cote : on livre simplement
+            return new Received(from, seq, payload);
+        }
+
+        long now = System.currentTimeMillis();
+        synchronized (peer) {
+            processAck(peer, ack, ackBits, now);
+            if (seq <= 0) {
+                return new Received(from, 0, null);
+            }
+            if (rel > 0 && !peer.deliveredRel.accepts(rel)) {
+                // Trop en avance : ni livre ni acquitte, l'emetteur le renverra
+                return new Received(from, seq, null);
+            }
+            if (!peer.received.record(seq)) {
+                // Datagramme duplique par le reseau (ou trop ancien pour etre verifie)
+                duplicateDatagrams.incrementAndGet();
+                return new Received(from, seq, null);
+            }
+            if (rel > 0 && !peer.ackPending) {
+                peer.ackPending = true;
+                peer.ackDueAt = now + ACK_DELAY_MS;
+            }
+            if (rel > 0 && !peer.deliveredRel.record(rel)) {
+                // Renvoi d'un message deja livre (notre acquittement s'est perdu)
+                duplicates.incrementAndGet();
+                return new Received(from, seq, null);
+            }
+        }
+        return new Received(from, seq, payload);
+    }
+
+    /**
+     * Indique si un acquittement (ack, ackBits) couvre le seq donne
+     */
+    static boolean acknowledges(int ack, int ackBits, int seq) {
+        if (seq == ack) {
+            return true;
+        }
+        int offset = ack - seq - 1;
+        return offset >= 0 && offset < 32 && (ackBits & (1 << offset)) != 0;
+    }
+
+    private void processAck(Peer peer, int ack, int ackBits, long now) {
+        if (ack <= 0 || peer.unacked.isEmpty()) {
+            return;
+        }
+        Iterator<Map.Entry<Integer, Pending>> it = peer.unacked.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Pending> entry = it.next();
+            Pending pending = entry.getValue();
+            if (acknowledges(ack, ackBits, entry.getKey())) {
+                it.remove();
+                acked.incrementAndGet();
+                // Algorithme de Karn : pas de mesure sur un message renvoye
+                if (pending.retries == 0) {
+                    sampleRtt(peer, now - pending.sentAt);
+                }
+            }
+        }
+    }
+
+    private static void sampleRtt(Peer peer, long rttMs) {
+        if (!peer.hasRtt) {
+            peer.srtt = rttMs;
+            peer.rttvar = rttMs / 2.0;
+            peer.hasRtt = true;
+        } else {
+            peer.rttvar = 0.75 * peer.rttvar + 0.25 * Math.abs(peer.srtt - rttMs);
+            peer.srtt = 0.875 * peer.srtt + 0.125 * rttMs;
+        }
+        long rto = Math.round(peer.srtt + 4 * peer.rttvar);
+        peer.rto = Math.max(MIN_RTO_MS, Math.min(MAX_RTO_MS, rto));
+    }
+
+    // =====================================================================
+    // RETRANSMISSIONS ET ACQUITTEMENTS
+    // =====================================================================
+
+    /**
+     * Renvoie les messages critiques dont le delai est depasse et envoie les
+     * acquittements en attente. Appele toutes les TICK_MS par NetworkBridge.
+     */
+    public void tick() {
+        long now = System.currentTimeMillis();
+        List<Outgoing> outgoing = new ArrayList<>();
+        for (Map.Entry<String, Peer> entry : peers.entrySet()) {
+            Peer peer = entry.getValue();
+            synchronized (peer) {
+                List<Pending> due = null;
+                Iterator<Pending> it = peer.unacked.values().iterator();
+                while (it.hasNext()) {
+                    Pending pending = it.next();
+                    if (now - pending.sentAt < pending.timeoutMs) {
+                        continue;
+                    }
+                    it.remove();
+                    if (pending.retries >= MAX_RETRIES) {
+                        abandoned.incrementAndGet();
+                        System.err.println("Message fiable #" + pending.rel + " abandonne vers " + entry.getKey());
+                        continue;
+                    }
+                    if (due == null) {
+                        due = new ArrayList<>();
+                    }
+                    due.add(pending);
+                }
+                if (due != null) {
+                    // Renvoi sous un nouveau seq, le rel ne change pas
+                    for (Pending pending : due) {
+                        pending.retries++;
+                        pending.sentAt = now;
+                        pending.timeoutMs = Math.min(MAX_RTO_MS, pending.timeoutMs * 2);
+                        int seq = peer.nextSeq++;
+                        peer.unacked.put(seq, pending);
+                        retransmits.incrementAndGet();
+                        outgoing.add(new Outgoing(entry.getKey(), header(peer, seq, pending.rel), pending.payload));
+                    }
+                }
+                if (peer.ackPending && now >= peer.ackDueAt) {
+                    pureAcks.incrementAndGet();
+                    outgoing.add(new Outgoing(entry.getKey(), header(peer, 0, 0), new byte[0]));
+                }
+            }
+        }
+        for (Outgoing out : outgoing) {
+            sender.send(out.peerKey(), out.header(), out.payload());
+        }
+    }
+
+    /**
+     * Delai de retransmission courant vers un pair (-1 si inconnu)
+     */
+    public long getRto(String peerKey) {
+        Peer peer = peers.get(peerKey);
+        if (peer == null) {
+            return -1;
+        }
+        synchronized (peer) {
+            return peer.rto;
+        }
+    }
+
+    public String describeStats() {
+        return String.format("UDP fiable: %d critique(s), %d acquitte(s), %d renvoi(s), %d abandon(s), %d doublon(s), %d datagramme(s) en double, %d ack seul(s)",
+            criticalSent.get(), acked.get(), retransmits.get(), abandoned.get(), duplicates.get(), duplicateDatagrams.get(), pureAcks.get());
+    }
+}
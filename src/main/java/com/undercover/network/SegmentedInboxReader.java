@@ -0,0 +1,137 @@
+package com.undercover.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.function.Consumer;
+
+/**
+ * SegmentedInboxReader - Lecture du journal d'inbox TCP (mode POLL)
+ *
+ * handle_tcp_client.sh ecrit les messages dans segment-0.jsonl, segment-1.jsonl...
+ * et passe au segment suivant quand le courant depasse une taille limite.
+ * Ce lecteur :
+ *   - lit par blocs via un FileChannel dans un ByteBuffer reutilise,
+ *   - decoupe les lignes sur les octets bruts et decode l'UTF-8 une seule fois,
+ *   - supprime chaque segment des qu'il a ete lu en entier.
+ * Memoire et disque restent constants, quelle que soit la duree de la partie.
+ */
+public class SegmentedInboxReader implements AutoCloseable {
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final Path inboxDir;
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    private int segment = 0;
+    private FileChannel channel;
+
+    public SegmentedInboxReader(Path inboxDir) {
+        this.inboxDir = inboxDir;
+    }
+
+    /**
+     * Lit toutes les lignes completes disponibles et les passe a lineHandler.
+     * Retourne le nombre de lignes lues.
+     */
+    public int poll(Consumer<String> lineHandler) throws IOException {
+        int lines = 0;
+        while (true) {
+            // Verifier l'existence du segment suivant AVANT de vider le courant :
+            // une fois le suivant cree, l'ecrivain ne touche plus au courant.
+            boolean rolled = Files.exists(segmentPath(segment + 1));
+
+            if (channel == null && !openCurrentSegment()) {
+                if (!rolled) {
+                    return lines;
+                }
+            } else {
+                lines += drain(lineHandler);
+            }
+
+            if (!rolled) {
+                return lines;
+            }
+            closeChannel();
+            Files.deleteIfExists(segmentPath(segment));
+            segment++;
+            buffer.clear();
+        }
+    }
+
+    private boolean openCurrentSegment() throws IOException {
+        try {
+            channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Lit jusqu'a la fin du fichier. Les octets d'une ligne incomplete restent
+     * dans le buffer jusqu'au prochain appel.
+     */
+    private int drain(Consumer<String> lineHandler) throws IOException {
+        int lines = 0;
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                growBuffer();
+            }
+            int read = channel.read(buffer);
+            if (read <= 0) {
+                return lines;
+            }
+
+            byte[] bytes = buffer.array();
+            int end = buffer.position();
+            int lineStart = 0;
+            for (int i = 0; i < end; i++) {
+                if (bytes[i] == '\n') {
+                    if (i > lineStart) {
+                        lineHandler.accept(new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8));
+                        lines++;
+                    }
+                    lineStart = i + 1;
+                }
+            }
+
+            // Garder la ligne incomplete au debut du buffer
+            buffer.flip();
+            buffer.position(lineStart);
+            buffer.compact();
+        }
+    }
+
+    /**
+     * Une ligne plus grande que le buffer : on double sa taille
+     */
+    private void growBuffer() {
+        ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        bigger.put(buffer);
+        buffer = bigger;
+    }
+
+    private Path segmentPath(int index) {
+        return inboxDir.resolve("segment-" + index + ".jsonl");
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Ignorer
+            }
+            channel = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        closeChannel();
+    }
+}
@@ -0,0 +1,206 @@
+package com.undercover.network;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SenderMailboxes - Livraison des messages recus, dans l'ordre d'envoi de chaque pair
+ *
+ * Chaque emetteur a sa boite : ses messages sont traites un par un, dans
+ * l'ordre, pendant que ceux des autres pairs avancent en parallele sur le
+ * pool partage. Un PHASE_CHANGE ne peut donc plus passer avant le
+ * PLAYER_LIST envoye juste avant lui par le meme hote.
+ *
+ * Avec un seq d'enveloppe (ReliableUdp), un message arrive en avance attend
+ * les precedents au plus REORDER_WAIT_MS : au-dela, le trou est considere
+ * perdu (message ordinaire) ou en cours de renvoi (message critique, livre a
+ * son arrivee). seq = 0 : livre dans l'ordre d'arrivee.
+ *
+ * Seuls les messages avec enveloppe passent par une boite : ils portent
+ * l'adresse de l'emetteur. Les autres (pair sans RELIABLE, client avant la
+ * fin de son JOIN) vont directement au pool de reception : les ranger dans
+ * une boite commune les traiterait tous un par un.
+ */
+public class SenderMailboxes {
+
+    /** Attente max d'un message manquant avant de livrer les suivants */
+    public static final long REORDER_WAIT_MS = 30;
+    /** Messages en avance gardes au plus par pair (au-dela, on livre sans attendre) */
+    private static final int MAX_BUFFERED = 64;
+
+    private final Executor executor;
+    private final ScheduledExecutorService timer;
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    // Compteurs
+    private final AtomicLong reordered = new AtomicLong();
+    private final AtomicLong gapsSkipped = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+
+    public SenderMailboxes(Executor executor, ScheduledExecutorService timer) {
+        this.executor = executor;
+        this.timer = timer;
+    }
+
+    /**
+     * Livre un message de l'emetteur donne. seq = 0 : pas de numero, livre
+     * dans l'ordre d'arrivee. task = null : seq consomme sans rien a livrer
+     * (acquittement, doublon), les suivants n'ont pas a l'attendre.
+     */
+    public void deliver(String sender, int seq, Runnable task) {
+        mailboxes.computeIfAbsent(sender, Mailbox::new).offer(seq, task);
+    }
+
+    /**
+     * Oublie un pair (depart) : un nouveau pair a cette adresse repart de zero
+     */
+    public void forget(String sender) {
+        Mailbox mailbox = mailboxes.remove(sender);
+        if (mailbox != null) {
+            mailbox.flushAll();
+        }
+    }
+
+    public String describeStats() {
+        return String.format("Ordre de livraison: %d remis en ordre, %d trou(s) saute(s), %d en retard",
+            reordered.get(), gapsSkipped.get(), late.get());
+    }
+
+    private final class Mailbox {
+        private final String sender;
+        // File serie : un seul drain a la fois sur le pool
+        private final Queue<Runnable> ready = new ArrayDeque<>();
+        private boolean draining;
+        // Tampon de remise en ordre (seq -> message, null = rien a livrer)
+        private final TreeMap<Integer, Runnable> buffered = new TreeMap<>();
+        private int expected;
+        private long waitingSince;
+        private ScheduledFuture<?> flushTask;
+
+        Mailbox(String sender) {
+            this.sender = sender;
+        }
+
+        synchronized void offer(int seq, Runnable task) {
+            if (seq <= 0) {
+                enqueue(task);
+                return;
+            }
+            if (expected == 0) {
+                expected = seq;
+            }
+            if (seq < expected) {
+                // Arrive apres qu'on a cesse de l'attendre : livre tel quel
+                late.incrementAndGet();
+                enqueue(task);
+                return;
+            }
+            if (seq > expected) {
+                if (buffered.isEmpty()) {
+                    waitingSince = System.currentTimeMillis();
+                }
+                buffered.put(seq, task);
+                if (buffered.size() > MAX_BUFFERED) {
+                    skipGap();
+                } else {
+                    scheduleFlush();
+                }
+                return;
+            }
+            enqueue(task);
+            expected++;
+            if (!buffered.isEmpty()) {
+                reordered.incrementAndGet();
+            }
+            releaseConsecutive();
+        }
+
+        /** Livre les messages tamponnes qui suivent expected sans trou */
+        private void releaseConsecutive() {
+            while (!buffered.isEmpty() && buffered.firstKey() == expected) {
+                enqueue(buffered.pollFirstEntry().getValue());
+                expected++;
+            }
+            if (!buffered.isEmpty()) {
+                waitingSince = System.currentTimeMillis();
+                scheduleFlush();
+            }
+        }
+
+        /** Abandonne l'attente du trou le plus ancien */
+        private void skipGap() {
+            gapsSkipped.incrementAndGet();
+            expected = buffered.firstKey();
+            releaseConsecutive();
+        }
+
+        private void scheduleFlush() {
+            if (flushTask != null && !flushTask.isDone()) {
+                return;
+            }
+            long delay = Math.max(1, waitingSince + REORDER_WAIT_MS - System.currentTimeMillis());
+            flushTask = timer.schedule(this::flushIfWaited, delay, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void flushIfWaited() {
+            flushTask = null;
+            if (buffered.isEmpty()) {
+                return;
+            }
+            if (System.currentTimeMillis() - waitingSince >= REORDER_WAIT_MS) {
+                skipGap();
+            } else {
+                scheduleFlush();
+            }
+        }
+
+        synchronized void flushAll() {
+            if (flushTask != null) {
+                flushTask.cancel(false);
+                flushTask = null;
+            }
+            for (Runnable task : buffered.values()) {
+                enqueue(task);
+            }
+            buffered.clear();
+        }
+
+        private void enqueue(Runnable task) {
+            if (task == null) {
+                return;
+            }
+            ready.add(task);
+            if (!draining) {
+                draining = true;
+                executor.execute(this::drain);
+            }
+        }
+
+        /** Execute les messages prets un par un, puis rend le thread au pool */
+        private void drain() {
+            while (true) {
+                Runnable task;
+                synchronized (this) {
+                    task = ready.poll();
+                    if (task == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Erreur traitement message de " + sender + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
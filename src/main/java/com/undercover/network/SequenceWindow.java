@@ -0,0 +1,78 @@
+package com.undercover.network;
+
+/**
+ * SequenceWindow - Fenetre glissante des numeros recus d'un pair
+ *
+ * Retient le plus grand numero recu (highest) et un masque des SIZE numeros
+ * precedents : memoire fixe par pair, aucune chaine construite, test et
+ * enregistrement en O(1). Sert a ecarter les datagrammes en double et a
+ * construire les acquittements (ReliableUdp).
+ *
+ * Un numero plus ancien que highest - SIZE est refuse comme un doublon : on
+ * ne peut plus savoir s'il a ete vu. Les numeros commencent a 1.
+ */
+public class SequenceWindow {
+
+    /** Nombre de numeros suivis sous highest() */
+    public static final int SIZE = 64;
+
+    private int highest;
+    // bit i = numero (highest - 1 - i) recu
+    private long bits;
+
+    /**
+     * Enregistre un numero recu. Retourne false si c'est un doublon, ou s'il
+     * est sorti de la fenetre.
+     */
+    public synchronized boolean record(int seq) {
+        if (seq <= 0) {
+            return false;
+        }
+        if (seq > highest) {
+            int shift = seq - highest;
+            if (highest == 0 || shift > SIZE) {
+                bits = 0;
+            } else if (shift == SIZE) {
+                bits = 1L << (SIZE - 1);
+            } else {
+                bits = (bits << shift) | (1L << (shift - 1));
+            }
+            highest = seq;
+            return true;
+        }
+        if (seq == highest) {
+            return false;
+        }
+        int offset = highest - seq - 1;
+        if (offset >= SIZE) {
+            return false;
+        }
+        long mask = 1L << offset;
+        if ((bits & mask) != 0) {
+            return false;
+        }
+        bits |= mask;
+        return true;
+    }
+
+    /**
+     * Indique si un numero a deja ete recu (ou est sorti de la fenetre)
+     */
+    public synchronized boolean contains(int seq) {
+        if (seq <= 0 || seq > highest) {
+            return false;
+        }
+        int offset = highest - seq - 1;
+        return offset < 0 || offset >= SIZE || (bits & (1L << offset)) != 0;
+    }
+
+    /** Plus grand numero recu (0 = aucun) */
+    public synchronized int highest() {
+        return highest;
+    }
+
+    /** Masque des numeros recus sous highest() : bit i = highest - 1 - i */
+    public synchronized long bits() {
+        return bits;
+    }
+}
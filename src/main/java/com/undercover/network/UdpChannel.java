@@ -0,0 +1,95 @@
+package com.undercover.network;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UdpChannel - Canal UDP persistant vers un pair
+ *
+ * Enveloppe un processus udp_channel.sh (socat) dont l'entree standard reste
+ * ouverte : envoyer un message revient a ecrire une ligne dans un pipe,
+ * sans lancer de nouveau processus.
+ */
+public class UdpChannel {
+
+    private final String targetIp;
+    private final int targetPort;
+    private final Process process;
+    private final OutputStream out;
+
+    UdpChannel(String targetIp, int targetPort, Process process) {
+        this.targetIp = targetIp;
+        this.targetPort = targetPort;
+        this.process = process;
+        this.out = new BufferedOutputStream(process.getOutputStream(), 8192);
+    }
+
+    /**
+     * Ecrit un message (une ligne JSON) dans le canal.
+     * Retourne false si le processus est mort ou si le pipe est casse.
+     */
+    public boolean send(String line) {
+        return send(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Ecrit un message deja encode (sans le '\n' final) dans le canal.
+     */
+    public boolean send(byte[] line) {
+        return send(null, line);
+    }
+
+    /**
+     * Ecrit une enveloppe (voir ReliableUdp) suivie du message, sur une seule ligne.
+     * Le message encode peut ainsi etre partage entre plusieurs canaux.
+     */
+    public synchronized boolean send(byte[] header, byte[] line) {
+        if (!process.isAlive()) {
+            return false;
+        }
+        try {
+            if (header != null) {
+                out.write(header);
+            }
+            out.write(line);
+            out.write('\n');
+            out.flush();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    public String getTargetIp() { return targetIp; }
+    public int getTargetPort() { return targetPort; }
+
+    /**
+     * Ferme le canal : on ferme d'abord stdin pour laisser socat envoyer
+     * les derniers messages, puis on tue le processus s'il traine.
+     */
+    public synchronized void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            // Pipe deja ferme
+        }
+        try {
+            if (!process.waitFor(200, TimeUnit.MILLISECONDS)) {
+                process.destroy();
+            }
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "UdpChannel[" + targetIp + ":" + targetPort + "]";
+    }
+}
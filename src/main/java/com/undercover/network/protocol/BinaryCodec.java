@@ -0,0 +1,465 @@
+package com.undercover.network.protocol;
+
+import com.undercover.network.protocol.ProtocolMessage.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BinaryCodec - Format binaire compact des ProtocolMessage
+ *
+ * Trame :
+ *   [version : 1 octet][tag du type : 1 octet][champs du type...]
+ *
+ * Champs :
+ *   - entiers : varint zigzag (1 octet pour un port < 64, 3 octets pour un port usuel)
+ *   - texte   : varint (longueur + 1) puis UTF-8, 0 = null
+ *   - ids et IP des joueurs : reference dans une table de chaines propre au
+ *     message (0 = null, 1 = nouvelle chaine qui suit, n >= 2 = entree n - 2).
+ *     Dans PLAYER_LIST / TURN_START, un id deja vu ne coute qu'un octet.
+ *   - booleens de PlayerInfo : regroupes dans un octet de drapeaux
+ *
+ * Les scripts transportent des lignes de texte : la trame est donc envoyee en
+ * Base64 precedee de LINE_PREFIX, ce qui permet de la distinguer d'une ligne
+ * JSON (qui commence par '{').
+ */
+public final class BinaryCodec {
+
+    public static final int VERSION = 1;
+
+    /** Premier caractere d'une ligne binaire */
+    public static final char LINE_PREFIX = '~';
+
+    private static final int FLAG_HOST = 1;
+    private static final int FLAG_ALIVE = 2;
+
+    private static final Base64.Encoder BASE64_ENCODER = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder BASE64_DECODER = Base64.getDecoder();
+
+    private static final ThreadLocal<Output> OUTPUTS = ThreadLocal.withInitial(Output::new);
+
+    private BinaryCodec() {}
+
+    /**
+     * Indique si une ligne recue est au format binaire
+     */
+    public static boolean isBinaryLine(String line) {
+        return !line.isEmpty() && line.charAt(0) == LINE_PREFIX;
+    }
+
+    // =====================================================================
+    // ENCODAGE
+    // =====================================================================
+
+    /**
+     * Encode un message en trame binaire brute
+     */
+    public static byte[] encodeFrame(ProtocolMessage message) {
+        Output out = OUTPUTS.get();
+        out.reset();
+        out.writeByte(VERSION);
+        out.writeByte(message.type().getTag());
+        writeFields(out, message);
+        return out.toByteArray();
+    }
+
+    /**
+     * Encode un message en ligne de texte ("~" + Base64)
+     */
+    public static String encode(ProtocolMessage message) {
+        return LINE_PREFIX + BASE64_ENCODER.encodeToString(encodeFrame(message));
+    }
+
+    /**
+     * Encode un message en ligne de texte, en octets (ASCII)
+     */
+    public static byte[] encodeToBytes(ProtocolMessage message) {
+        return encode(message).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void writeFields(Output out, ProtocolMessage message) {
+        switch (message.type()) {
+            case JOIN_REQUEST -> {
+                JoinRequest m = (JoinRequest) message;
+                out.writeString(m.playerName());
+                out.writeRef(m.playerIp());
+                out.writeInt(m.playerPort());
+                out.writeInt(m.playerUdpPort());
+                out.writeRef(m.playerId());
+                out.writeInt(m.protocolVersion());
+                out.writeInt(m.capabilities());
+            }
+            case JOIN_ACCEPTED -> {
+                JoinAccepted m = (JoinAccepted) message;
+                out.writeString(m.sessionId());
+                out.writeString(m.sessionName());
+                out.writeRef(m.hostIp());
+                out.writeInt(m.hostUdpPort());
+                out.writeRef(m.playerId());
+                out.writeInt(m.protocolVersion());
+                out.writeInt(m.capabilities());
+            }
+            case JOIN_REJECTED -> out.writeString(((JoinRejected) message).reason());
+            case PLAYER_LEAVE -> out.writeRef(message.playerId());
+            case PLAYER_LIST -> {
+                PlayerList m = (PlayerList) message;
+                writePlayers(out, m.players());
+                out.writeInt(m.version());
+            }
+            case PLAYER_DELTA -> {
+                PlayerDelta m = (PlayerDelta) message;
+                out.writeInt(m.version());
+                writePlayers(out, m.upserts());
+                writeRefs(out, m.removed());
+            }
+            case STATE_SNAPSHOT -> {
+                StateSnapshot m = (StateSnapshot) message;
+                out.writeInt(m.version());
+                writePlayers(out, m.players());
+                writeRefs(out, m.turnOrder());
+                out.writeInt(m.currentTurnIndex());
+            }
+            case SNAPSHOT_REQUEST -> {
+                SnapshotRequest m = (SnapshotRequest) message;
+                out.writeRef(m.playerId());
+                out.writeInt(m.version());
+            }
+            case GAME_START -> {
+                GameStart m = (GameStart) message;
+                out.writeString(m.role());
+                out.writeString(m.word());
+            }
+            case PHASE_CHANGE -> out.writeString(((PhaseChange) message).state());
+            case GAME_END -> out.writeString(((GameEnd) message).message());
+            case GAME_MESSAGE -> {
+                GameNotice m = (GameNotice) message;
+                out.writeRef(m.senderId());
+                out.writeString(m.senderName());
+                out.writeString(m.content());
+                out.writeString(m.messageType());
+            }
+            case WORD_SPOKEN -> {
+                WordSpoken m = (WordSpoken) message;
+                out.writeRef(m.playerId());
+                out.writeString(m.playerName());
+                out.writeString(m.word());
+                out.writeLong(m.timestamp());
+            }
+            case CHAT -> {
+                Chat m = (Chat) message;
+                out.writeRef(m.playerId());
+                out.writeString(m.playerName());
+                out.writeString(m.message());
+                out.writeLong(m.timestamp());
+            }
+            case VOTE -> {
+                Vote m = (Vote) message;
+                out.writeRef(m.voterId());
+                out.writeRef(m.targetId());
+            }
+            case GUESS -> {
+                Guess m = (Guess) message;
+                out.writeRef(m.playerId());
+                out.writeString(m.guess());
+            }
+            case TURN_START -> {
+                TurnStart m = (TurnStart) message;
+                out.writeRef(m.currentPlayerId());
+                out.writeInt(m.remainingSeconds());
+                out.writeInt(m.currentTurnIndex());
+                writeRefs(out, m.turnOrder());
+                out.writeInt(m.version());
+            }
+            case TIMER_SYNC -> out.writeInt(((TimerSync) message).remainingSeconds());
+            case TURN_TIMEOUT -> {
+                TurnTimeout m = (TurnTimeout) message;
+                out.writeRef(m.playerId());
+                out.writeString(m.playerName());
+            }
+            case ROUND_END -> {
+                // Pas de champ
+            }
+            case PING -> {
+                Ping m = (Ping) message;
+                out.writeLong(m.timestamp());
+                out.writeRef(m.senderIp());
+                out.writeInt(m.senderPort());
+            }
+            case PONG -> out.writeLong(message.timestamp());
+        }
+    }
+
+    private static void writePlayers(Output out, List<PlayerInfo> players) {
+        out.writeVarint(players.size());
+        for (PlayerInfo p : players) {
+            out.writeRef(p.id());
+            out.writeString(p.name());
+            out.writeRef(p.ip());
+            out.writeInt(p.port());
+            out.writeInt(p.udpPort());
+            out.writeByte((p.isHost() ? FLAG_HOST : 0) | (p.alive() ? FLAG_ALIVE : 0));
+        }
+    }
+
+    private static void writeRefs(Output out, List<String> values) {
+        out.writeVarint(values.size());
+        for (String value : values) {
+            out.writeRef(value);
+        }
+    }
+
+    // =====================================================================
+    // DECODAGE
+    // =====================================================================
+
+    /**
+     * Decode une ligne "~" + Base64. Retourne null si le type est inconnu,
+     * leve IllegalArgumentException si la trame est invalide.
+     */
+    public static ProtocolMessage decode(String line) {
+        if (!isBinaryLine(line)) {
+            throw new IllegalArgumentException("Ligne binaire attendue");
+        }
+        return decodeFrame(BASE64_DECODER.decode(line.substring(1)));
+    }
+
+    /**
+     * Decode une trame binaire brute
+     */
+    public static ProtocolMessage decodeFrame(byte[] frame) {
+        Input in = new Input(frame);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Version binaire non supportee: " + version);
+        }
+        MessageType type = MessageType.fromTag(in.readByte());
+        if (type == null) {
+            return null;
+        }
+        return switch (type) {
+            case JOIN_REQUEST -> new JoinRequest(in.readString(), in.readRef(), in.readInt(), in.readInt(), in.readRef(),
+                in.readOptionalInt(), in.readOptionalInt());
+            case JOIN_ACCEPTED -> new JoinAccepted(in.readString(), in.readString(), in.readRef(), in.readInt(), in.readRef(),
+                in.readOptionalInt(), in.readOptionalInt());
+            case JOIN_REJECTED -> new JoinRejected(in.readString());
+            case PLAYER_LEAVE -> new PlayerLeave(in.readRef());
+            case PLAYER_LIST -> new PlayerList(readPlayers(in), in.readOptionalInt());
+            case PLAYER_DELTA -> new PlayerDelta(in.readInt(), readPlayers(in), readRefs(in));
+            case STATE_SNAPSHOT -> new StateSnapshot(in.readInt(), readPlayers(in), readRefs(in), in.readInt());
+            case SNAPSHOT_REQUEST -> new SnapshotRequest(in.readRef(), in.readInt());
+            case GAME_START -> new GameStart(in.readString(), in.readString());
+            case PHASE_CHANGE -> new PhaseChange(in.readString());
+            case GAME_END -> new GameEnd(in.readString());
+            case GAME_MESSAGE -> new GameNotice(in.readRef(), in.readString(), in.readString(), in.readString());
+            case WORD_SPOKEN -> new WordSpoken(in.readRef(), in.readString(), in.readString(), in.readLong());
+            case CHAT -> new Chat(in.readRef(), in.readString(), in.readString(), in.readLong());
+            case VOTE -> new Vote(in.readRef(), in.readRef());
+            case GUESS -> new Guess(in.readRef(), in.readString());
+            case TURN_START -> new TurnStart(in.readRef(), in.readInt(), in.readInt(), readRefs(in),
+                in.readOptionalInt());
+            case TIMER_SYNC -> new TimerSync(in.readInt());
+            case TURN_TIMEOUT -> new TurnTimeout(in.readRef(), in.readString());
+            case ROUND_END -> new RoundEnd();
+            case PING -> new Ping(in.readLong(), in.readRef(), in.readInt());
+            case PONG -> new Pong(in.readLong());
+        };
+    }
+
+    private static List<PlayerInfo> readPlayers(Input in) {
+        int count = in.readCount();
+        List<PlayerInfo> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = in.readRef();
+            String name = in.readString();
+            String ip = in.readRef();
+            int port = in.readInt();
+            int udpPort = in.readInt();
+            int flags = in.readByte();
+            players.add(new PlayerInfo(id, name, ip, port, udpPort,
+                (flags & FLAG_HOST) != 0, (flags & FLAG_ALIVE) != 0));
+        }
+        return players;
+    }
+
+    private static List<String> readRefs(Input in) {
+        int count = in.readCount();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(in.readRef());
+        }
+        return values;
+    }
+
+    // =====================================================================
+    // LECTURE / ECRITURE BAS NIVEAU
+    // =====================================================================
+
+    /**
+     * Tampon d'ecriture reutilise par thread (avec sa table de chaines)
+     */
+    private static final class Output {
+        private byte[] buf = new byte[256];
+        private int size;
+        private final Map<String, Integer> table = new HashMap<>();
+
+        void reset() {
+            size = 0;
+            table.clear();
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+
+        void writeByte(int b) {
+            if (size == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            buf[size++] = (byte) b;
+        }
+
+        void writeBytes(byte[] bytes) {
+            if (size + bytes.length > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + bytes.length));
+            }
+            System.arraycopy(bytes, 0, buf, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        void writeInt(int value) {
+            // Zigzag sur 32 bits non signe : 5 octets au plus (sans le masque, un
+            // resultat >= 2^31 serait etendu en long negatif, soit 10 octets)
+            writeVarint(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+        }
+
+        void writeLong(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1);
+            writeBytes(bytes);
+        }
+
+        void writeRef(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            Integer index = table.get(value);
+            if (index != null) {
+                writeVarint(index + 2);
+                return;
+            }
+            table.put(value, table.size());
+            writeVarint(1);
+            writeString(value);
+        }
+    }
+
+    /**
+     * Curseur de lecture sur une trame
+     */
+    private static final class Input {
+        private final byte[] buf;
+        private int pos;
+        private final List<String> table = new ArrayList<>();
+
+        Input(byte[] buf) {
+            this.buf = buf;
+        }
+
+        int readByte() {
+            if (pos >= buf.length) {
+                throw new IllegalArgumentException("Trame binaire tronquee");
+            }
+            return buf[pos++] & 0xFF;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Varint invalide");
+        }
+
+        int readCount() {
+            long count = readVarint();
+            if (count < 0 || count > buf.length - pos) {
+                throw new IllegalArgumentException("Nombre d'elements invalide: " + count);
+            }
+            return (int) count;
+        }
+
+        int readInt() {
+            int value = (int) readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * Champ ajoute en fin de trame : 0 si la trame vient d'un pair plus ancien
+         */
+        int readOptionalInt() {
+            return pos < buf.length ? readInt() : 0;
+        }
+
+        long readLong() {
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String readString() {
+            long length = readVarint();
+            if (length == 0) {
+                return null;
+            }
+            int len = (int) (length - 1);
+            if (len < 0 || len > buf.length - pos) {
+                throw new IllegalArgumentException("Trame binaire tronquee");
+            }
+            String value = new String(buf, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return value;
+        }
+
+        String readRef() {
+            long code = readVarint();
+            if (code == 0) {
+                return null;
+            }
+            if (code == 1) {
+                String value = readString();
+                table.add(value);
+                return value;
+            }
+            int index = (int) (code - 2);
+            if (index < 0 || index >= table.size()) {
+                throw new IllegalArgumentException("Reference de chaine invalide: " + code);
+            }
+            return table.get(index);
+        }
+    }
+}
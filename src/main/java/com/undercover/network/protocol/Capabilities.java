@@ -0,0 +1,72 @@
+package com.undercover.network.protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Capabilities - Version du protocole et fonctionnalites negociees au JOIN
+ *
+ * Le client annonce sa version et son masque de capacites dans JOIN_REQUEST,
+ * l'hote repond dans JOIN_ACCEPTED avec l'intersection de leurs capacites.
+ * Un pair plus ancien n'envoie pas ces champs : version 0, aucune capacite,
+ * et on reste sur le JSON d'origine.
+ */
+public final class Capabilities {
+
+    /** Version courante du protocole (0 = client d'avant la negociation) */
+    public static final int PROTOCOL_VERSION = 1;
+
+    /** Sait decoder le format binaire (BinaryCodec) */
+    public static final int BINARY = 1;
+    /** Sait traiter plusieurs messages dans un meme datagramme */
+    public static final int BATCHING = 1 << 1;
+    /** Sait appliquer des mises a jour differentielles */
+    public static final int DELTA = 1 << 2;
+    /** Sait gerer les acquittements / retransmissions UDP */
+    public static final int RELIABLE = 1 << 3;
+
+    /** Capacites implementees par cette version */
+    public static final int SUPPORTED = BINARY | DELTA | RELIABLE;
+
+    private Capabilities() {}
+
+    /**
+     * Capacites annoncees par ce pair : le binaire n'est annonce que s'il est
+     * autorise (-Dundercover.wire.format=json force le JSON dans les deux sens),
+     * la livraison fiable peut etre coupee avec -Dundercover.udp.reliable=false
+     */
+    public static int local(WireFormat allowedFormat) {
+        int capabilities = allowedFormat == WireFormat.BINARY ? SUPPORTED : SUPPORTED & ~BINARY;
+        if ("false".equalsIgnoreCase(System.getProperty("undercover.udp.reliable"))) {
+            capabilities &= ~RELIABLE;
+        }
+        return capabilities;
+    }
+
+    /**
+     * Capacites communes a deux pairs
+     */
+    public static int negotiate(int ours, int theirs) {
+        return ours & theirs;
+    }
+
+    public static boolean has(int capabilities, int flag) {
+        return (capabilities & flag) == flag;
+    }
+
+    /**
+     * Format d'envoi le moins couteux supporte par toutes les capacites donnees
+     */
+    public static WireFormat cheapestFormat(int capabilities) {
+        return has(capabilities, BINARY) ? WireFormat.BINARY : WireFormat.JSON;
+    }
+
+    public static String describe(int capabilities) {
+        List<String> names = new ArrayList<>();
+        if (has(capabilities, BINARY)) names.add("BINARY");
+        if (has(capabilities, BATCHING)) names.add("BATCHING");
+        if (has(capabilities, DELTA)) names.add("DELTA");
+        if (has(capabilities, RELIABLE)) names.add("RELIABLE");
+        return names.isEmpty() ? "aucune" : String.join(",", names);
+    }
+}
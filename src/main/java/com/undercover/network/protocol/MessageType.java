@@ -0,0 +1,80 @@
+package com.undercover.network.protocol;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MessageType - Types de messages du protocole de jeu
+ *
+ * Le nom de la constante est la valeur du champ "type" en JSON, le tag est
+ * l'octet de type du format binaire (ne jamais reutiliser un tag existant).
+ */
+public enum MessageType {
+    // Connexion (TCP)
+    JOIN_REQUEST(1),
+    JOIN_ACCEPTED(2),
+    JOIN_REJECTED(3),
+    PLAYER_LEAVE(4),
+
+    // Etat de la partie (UDP, diffuse par l'hote)
+    PLAYER_LIST(10),
+    GAME_START(11),
+    PHASE_CHANGE(12),
+    GAME_END(13),
+    GAME_MESSAGE(14),
+
+    // Synchronisation differentielle de l'etat (capacite DELTA)
+    PLAYER_DELTA(15),
+    STATE_SNAPSHOT(16),
+    SNAPSHOT_REQUEST(17),
+
+    // Actions des joueurs
+    WORD_SPOKEN(20),
+    CHAT(21),
+    VOTE(22),
+    GUESS(23),
+
+    // Synchronisation des tours
+    TURN_START(30),
+    TIMER_SYNC(31),
+    TURN_TIMEOUT(32),
+    ROUND_END(33),
+
+    // Connexion
+    PING(40),
+    PONG(41);
+
+    private static final Map<String, MessageType> BY_WIRE_NAME = new HashMap<>();
+    private static final MessageType[] BY_TAG = new MessageType[64];
+
+    static {
+        for (MessageType type : values()) {
+            BY_WIRE_NAME.put(type.name(), type);
+            BY_TAG[type.tag] = type;
+        }
+    }
+
+    private final int tag;
+
+    MessageType(int tag) {
+        this.tag = tag;
+    }
+
+    public int getTag() {
+        return tag;
+    }
+
+    /**
+     * Retourne le type correspondant a la valeur "type" recue, ou null si inconnu
+     */
+    public static MessageType fromWireName(String name) {
+        return name != null ? BY_WIRE_NAME.get(name) : null;
+    }
+
+    /**
+     * Retourne le type correspondant a un tag binaire, ou null si inconnu
+     */
+    public static MessageType fromTag(int tag) {
+        return tag >= 0 && tag < BY_TAG.length ? BY_TAG[tag] : null;
+    }
+}
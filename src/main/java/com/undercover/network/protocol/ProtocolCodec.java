@@ -0,0 +1,372 @@
+package com.undercover.network.protocol;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.undercover.network.MessageCodec;
+import com.undercover.network.protocol.ProtocolMessage.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ProtocolCodec - Encodage JSON des ProtocolMessage, sans arbre intermediaire
+ *
+ * Le decodage lit la ligne en flux avec un JsonReader : chaque champ connu est
+ * range dans un objet de travail, puis le record du type lu est construit a la
+ * fin de l'objet (le champ "type" peut donc arriver dans n'importe quel ordre).
+ * L'encodage ecrit les champs du record directement dans un JsonWriter.
+ * Le format sur le reseau est inchange.
+ */
+public final class ProtocolCodec {
+
+    private ProtocolCodec() {}
+
+    // =====================================================================
+    // DECODAGE
+    // =====================================================================
+
+    /**
+     * Decode une ligne JSON. Retourne null si le type est absent ou inconnu,
+     * leve JsonSyntaxException si la ligne n'est pas un objet JSON valide.
+     */
+    public static ProtocolMessage decode(String line) {
+        Fields f = new Fields();
+        MessageCodec.readObject(line, (in, name) -> readField(in, name, f));
+        return f.build();
+    }
+
+    private static void readField(JsonReader in, String name, Fields f) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return;
+        }
+        switch (name) {
+            case "type" -> f.type = MessageType.fromWireName(in.nextString());
+            case "playerId" -> f.playerId = in.nextString();
+            case "playerName" -> f.playerName = in.nextString();
+            case "playerIp" -> f.playerIp = in.nextString();
+            case "playerPort" -> f.playerPort = in.nextInt();
+            case "playerUdpPort" -> f.playerUdpPort = in.nextInt();
+            case "sessionId" -> f.sessionId = in.nextString();
+            case "sessionName" -> f.sessionName = in.nextString();
+            case "hostIp" -> f.hostIp = in.nextString();
+            case "hostUdpPort" -> f.hostUdpPort = in.nextInt();
+            case "reason" -> f.reason = in.nextString();
+            case "players" -> f.players = readPlayers(in);
+            case "role" -> f.role = in.nextString();
+            case "word" -> f.word = in.nextString();
+            case "state" -> f.state = in.nextString();
+            case "message" -> f.message = in.nextString();
+            case "timestamp" -> f.timestamp = in.nextLong();
+            case "voterId" -> f.voterId = in.nextString();
+            case "targetId" -> f.targetId = in.nextString();
+            case "guess" -> f.guess = in.nextString();
+            case "senderId" -> f.senderId = in.nextString();
+            case "senderName" -> f.senderName = in.nextString();
+            case "content" -> f.content = in.nextString();
+            case "messageType" -> f.messageType = in.nextString();
+            case "currentPlayerId" -> f.currentPlayerId = in.nextString();
+            case "remainingSeconds" -> f.remainingSeconds = in.nextInt();
+            case "currentTurnIndex" -> f.currentTurnIndex = in.nextInt();
+            case "turnOrder" -> f.turnOrder = readStrings(in);
+            case "_senderIp" -> f.senderIp = in.nextString();
+            case "_senderPort" -> f.senderPort = in.nextInt();
+            case "protocolVersion" -> f.protocolVersion = in.nextInt();
+            case "capabilities" -> f.capabilities = in.nextInt();
+            case "version" -> f.version = in.nextInt();
+            case "upserts" -> f.upserts = readPlayers(in);
+            case "removed" -> f.removed = readStrings(in);
+            default -> in.skipValue();
+        }
+    }
+
+    private static List<PlayerInfo> readPlayers(JsonReader in) throws IOException {
+        List<PlayerInfo> players = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            String id = null, name = null, ip = null;
+            int port = 0, udpPort = 0;
+            boolean isHost = false, alive = true;
+            in.beginObject();
+            while (in.hasNext()) {
+                String field = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (field) {
+                    case "id" -> id = in.nextString();
+                    case "name" -> name = in.nextString();
+                    case "ip" -> ip = in.nextString();
+                    case "port" -> port = in.nextInt();
+                    case "udpPort" -> udpPort = in.nextInt();
+                    case "isHost" -> isHost = in.nextBoolean();
+                    case "alive" -> alive = in.nextBoolean();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            players.add(new PlayerInfo(id, name, ip, port, udpPort, isHost, alive));
+        }
+        in.endArray();
+        return players;
+    }
+
+    private static List<String> readStrings(JsonReader in) throws IOException {
+        List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(in.nextString());
+        }
+        in.endArray();
+        return values;
+    }
+
+    /**
+     * Champs lus dans la ligne, avant construction du record
+     */
+    private static final class Fields {
+        MessageType type;
+        String playerId, playerName, playerIp;
+        int playerPort, playerUdpPort;
+        String sessionId, sessionName, hostIp;
+        int hostUdpPort;
+        String reason;
+        List<PlayerInfo> players;
+        String role, word, state, message;
+        long timestamp;
+        String voterId, targetId, guess;
+        String senderId, senderName, content, messageType;
+        String currentPlayerId;
+        int remainingSeconds, currentTurnIndex;
+        List<String> turnOrder;
+        String senderIp;
+        int senderPort;
+        int protocolVersion, capabilities;
+        int version;
+        List<PlayerInfo> upserts;
+        List<String> removed;
+
+        ProtocolMessage build() {
+            if (type == null) {
+                return null;
+            }
+            return switch (type) {
+                case JOIN_REQUEST -> new JoinRequest(playerName, playerIp, playerPort, playerUdpPort, playerId,
+                    protocolVersion, capabilities);
+                case JOIN_ACCEPTED -> new JoinAccepted(sessionId, sessionName, hostIp, hostUdpPort, playerId,
+                    protocolVersion, capabilities);
+                case JOIN_REJECTED -> new JoinRejected(reason);
+                case PLAYER_LEAVE -> new PlayerLeave(playerId);
+                case PLAYER_LIST -> new PlayerList(orEmpty(players), version);
+                case PLAYER_DELTA -> new PlayerDelta(version, orEmpty(upserts), orEmpty(removed));
+                case STATE_SNAPSHOT -> new StateSnapshot(version, orEmpty(players), orEmpty(turnOrder), currentTurnIndex);
+                case SNAPSHOT_REQUEST -> new SnapshotRequest(playerId, version);
+                case GAME_START -> new GameStart(role, word);
+                case PHASE_CHANGE -> new PhaseChange(state);
+                case GAME_END -> new GameEnd(message);
+                case GAME_MESSAGE -> new GameNotice(senderId, senderName, content, messageType);
+                case WORD_SPOKEN -> new WordSpoken(playerId, playerName, word, timestamp);
+                case CHAT -> new Chat(playerId, playerName, message, timestamp);
+                case VOTE -> new Vote(voterId, targetId);
+                case GUESS -> new Guess(playerId, guess);
+                case TURN_START -> new TurnStart(currentPlayerId, remainingSeconds, currentTurnIndex,
+                    orEmpty(turnOrder), version);
+                case TIMER_SYNC -> new TimerSync(remainingSeconds);
+                case TURN_TIMEOUT -> new TurnTimeout(playerId, playerName);
+                case ROUND_END -> new RoundEnd();
+                case PING -> new Ping(timestamp, senderIp, senderPort);
+                case PONG -> new Pong(timestamp);
+            };
+        }
+    }
+
+    private static <T> List<T> orEmpty(List<T> values) {
+        return values != null ? values : List.of();
+    }
+
+    // =====================================================================
+    // ENCODAGE
+    // =====================================================================
+
+    /**
+     * Encode un message en une ligne JSON
+     */
+    public static String encode(ProtocolMessage message) {
+        return MessageCodec.encode(out -> write(out, message));
+    }
+
+    /**
+     * Encode un message en octets UTF-8
+     */
+    public static byte[] encodeToBytes(ProtocolMessage message) {
+        return encode(message).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void write(JsonWriter out, ProtocolMessage message) throws IOException {
+        out.beginObject();
+        out.name("type").value(message.type().name());
+        switch (message.type()) {
+            case JOIN_REQUEST -> {
+                JoinRequest m = (JoinRequest) message;
+                string(out, "playerName", m.playerName());
+                string(out, "playerIp", m.playerIp());
+                out.name("playerPort").value(m.playerPort());
+                out.name("playerUdpPort").value(m.playerUdpPort());
+                string(out, "playerId", m.playerId());
+                out.name("protocolVersion").value(m.protocolVersion());
+                out.name("capabilities").value(m.capabilities());
+            }
+            case JOIN_ACCEPTED -> {
+                JoinAccepted m = (JoinAccepted) message;
+                out.name("success").value(true);
+                string(out, "sessionId", m.sessionId());
+                string(out, "sessionName", m.sessionName());
+                string(out, "hostIp", m.hostIp());
+                out.name("hostUdpPort").value(m.hostUdpPort());
+                string(out, "playerId", m.playerId());
+                out.name("protocolVersion").value(m.protocolVersion());
+                out.name("capabilities").value(m.capabilities());
+            }
+            case JOIN_REJECTED -> {
+                out.name("success").value(false);
+                string(out, "reason", ((JoinRejected) message).reason());
+            }
+            case PLAYER_LEAVE -> string(out, "playerId", message.playerId());
+            case PLAYER_LIST -> {
+                PlayerList m = (PlayerList) message;
+                writePlayers(out, "players", m.players());
+                if (m.version() > 0) {
+                    out.name("version").value(m.version());
+                }
+            }
+            case PLAYER_DELTA -> {
+                PlayerDelta m = (PlayerDelta) message;
+                out.name("version").value(m.version());
+                if (!m.upserts().isEmpty()) {
+                    writePlayers(out, "upserts", m.upserts());
+                }
+                if (!m.removed().isEmpty()) {
+                    writeStrings(out, "removed", m.removed());
+                }
+            }
+            case STATE_SNAPSHOT -> {
+                StateSnapshot m = (StateSnapshot) message;
+                out.name("version").value(m.version());
+                writePlayers(out, "players", m.players());
+                writeStrings(out, "turnOrder", m.turnOrder());
+                out.name("currentTurnIndex").value(m.currentTurnIndex());
+            }
+            case SNAPSHOT_REQUEST -> {
+                SnapshotRequest m = (SnapshotRequest) message;
+                string(out, "playerId", m.playerId());
+                out.name("version").value(m.version());
+            }
+            case GAME_START -> {
+                GameStart m = (GameStart) message;
+                string(out, "role", m.role());
+                string(out, "word", m.word());
+            }
+            case PHASE_CHANGE -> string(out, "state", ((PhaseChange) message).state());
+            case GAME_END -> string(out, "message", ((GameEnd) message).message());
+            case GAME_MESSAGE -> {
+                GameNotice m = (GameNotice) message;
+                string(out, "senderId", m.senderId());
+                string(out, "senderName", m.senderName());
+                string(out, "content", m.content());
+                string(out, "messageType", m.messageType());
+            }
+            case WORD_SPOKEN -> {
+                WordSpoken m = (WordSpoken) message;
+                string(out, "playerId", m.playerId());
+                string(out, "playerName", m.playerName());
+                string(out, "word", m.word());
+                out.name("timestamp").value(m.timestamp());
+            }
+            case CHAT -> {
+                Chat m = (Chat) message;
+                string(out, "playerId", m.playerId());
+                string(out, "playerName", m.playerName());
+                string(out, "message", m.message());
+                out.name("timestamp").value(m.timestamp());
+            }
+            case VOTE -> {
+                Vote m = (Vote) message;
+                string(out, "voterId", m.voterId());
+                string(out, "targetId", m.targetId());
+            }
+            case GUESS -> {
+                Guess m = (Guess) message;
+                string(out, "playerId", m.playerId());
+                string(out, "guess", m.guess());
+            }
+            case TURN_START -> {
+                TurnStart m = (TurnStart) message;
+                string(out, "currentPlayerId", m.currentPlayerId());
+                out.name("remainingSeconds").value(m.remainingSeconds());
+                out.name("currentTurnIndex").value(m.currentTurnIndex());
+                if (!m.turnOrder().isEmpty()) {
+                    writeStrings(out, "turnOrder", m.turnOrder());
+                }
+                if (m.version() > 0) {
+                    out.name("version").value(m.version());
+                }
+            }
+            case TIMER_SYNC -> out.name("remainingSeconds").value(((TimerSync) message).remainingSeconds());
+            case TURN_TIMEOUT -> {
+                TurnTimeout m = (TurnTimeout) message;
+                string(out, "playerId", m.playerId());
+                string(out, "playerName", m.playerName());
+            }
+            case ROUND_END -> {
+                // Pas de champ
+            }
+            case PING -> {
+                Ping m = (Ping) message;
+                out.name("timestamp").value(m.timestamp());
+                string(out, "_senderIp", m.senderIp());
+                if (m.senderPort() > 0) {
+                    out.name("_senderPort").value(m.senderPort());
+                }
+            }
+            case PONG -> out.name("timestamp").value(message.timestamp());
+        }
+        out.endObject();
+    }
+
+    private static void writePlayers(JsonWriter out, String name, List<PlayerInfo> players) throws IOException {
+        out.name(name).beginArray();
+        for (PlayerInfo p : players) {
+            out.beginObject();
+            string(out, "id", p.id());
+            string(out, "name", p.name());
+            string(out, "ip", p.ip());
+            out.name("port").value(p.port());
+            out.name("udpPort").value(p.udpPort());
+            out.name("isHost").value(p.isHost());
+            out.name("alive").value(p.alive());
+            out.endObject();
+        }
+        out.endArray();
+    }
+
+    private static void writeStrings(JsonWriter out, String name, List<String> values) throws IOException {
+        out.name(name).beginArray();
+        for (String value : values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+
+    /**
+     * Ecrit un champ texte, omis s'il est null
+     */
+    private static void string(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.undercover.network.protocol;
+
+import java.util.List;
+
+/**
+ * ProtocolMessage - Messages du protocole de jeu, un record par type
+ *
+ * Les noms des composants sont ceux des champs JSON echanges sur le reseau
+ * (voir ProtocolCodec). Les champs optionnels absents valent null / 0.
+ */
+public sealed interface ProtocolMessage {
+
+    MessageType type();
+
+    /**
+     * Joueur a l'origine du message (null si le message n'en porte pas)
+     */
+    default String playerId() {
+        return null;
+    }
+
+    /**
+     * Horodatage d'emission en millisecondes (0 si le message n'en porte pas)
+     */
+    default long timestamp() {
+        return 0;
+    }
+
+    // ===== CONNEXION =====
+
+    /**
+     * protocolVersion / capabilities : voir Capabilities (0 si client ancien)
+     */
+    record JoinRequest(String playerName, String playerIp, int playerPort,
+                       int playerUdpPort, String playerId,
+                       int protocolVersion, int capabilities) implements ProtocolMessage {
+        public MessageType type() { return MessageType.JOIN_REQUEST; }
+    }
+
+    /**
+     * capabilities : capacites negociees (communes a l'hote et au client)
+     */
+    record JoinAccepted(String sessionId, String sessionName, String hostIp,
+                        int hostUdpPort, String playerId,
+                        int protocolVersion, int capabilities) implements ProtocolMessage {
+        public MessageType type() { return MessageType.JOIN_ACCEPTED; }
+    }
+
+    record JoinRejected(String reason) implements ProtocolMessage {
+        public MessageType type() { return MessageType.JOIN_REJECTED; }
+    }
+
+    record PlayerLeave(String playerId) implements ProtocolMessage {
+        public MessageType type() { return MessageType.PLAYER_LEAVE; }
+    }
+
+    // ===== ETAT DE LA PARTIE =====
+
+    /**
+     * Description d'un joueur dans PLAYER_LIST
+     */
+    record PlayerInfo(String id, String name, String ip, int port, int udpPort,
+                      boolean isHost, boolean alive) {}
+
+    /**
+     * Liste complete des joueurs. version : version de l'etat (0 = non versionne)
+     */
+    record PlayerList(List<PlayerInfo> players, int version) implements ProtocolMessage {
+        public MessageType type() { return MessageType.PLAYER_LIST; }
+    }
+
+    /**
+     * Modification de la liste des joueurs depuis la version precedente :
+     * joueurs ajoutes ou modifies (upserts) et joueurs retires (ids)
+     */
+    record PlayerDelta(int version, List<PlayerInfo> upserts, List<String> removed) implements ProtocolMessage {
+        public MessageType type() { return MessageType.PLAYER_DELTA; }
+    }
+
+    /**
+     * Etat complet (joueurs + tours) a une version donnee, envoye a un seul joueur
+     */
+    record StateSnapshot(int version, List<PlayerInfo> players, List<String> turnOrder,
+                         int currentTurnIndex) implements ProtocolMessage {
+        public MessageType type() { return MessageType.STATE_SNAPSHOT; }
+    }
+
+    /**
+     * Demande d'un etat complet par un client qui a detecte un trou de versions
+     */
+    record SnapshotRequest(String playerId, int version) implements ProtocolMessage {
+        public MessageType type() { return MessageType.SNAPSHOT_REQUEST; }
+    }
+
+    record GameStart(String role, String word) implements ProtocolMessage {
+        public MessageType type() { return MessageType.GAME_START; }
+    }
+
+    record PhaseChange(String state) implements ProtocolMessage {
+        public MessageType type() { return MessageType.PHASE_CHANGE; }
+    }
+
+    record GameEnd(String message) implements ProtocolMessage {
+        public MessageType type() { return MessageType.GAME_END; }
+    }
+
+    /**
+     * Message de jeu generique (elimination, egalite, ...) : GAME_MESSAGE
+     */
+    record GameNotice(String senderId, String senderName, String content,
+                      String messageType) implements ProtocolMessage {
+        public MessageType type() { return MessageType.GAME_MESSAGE; }
+    }
+
+    // ===== ACTIONS DES JOUEURS =====
+
+    record WordSpoken(String playerId, String playerName, String word,
+                      long timestamp) implements ProtocolMessage {
+        public MessageType type() { return MessageType.WORD_SPOKEN; }
+    }
+
+    record Chat(String playerId, String playerName, String message,
+                long timestamp) implements ProtocolMessage {
+        public MessageType type() { return MessageType.CHAT; }
+    }
+
+    record Vote(String voterId, String targetId) implements ProtocolMessage {
+        public MessageType type() { return MessageType.VOTE; }
+    }
+
+    record Guess(String playerId, String guess) implements ProtocolMessage {
+        public MessageType type() { return MessageType.GUESS; }
+    }
+
+    // ===== SYNCHRONISATION DES TOURS =====
+
+    /**
+     * turnOrder vide : ordre inchange depuis le dernier envoi (mode DELTA)
+     */
+    record TurnStart(String currentPlayerId, int remainingSeconds, int currentTurnIndex,
+                     List<String> turnOrder, int version) implements ProtocolMessage {
+        public MessageType type() { return MessageType.TURN_START; }
+    }
+
+    record TimerSync(int remainingSeconds) implements ProtocolMessage {
+        public MessageType type() { return MessageType.TIMER_SYNC; }
+    }
+
+    record TurnTimeout(String playerId, String playerName) implements ProtocolMessage {
+        public MessageType type() { return MessageType.TURN_TIMEOUT; }
+    }
+
+    record RoundEnd() implements ProtocolMessage {
+        public MessageType type() { return MessageType.ROUND_END; }
+    }
+
+    // ===== PING =====
+
+    record Ping(long timestamp, String senderIp, int senderPort) implements ProtocolMessage {
+        public MessageType type() { return MessageType.PING; }
+    }
+
+    record Pong(long timestamp) implements ProtocolMessage {
+        public MessageType type() { return MessageType.PONG; }
+    }
+}
@@ -0,0 +1,43 @@
+package com.undercover.network.protocol;
+
+/**
+ * WireFormat - Format d'encodage des messages envoyes
+ *
+ * Le format d'envoi d'une session est negocie au JOIN (voir Capabilities).
+ * A la reception, chaque ligne est decodee selon son premier caractere
+ * ('{' = JSON, '~' = binaire) : un pair peut donc toujours lire les deux formats.
+ */
+public enum WireFormat {
+    JSON,
+    BINARY;
+
+    /**
+     * Format le plus compact autorise : binaire par defaut (si tous les pairs le
+     * supportent), -Dundercover.wire.format=json pour rester en JSON
+     */
+    public static WireFormat fromSystemProperty() {
+        return "json".equalsIgnoreCase(System.getProperty("undercover.wire.format")) ? JSON : BINARY;
+    }
+
+    /**
+     * Encode un message en une ligne de texte
+     */
+    public String encode(ProtocolMessage message) {
+        return this == BINARY ? BinaryCodec.encode(message) : ProtocolCodec.encode(message);
+    }
+
+    /**
+     * Encode un message en une ligne, en octets
+     */
+    public byte[] encodeToBytes(ProtocolMessage message) {
+        return this == BINARY ? BinaryCodec.encodeToBytes(message) : ProtocolCodec.encodeToBytes(message);
+    }
+
+    /**
+     * Decode une ligne recue, quel que soit son format.
+     * Retourne null si le type de message est inconnu.
+     */
+    public static ProtocolMessage decodeLine(String line) {
+        return BinaryCodec.isBinaryLine(line) ? BinaryCodec.decode(line) : ProtocolCodec.decode(line);
+    }
+}